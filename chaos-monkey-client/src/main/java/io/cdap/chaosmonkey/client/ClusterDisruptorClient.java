@@ -16,15 +16,23 @@
 
 package io.cdap.chaosmonkey.client;
 
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import io.cdap.chaosmonkey.common.Constants;
 import io.cdap.chaosmonkey.proto.ActionArguments;
 import io.cdap.chaosmonkey.proto.ActionStatus;
+import io.cdap.chaosmonkey.proto.AsyncClusterDisruptor;
+import io.cdap.chaosmonkey.proto.BatchEntry;
+import io.cdap.chaosmonkey.proto.BatchStatus;
 import io.cdap.chaosmonkey.proto.ClusterDisruptor;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
 import io.cdap.chaosmonkey.proto.NodeStatus;
 import io.cdap.chaosmonkey.proto.ServiceInfo;
 import io.cdap.common.http.HttpRequest;
+import io.cdap.common.http.HttpRequestConfig;
 import io.cdap.common.http.HttpRequests;
 import io.cdap.common.http.HttpResponse;
 
@@ -34,6 +42,7 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.annotation.Nullable;
@@ -44,14 +53,18 @@ import javax.ws.rs.NotFoundException;
 /**
  * Provides ways to interact with Chaos Monkey.
  */
-public class ClusterDisruptorClient implements ClusterDisruptor {
+public class ClusterDisruptorClient implements ClusterDisruptor, AsyncClusterDisruptor {
   private static final Type STATUSES_TYPE = new TypeToken<Collection<NodeStatus>>() { }.getType();
   private static final Type SERVICE_TYPE = new TypeToken<Collection<ServiceInfo>>() { }.getType();
+  private static final Type RESULTS_TYPE = new TypeToken<Collection<DisruptionResult>>() { }.getType();
   private static final Gson GSON = new Gson();
+  // Longest time a single status request is held on the server while waiting for an action
+  private static final long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
   private final String hostname;
   private final int port;
   private final boolean sslEnabled;
+  private final DisruptionResultPoller resultPoller;
 
   public ClusterDisruptorClient(String hostname, int port) {
     this(hostname, port, false);
@@ -61,6 +74,7 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
     this.hostname = hostname;
     this.port = port;
     this.sslEnabled = sslEnabled;
+    this.resultPoller = new DisruptionResultPoller(this);
   }
 
   @Override
@@ -78,15 +92,47 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void disruptAndWait(String service, String disruptionName, @Nullable ActionArguments actionArguments,
                              long timeout, TimeUnit timeoutUnit) throws Exception {
     executeActionWithArgument(service, disruptionName, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isActionRunning(service, disruptionName)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, disruptionName, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncDisrupt(String service, String disruptionName,
+                                                         @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, disruptionName, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncStart(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.START, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncRestart(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.RESTART, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncStop(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.STOP, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncTerminate(String service,
+                                                           @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.TERMINATE, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncKill(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.KILL, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncRollingRestart(String service,
+                                                                @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.ROLLING_RESTART, actionArguments);
   }
 
   /**
@@ -244,7 +290,7 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
     executeActionWithArgument(service, Constants.RemoteProcess.KILL, actionArguments);
   }
 
-  private void executeActionWithArgument(String service, String action, @Nullable ActionArguments actionArguments)
+  private String executeActionWithArgument(String service, String action, @Nullable ActionArguments actionArguments)
     throws IOException {
     URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN, "services/" + service + "/" + action);
     HttpRequest request;
@@ -261,9 +307,56 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
       throw new NotFoundException(String.format("Service not found: %s", service));
     } else if (responseCode == HttpURLConnection.HTTP_BAD_REQUEST) {
       throw new BadRequestException(String.format("Bad Request. Reason: %s", responseMessage));
+    } else if (responseCode == HttpURLConnection.HTTP_CONFLICT) {
+      throw new IllegalStateException(response.getResponseBodyAsString());
     } else if (responseCode == HttpURLConnection.HTTP_INTERNAL_ERROR) {
       throw new InternalServerErrorException(String.format("Internal Error. Reason: %s", responseMessage));
     }
+    return response.getResponseBodyAsString();
+  }
+
+  private ListenableFuture<DisruptionResult> submitAsync(String service, String action,
+                                                         @Nullable ActionArguments actionArguments) {
+    try {
+      return resultPoller.watch(executeActionWithArgument(service, action, actionArguments));
+    } catch (IOException | RuntimeException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
+  /**
+   * Gets the results of the given disruptions, holding the request on the server until any of them is done or the
+   * given time passes
+   *
+   * @throws IOException if a network error occurred, or the server could not answer yet
+   * @throws NotFoundException if the server does not serve disruption results
+   * @throws BadRequestException if the request was invalid
+   */
+  Collection<DisruptionResult> getDisruptionResults(Collection<String> ids, long waitMillis) throws IOException {
+    URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN,
+                         "disruptions?ids=" + Joiner.on(',').join(ids) + "&waitMillis=" + waitMillis);
+    HttpRequest request = HttpRequest.get(url).build();
+    HttpResponse response = HttpRequests.execute(request, getRequestConfig(waitMillis));
+
+    int responseCode = response.getResponseCode();
+    if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+      throw new NotFoundException(String.format("Disruption results not found. Reason: %s",
+                                                response.getResponseMessage()));
+    } else if (responseCode == HttpURLConnection.HTTP_BAD_REQUEST) {
+      throw new BadRequestException(String.format("Bad Request. Reason: %s", response.getResponseMessage()));
+    } else if (responseCode != HttpURLConnection.HTTP_OK) {
+      throw new IOException(String.format("Unable to get disruption results. Reason: %s",
+                                          response.getResponseMessage()));
+    }
+    return GSON.fromJson(response.getResponseBodyAsString(), RESULTS_TYPE);
+  }
+
+  /**
+   * Returns a request configuration whose read timeout leaves room for the server to hold the request
+   */
+  private HttpRequestConfig getRequestConfig(long waitMillis) {
+    return new HttpRequestConfig(HttpRequestConfig.DEFAULT.getConnectTimeout(),
+                                 HttpRequestConfig.DEFAULT.getReadTimeout() + (int) waitMillis);
   }
 
   /**
@@ -335,15 +428,9 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void startAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                            TimeUnit timeoutUnit) throws IOException, InterruptedException, TimeoutException {
     start(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isStartRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.START, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   /**
@@ -362,15 +449,9 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void restartAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                              TimeUnit timeoutUnit) throws IOException, InterruptedException, TimeoutException {
     restart(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isRestartRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.RESTART, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   /**
@@ -389,15 +470,9 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void stopAndWait(String service, @Nullable ActionArguments actionArguments, long timeout, TimeUnit timeoutUnit)
     throws IOException, InterruptedException, TimeoutException {
     stop(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isStopRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.STOP, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   /**
@@ -416,15 +491,9 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void terminateAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                                TimeUnit timeoutUnit) throws IOException, InterruptedException, TimeoutException {
     terminate(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isTerminateRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.TERMINATE, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   /**
@@ -443,15 +512,9 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void killAndWait(String service, @Nullable ActionArguments actionArguments, long timeout, TimeUnit timeoutUnit)
     throws IOException, InterruptedException, TimeoutException {
     kill(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isKillRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.KILL, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   /**
@@ -479,9 +542,60 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
   public void rollingRestartAndWait(String service, @Nullable ActionArguments actionArguments)
     throws IOException, InterruptedException {
     rollingRestart(service, actionArguments);
-    while (isRollingRestartRunning(service)) {
-      TimeUnit.SECONDS.sleep(1);
+    waitForAction(service, Constants.RemoteProcess.ROLLING_RESTART, Long.MAX_VALUE);
+  }
+
+  /**
+   * Runs a batch of actions. Every entry is validated before any is submitted, then all entries are submitted together.
+   *
+   * @param entries The service, action and configuration of each action to be run
+   * @return {@link BatchStatus} with the ID of the batch and the state of each entry
+   * @throws IOException if a network error occurred
+   * @throws BadRequestException if any entry is invalid, in which case nothing was submitted
+   * @throws InternalServerErrorException if internal server error occurred
+   */
+  @Override
+  public BatchStatus batch(List<BatchEntry> entries)
+    throws IOException, BadRequestException, InternalServerErrorException {
+    URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN, "batch");
+    HttpResponse response = HttpRequests.execute(HttpRequest.post(url).withBody(GSON.toJson(entries)).build());
+
+    int responseCode = response.getResponseCode();
+    if (responseCode == HttpURLConnection.HTTP_BAD_REQUEST) {
+      throw new BadRequestException(String.format("Bad Request. Reason: %s", response.getResponseBodyAsString()));
+    } else if (responseCode != HttpURLConnection.HTTP_OK) {
+      throw new InternalServerErrorException(String.format("Internal Error. Reason: %s",
+                                                           response.getResponseMessage()));
+    }
+    return GSON.fromJson(response.getResponseBodyAsString(), BatchStatus.class);
+  }
+
+  /**
+   * Cancels an action running or waiting to run on the given service
+   *
+   * @param service The name of the service being disrupted
+   * @param action The name of the action to cancel
+   * @return true if the action was cancelled, false if it was not running
+   * @throws IOException if a network error occurred
+   * @throws NotFoundException if the action is not valid on the specified service
+   * @throws InternalServerErrorException if internal server error occurred
+   */
+  @Override
+  public boolean cancel(String service, String action)
+    throws IOException, NotFoundException, InternalServerErrorException {
+    URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN, "services/" + service + "/" + action);
+    HttpResponse response = HttpRequests.execute(HttpRequest.delete(url).build());
+
+    int responseCode = response.getResponseCode();
+    String responseMessage = response.getResponseMessage();
+    if (responseCode == HttpURLConnection.HTTP_CONFLICT) {
+      return false;
+    } else if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+      throw new NotFoundException(String.format("Action not found: %s %s", service, action));
+    } else if (responseCode == HttpURLConnection.HTTP_INTERNAL_ERROR) {
+      throw new InternalServerErrorException(String.format("Internal Error. Reason: %s", responseMessage));
     }
+    return true;
   }
 
   /**
@@ -494,11 +608,38 @@ public class ClusterDisruptorClient implements ClusterDisruptor {
    */
   @Override
   public boolean isActionRunning(String service, String action) throws IOException {
-    URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN, "services/" + service + "/" + action + "/status");
+    return getActionStatus(service, action, 0).isRunning();
+  }
+
+  /**
+   * Waits for an action on the given service to finish, holding each status request on the server until the action
+   * finishes or the request's wait time passes
+   *
+   * @return true if the action is no longer running, false if it was still running after the timeout
+   */
+  private boolean waitForAction(String service, String action, long timeoutMs)
+    throws IOException, InterruptedException {
+    long startTime = System.currentTimeMillis();
+    long remainingMs = timeoutMs;
+    while (remainingMs > 0) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (!getActionStatus(service, action, Math.min(remainingMs, MAX_WAIT_MILLIS)).isRunning()) {
+        return true;
+      }
+      remainingMs = timeoutMs - (System.currentTimeMillis() - startTime);
+    }
+    return !isActionRunning(service, action);
+  }
+
+  private ActionStatus getActionStatus(String service, String action, long waitMillis) throws IOException {
+    URL url = resolveURL(Constants.Server.API_VERSION_1_TOKEN,
+                         "services/" + service + "/" + action + "/status?waitMillis=" + waitMillis);
     HttpRequest request = HttpRequest.get(url).build();
-    HttpResponse response = HttpRequests.execute(request);
+    HttpResponse response = HttpRequests.execute(request, getRequestConfig(waitMillis));
 
-    return GSON.fromJson(response.getResponseBodyAsString(), ActionStatus.class).isRunning();
+    return GSON.fromJson(response.getResponseBodyAsString(), ActionStatus.class);
   }
 
   /**
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completes the futures of submitted disruptions. A single thread long-polls the results of all pending disruptions
+ * at once, and exits when no disruption is pending, so the number of threads does not grow with the number of
+ * disruptions being waited on. Network errors are retried a bounded number of times in a row, after which, or on an
+ * error that retrying cannot fix, the futures of all pending disruptions fail.
+ */
+final class DisruptionResultPoller {
+  private static final Logger LOG = LoggerFactory.getLogger(DisruptionResultPoller.class);
+  // Longest time a poll is held on the server. Disruptions submitted during a poll are included in the next one.
+  private static final long POLL_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final int MAX_RETRIES = 30;
+
+  private final ClusterDisruptorClient client;
+  private final ExecutorService executor;
+  private final Map<String, SettableFuture<DisruptionResult>> pending;
+  private boolean polling;
+
+  DisruptionResultPoller(ClusterDisruptorClient client) {
+    this.client = client;
+    this.executor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                           new ThreadFactoryBuilder().setDaemon(true)
+                                             .setNameFormat("disruption-result-poller").build());
+    this.pending = new LinkedHashMap<>();
+  }
+
+  /**
+   * Returns a future holding the result of the disruption with the given ID once it is done
+   */
+  ListenableFuture<DisruptionResult> watch(String id) {
+    SettableFuture<DisruptionResult> future = SettableFuture.create();
+    synchronized (this) {
+      pending.put(id, future);
+      if (!polling) {
+        polling = true;
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            poll();
+          }
+        });
+      }
+    }
+    return future;
+  }
+
+  private void poll() {
+    int failures = 0;
+    while (true) {
+      List<String> ids;
+      synchronized (this) {
+        Iterator<SettableFuture<DisruptionResult>> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+          if (iterator.next().isDone()) {
+            iterator.remove();
+          }
+        }
+        if (pending.isEmpty()) {
+          polling = false;
+          return;
+        }
+        ids = new ArrayList<>(pending.keySet());
+      }
+
+      Collection<DisruptionResult> results;
+      try {
+        results = client.getDisruptionResults(ids, POLL_WAIT_MILLIS);
+        failures = 0;
+      } catch (IOException e) {
+        if (++failures > MAX_RETRIES) {
+          LOG.error("Unable to get the results of disruptions {} after {} attempts", ids, failures, e);
+          failAll(e);
+          return;
+        }
+        LOG.warn("Unable to get the results of disruptions {}, retrying", ids, e);
+        Uninterruptibles.sleepUninterruptibly(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        continue;
+      } catch (RuntimeException e) {
+        LOG.error("Unable to get the results of disruptions {}", ids, e);
+        failAll(e);
+        return;
+      }
+
+      Set<String> known = new HashSet<>();
+      for (DisruptionResult result : results) {
+        known.add(result.getId());
+        if (result.isDone()) {
+          remove(result.getId()).set(result);
+        }
+      }
+      for (String id : ids) {
+        if (!known.contains(id)) {
+          remove(id).setException(new IllegalStateException("Unknown disruption: " + id));
+        }
+      }
+    }
+  }
+
+  /**
+   * Fails the futures of all pending disruptions and stops polling, until another disruption is watched
+   */
+  private synchronized void failAll(Exception cause) {
+    for (SettableFuture<DisruptionResult> future : pending.values()) {
+      future.setException(cause);
+    }
+    pending.clear();
+    polling = false;
+  }
+
+  private synchronized SettableFuture<DisruptionResult> remove(String id) {
+    return pending.remove(id);
+  }
+}
@@ -58,6 +58,110 @@ public class Constants {
     );
   }
 
+  /**
+   * Constants related to {@code SshShell}.
+   */
+  public static final class Ssh {
+    public static final String MAX_CHANNELS_PER_SESSION = "ssh.session.maxChannels";
+    public static final String SESSION_IDLE_TIMEOUT_SECONDS = "ssh.session.idleTimeout";
+    public static final String SESSION_KEEP_ALIVE_SECONDS = "ssh.session.keepAliveInterval";
+    public static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 8;
+    public static final int DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS = 300;
+    public static final int DEFAULT_SESSION_KEEP_ALIVE_SECONDS = 30;
+  }
+
+  /**
+   * Constants related to {@code Disruption}.
+   */
+  public static final class Disruption {
+    public static final String PARALLELISM = "parallelism";
+    public static final String VERIFY_TIMEOUT_SECONDS = "verifyTimeout";
+    public static final int DEFAULT_VERIFY_TIMEOUT_SECONDS = 10;
+    public static final String THREADS = "disruption.threads";
+    public static final int DEFAULT_THREADS = 8;
+    public static final ImmutableSet<String> CONFIG_OPTIONS = ImmutableSet.of(
+      Constants.Disruption.PARALLELISM,
+      Constants.Disruption.VERIFY_TIMEOUT_SECONDS
+    );
+  }
+
+  /**
+   * Constants related to the executor used to fan out work over hosts.
+   */
+  public static final class Executor {
+    public static final String TYPE = "executor.type";
+    public static final String THREADS = "executor.threads";
+    public static final String PER_HOST_CONCURRENCY = "executor.perHostConcurrency";
+    public static final String DEFAULT_TYPE = "bounded";
+    public static final int DEFAULT_THREADS = 64;
+    public static final int DEFAULT_PER_HOST_CONCURRENCY = 4;
+  }
+
+  /**
+   * Constants related to the cached snapshot of node statuses.
+   */
+  public static final class StatusCache {
+    public static final String REFRESH_INTERVAL_SECONDS = "status.refreshInterval";
+    public static final String MAX_STALENESS_SECONDS = "status.maxStaleness";
+    public static final int DEFAULT_REFRESH_INTERVAL_SECONDS = 15;
+    public static final int DEFAULT_MAX_STALENESS_SECONDS = 60;
+  }
+
+  /**
+   * Constants related to building the processes of each service on startup.
+   */
+  public static final class Startup {
+    public static final String THREADS = "startup.threads";
+    public static final String PREWARM_SSH = "startup.prewarmSsh";
+    public static final String PREWARM_TIMEOUT_SECONDS = "startup.prewarmTimeout";
+    public static final int DEFAULT_THREADS = 8;
+    public static final boolean DEFAULT_PREWARM_SSH = false;
+    public static final int DEFAULT_PREWARM_TIMEOUT_SECONDS = 60;
+  }
+
+  /**
+   * Constants related to re-reading the nodes of the cluster after startup.
+   */
+  public static final class Topology {
+    public static final String REFRESH_INTERVAL_SECONDS = "topology.refreshInterval";
+    public static final String MAX_REMOVED_FRACTION = "topology.maxRemovedFraction";
+    public static final int DEFAULT_REFRESH_INTERVAL_SECONDS = 0;
+    public static final double DEFAULT_MAX_REMOVED_FRACTION = 0.5;
+  }
+
+  /**
+   * Constants related to the scheduler that drives scheduled disruptions.
+   */
+  public static final class Scheduler {
+    public static final String THREADS = "scheduler.threads";
+    public static final String JITTER = "scheduler.jitter";
+    public static final int DEFAULT_THREADS = 4;
+    public static final double DEFAULT_JITTER = 0.0;
+  }
+
+  /**
+   * Constants related to the budget of processes that disruptions may take down at a time.
+   */
+  public static final class Admission {
+    public static final String MAX_DOWN = "admission.maxDown";
+    public static final String MAX_DOWN_PER_HOST = "admission.maxDownPerHost";
+    public static final String QUEUE_TIMEOUT_SECONDS = "admission.queueTimeout";
+    public static final String SERVICE_MAX_DOWN = "maxDown";
+    public static final String SERVICE_MAX_DOWN_FRACTION = "maxDownFraction";
+    public static final int DEFAULT_QUEUE_TIMEOUT_SECONDS = 0;
+  }
+
+  /**
+   * Constants related to reproducing chaos runs.
+   */
+  public static final class Run {
+    public static final String SEED = "run.seed";
+    public static final String JOURNAL_PATH = "run.journal";
+    public static final String REPLAY_JOURNAL_PATH = "run.replay";
+    public static final String REPLAY_SPEED = "run.replaySpeed";
+    public static final double DEFAULT_REPLAY_SPEED = 1.0;
+  }
+
   /**
    * Constants related to Coopr, used for retrieving cluster information.
    */
@@ -67,6 +171,9 @@ public class Constants {
     public static final String SERVER_URI = "coopr.server.uri";
     public static final String API_VERSION = "coopr.api.version";
     public static final String CLUSTER_ID = "coopr.clusterId";
+    public static final String SNAPSHOT_PATH = "coopr.snapshotPath";
+    public static final String TIMEOUT_SECONDS = "coopr.timeout";
+    public static final int DEFAULT_TIMEOUT_SECONDS = 30;
   }
 
   /**
@@ -24,23 +24,32 @@ import javax.annotation.Nullable;
 /**
  * ActionArguments represents the request body of the action endpoint
  * restartTime and delay Integers are only applicable to Rolling Restart
+ * labels only keeps the nodes that have all of the given labels, and perLabel applies count or percentage to the nodes
+ * with each value of the given label separately
  */
 public class ActionArguments {
   private Collection<String> nodes;
   private Integer count;
   private Double percentage;
   private Map<String, String> serviceArguments;
+  private Long seed;
+  private Map<String, String> labels;
+  private String perLabel;
 
   public ActionArguments() {
     // NO-OP
   }
 
   private ActionArguments(@Nullable Collection<String> nodes, @Nullable Integer count, @Nullable Double percentage,
-                          @Nullable Map<String, String> serviceArguments) {
+                          @Nullable Map<String, String> serviceArguments, @Nullable Long seed,
+                          @Nullable Map<String, String> labels, @Nullable String perLabel) {
     this.nodes = nodes;
     this.count = count;
     this.percentage = percentage;
     this.serviceArguments = serviceArguments;
+    this.seed = seed;
+    this.labels = labels;
+    this.perLabel = perLabel;
   }
 
   public void validate() {
@@ -61,6 +70,15 @@ public class ActionArguments {
     if (percentage != null && (percentage <= 0 || percentage > 100)) {
       throw new IllegalArgumentException("percentage needs to be between 0 and 100: " + percentage);
     }
+    if (nodes != null && (labels != null || perLabel != null)) {
+      throw new IllegalArgumentException("labels and perLabel cannot be set along with nodes");
+    }
+    if (labels != null && labels.isEmpty()) {
+      throw new IllegalArgumentException("labels parameter cannot be empty");
+    }
+    if (perLabel != null && count == null && percentage == null) {
+      throw new IllegalArgumentException("perLabel needs count or percentage to be set");
+    }
   }
 
   @Nullable
@@ -82,6 +100,32 @@ public class ActionArguments {
     return serviceArguments == null ? new HashMap<String, String>() : serviceArguments;
   }
 
+  /**
+   * Returns the seed used to pick the nodes affected by count or percentage, or {@code null} to use the seed of the
+   * run
+   */
+  @Nullable
+  public Long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the labels that the affected nodes must all have, or {@code null} to not filter nodes by label
+   */
+  @Nullable
+  public Map<String, String> getLabels() {
+    return labels;
+  }
+
+  /**
+   * Returns the label whose every value gets the count or percentage of nodes, or {@code null} to apply them to all
+   * nodes at once
+   */
+  @Nullable
+  public String getPerLabel() {
+    return perLabel;
+  }
+
   /**
    * Get a builder for creating a new ActionArgument
    *
@@ -99,6 +143,9 @@ public class ActionArguments {
     private Integer count;
     private Double percentage;
     private Map<String, String> serviceArguments;
+    private Long seed;
+    private Map<String, String> labels;
+    private String perLabel;
 
     public Builder setNodes(Collection<String> nodes) {
       this.nodes = nodes;
@@ -120,8 +167,24 @@ public class ActionArguments {
       return this;
     }
 
+    public Builder setSeed(Long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public Builder setLabels(Map<String, String> labels) {
+      this.labels = labels;
+      return this;
+    }
+
+    public Builder setPerLabel(String perLabel) {
+      this.perLabel = perLabel;
+      return this;
+    }
+
     public ActionArguments build() {
-      ActionArguments actionArguments = new ActionArguments(nodes, count, percentage, serviceArguments);
+      ActionArguments actionArguments = new ActionArguments(nodes, count, percentage, serviceArguments, seed, labels,
+                                                            perLabel);
       actionArguments.validate();
       return actionArguments;
     }
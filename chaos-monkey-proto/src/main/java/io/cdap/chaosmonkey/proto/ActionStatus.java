@@ -16,6 +16,8 @@
 
 package io.cdap.chaosmonkey.proto;
 
+import javax.annotation.Nullable;
+
 /**
  * Data to be sent when querying for rolling restart status
  */
@@ -23,11 +25,17 @@ public class ActionStatus {
   private String processName;
   private String actionName;
   private boolean isRunning;
+  private String id;
 
   public ActionStatus(String processName, String actionName, boolean isRunning) {
+    this(processName, actionName, isRunning, null);
+  }
+
+  public ActionStatus(String processName, String actionName, boolean isRunning, @Nullable String id) {
     this.processName = processName;
     this.actionName = actionName;
     this.isRunning = isRunning;
+    this.id = id;
   }
 
   public String getProcessName() {
@@ -41,4 +49,12 @@ public class ActionStatus {
   public boolean isRunning() {
     return this.isRunning;
   }
+
+  /**
+   * Returns the ID of the running disruption, or {@code null} if it is not running
+   */
+  @Nullable
+  public String getId() {
+    return this.id;
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.proto;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Interface with methods for disrupting services on a cluster without blocking until the disruption is done. Each
+ * method returns once the disruption is submitted, with a future that completes when the disruption is done.
+ */
+public interface AsyncClusterDisruptor {
+
+  /**
+   * Runs a custom disruption on the given service based on given configurations
+   *
+   * @param service The name of the service to run the disruption against
+   * @param disruptionName The name of the disruption to be run
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the disruption is done
+   */
+  ListenableFuture<DisruptionResult> asyncDisrupt(String service, String disruptionName,
+                                                  ActionArguments actionArguments);
+
+  /**
+   * Starts the specified service based on given configurations
+   *
+   * @param service The name of the service to be started
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the service is started
+   */
+  ListenableFuture<DisruptionResult> asyncStart(String service, ActionArguments actionArguments);
+
+  /**
+   * Restarts the specified service based on given configurations
+   *
+   * @param service The name of the service to be restarted
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the service is restarted
+   */
+  ListenableFuture<DisruptionResult> asyncRestart(String service, ActionArguments actionArguments);
+
+  /**
+   * Stops the specified service based on given configurations
+   *
+   * @param service The name of the service to be stopped
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the service is stopped
+   */
+  ListenableFuture<DisruptionResult> asyncStop(String service, ActionArguments actionArguments);
+
+  /**
+   * Terminates the specified service based on given configurations
+   *
+   * @param service The name of the service to be terminated
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the service is terminated
+   */
+  ListenableFuture<DisruptionResult> asyncTerminate(String service, ActionArguments actionArguments);
+
+  /**
+   * Kills the specified service based on given configurations
+   *
+   * @param service The name of the service to be killed
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the service is killed
+   */
+  ListenableFuture<DisruptionResult> asyncKill(String service, ActionArguments actionArguments);
+
+  /**
+   * Starts a rolling restart of the specified service based on given configurations
+   *
+   * @param service The name of the service to perform rolling restart on
+   * @param actionArguments Configuration for the action
+   * @return future holding the {@link DisruptionResult} once the rolling restart is done
+   */
+  ListenableFuture<DisruptionResult> asyncRollingRestart(String service, ActionArguments actionArguments);
+}
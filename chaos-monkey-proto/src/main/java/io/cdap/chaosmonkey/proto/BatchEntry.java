@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.proto;
+
+import javax.annotation.Nullable;
+
+/**
+ * BatchEntry represents one service and action of a batch, along with the arguments of the action
+ */
+public class BatchEntry {
+  private final String service;
+  private final String action;
+  private final ActionArguments actionArguments;
+
+  public BatchEntry(String service, String action) {
+    this(service, action, null);
+  }
+
+  public BatchEntry(String service, String action, @Nullable ActionArguments actionArguments) {
+    this.service = service;
+    this.action = action;
+    this.actionArguments = actionArguments;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  @Nullable
+  public ActionArguments getActionArguments() {
+    return actionArguments;
+  }
+}
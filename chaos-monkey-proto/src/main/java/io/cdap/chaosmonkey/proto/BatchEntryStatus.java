@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.proto;
+
+import javax.annotation.Nullable;
+
+/**
+ * BatchEntryStatus represents the state of the disruption submitted for one entry of a batch
+ */
+public class BatchEntryStatus {
+  public static final String REJECTED = "rejected";
+
+  private final String service;
+  private final String action;
+  private final String id;
+  private final String state;
+  private final String error;
+
+  /**
+   * @param service The name of the service of the entry
+   * @param action The name of the action of the entry
+   * @param id The ID of the submitted disruption, or null if it was rejected
+   * @param state {@link #REJECTED}, or the state of the {@link DisruptionResult} of the submitted disruption
+   * @param error Reason the entry was rejected or its disruption failed
+   */
+  public BatchEntryStatus(String service, String action, @Nullable String id, String state, @Nullable String error) {
+    this.service = service;
+    this.action = action;
+    this.id = id;
+    this.state = state;
+    this.error = error;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  @Nullable
+  public String getId() {
+    return id;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  @Nullable
+  public String getError() {
+    return error;
+  }
+}
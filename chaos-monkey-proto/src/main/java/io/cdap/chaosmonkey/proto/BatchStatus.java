@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.proto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BatchStatus represents the state of each entry of a batch, in the order the entries were given
+ */
+public class BatchStatus {
+  private final String id;
+  private final List<BatchEntryStatus> entries;
+
+  public BatchStatus(String id, List<BatchEntryStatus> entries) {
+    this.id = id;
+    this.entries = new ArrayList<>(entries);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public List<BatchEntryStatus> getEntries() {
+    return entries == null ? Collections.<BatchEntryStatus>emptyList() : Collections.unmodifiableList(entries);
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.chaosmonkey.proto;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -262,6 +263,24 @@ public interface ClusterDisruptor {
    */
   void rollingRestartAndWait(String service, ActionArguments actionArguments) throws Exception;
 
+  /**
+   * Runs a batch of actions. Every entry is validated before any is submitted, then all entries are submitted together.
+   *
+   * @param entries The service, action and configuration of each action to be run
+   * @return {@link BatchStatus} with the ID of the batch and the state of each entry
+   */
+  BatchStatus batch(List<BatchEntry> entries) throws Exception;
+
+  /**
+   * Cancels an action running or waiting to run on the given service. The action is interrupted between the steps it
+   * performs on each node.
+   *
+   * @param service The name of the service being disrupted
+   * @param action The name of the action to cancel
+   * @return true if the action was cancelled, false if it was not running
+   */
+  boolean cancel(String service, String action) throws Exception;
+
   /**
    * Returns whether an action is running on the given service
    *
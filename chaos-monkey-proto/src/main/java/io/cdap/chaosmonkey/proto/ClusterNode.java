@@ -17,17 +17,26 @@
 package io.cdap.chaosmonkey.proto;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
- * Represents a node, with information to be returned from {@link ClusterInfoCollector}
+ * Represents a node, with information to be returned from {@link ClusterInfoCollector}. Labels describe where the node
+ * runs, such as its rack or zone, and can be used to select the nodes affected by an action.
  */
 public class ClusterNode {
   private final Collection<String> services;
   private final String host;
+  private final Map<String, String> labels;
 
   public ClusterNode(Collection<String> services, String host) {
+    this(services, host, Collections.<String, String>emptyMap());
+  }
+
+  public ClusterNode(Collection<String> services, String host, Map<String, String> labels) {
     this.services = services;
     this.host = host;
+    this.labels = labels;
   }
 
   public Collection<String> getServices() {
@@ -37,4 +46,11 @@ public class ClusterNode {
   public String getHost() {
     return host;
   }
+
+  /**
+   * Returns the labels of the node, from label name to value
+   */
+  public Map<String, String> getLabels() {
+    return labels == null ? Collections.<String, String>emptyMap() : labels;
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey.proto;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * DisruptionResult represents the state of a submitted disruption, and the outcome on each node once it is done
+ */
+public class DisruptionResult {
+  public static final String RUNNING = "running";
+  public static final String COMPLETED = "completed";
+  public static final String FAILED = "failed";
+  public static final String CANCELLED = "cancelled";
+
+  private final String id;
+  private final String service;
+  private final String action;
+  private final String state;
+  private final Map<String, String> nodeOutcomes;
+  private final long submitTime;
+  private final long endTime;
+  private final String error;
+
+  /**
+   * @param id The ID of the disruption
+   * @param service The name of the disrupted service
+   * @param action The name of the disruption
+   * @param state One of {@link #RUNNING}, {@link #COMPLETED}, {@link #FAILED} or {@link #CANCELLED}
+   * @param nodeOutcomes Map from node address to the outcome of the disruption on that node
+   * @param submitTime Time in milliseconds since epoch at which the disruption was submitted
+   * @param endTime Time in milliseconds since epoch at which the disruption ended, or 0 if it is running
+   * @param error Reason the disruption failed, if it failed
+   */
+  public DisruptionResult(String id, String service, String action, String state, Map<String, String> nodeOutcomes,
+                          long submitTime, long endTime, @Nullable String error) {
+    this.id = id;
+    this.service = service;
+    this.action = action;
+    this.state = state;
+    this.nodeOutcomes = new HashMap<>(nodeOutcomes);
+    this.submitTime = submitTime;
+    this.endTime = endTime;
+    this.error = error;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether the disruption is no longer running
+   */
+  public boolean isDone() {
+    return !RUNNING.equals(state);
+  }
+
+  /**
+   * Returns a map from node address to the outcome of the disruption on that node, empty if the disruption does not
+   * report outcomes per node
+   */
+  public Map<String, String> getNodeOutcomes() {
+    return nodeOutcomes == null ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(nodeOutcomes);
+  }
+
+  public long getSubmitTime() {
+    return submitTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  @Nullable
+  public String getError() {
+    return error;
+  }
+}
@@ -22,19 +22,22 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * NodeStatus represents the running status of each service on a node
+ * NodeStatus represents the running status of each service on a node, as of the time it was collected
  */
 public class NodeStatus {
   private final String hostname;
   private final Map<String, String> serviceStatusMap;
+  private final long asOf;
 
   public NodeStatus(String hostname, Map<String, String> serviceStatusMap) {
     this.hostname = hostname;
     this.serviceStatusMap = serviceStatusMap;
+    this.asOf = System.currentTimeMillis();
   }
 
   public NodeStatus(String hostname, Collection<ServiceStatus> serviceStatuses) {
     this.hostname = hostname;
+    this.asOf = System.currentTimeMillis();
     Map<String, String> serviceStatusMap = new HashMap<>();
     for (ServiceStatus serviceStatus : serviceStatuses) {
       if (!serviceStatus.getAddress().equals(hostname)) {
@@ -52,4 +55,11 @@ public class NodeStatus {
   public Map<String, String> getServiceStatusMap() {
     return Collections.unmodifiableMap(this.serviceStatusMap);
   }
+
+  /**
+   * Returns the time in milliseconds since epoch at which the statuses were collected
+   */
+  public long getAsOf() {
+    return asOf;
+  }
 }
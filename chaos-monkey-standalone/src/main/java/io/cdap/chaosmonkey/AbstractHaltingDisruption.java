@@ -19,35 +19,107 @@ package io.cdap.chaosmonkey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
 import java.util.Map;
-import javax.annotation.Nullable;
 
 /**
- * A disruption that halts a running process
+ * A disruption that halts a running process. Subclasses define either {@link #getActionCommand(RemoteProcess)}, or
+ * the deprecated {@link #action(RemoteProcess)}.
  */
-public abstract class AbstractHaltingDisruption implements Disruption {
+public abstract class AbstractHaltingDisruption extends AbstractProcessDisruption {
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractHaltingDisruption.class);
 
+  // Whether the subclass only defines action(RemoteProcess)
+  private final boolean legacyAction;
+
+  /**
+   * @throws IllegalStateException if the subclass defines neither an action command nor an action
+   */
+  protected AbstractHaltingDisruption() {
+    boolean hasActionCommand = isOverridden("getActionCommand");
+    if (!hasActionCommand && !isOverridden("action")) {
+      throw new IllegalStateException(getClass().getName() + " defines neither getActionCommand nor action");
+    }
+    this.legacyAction = !hasActionCommand;
+  }
+
   @Override
-  public void disrupt(Collection<RemoteProcess> processes, @Nullable Map<String, String> serviceArguments)
+  protected ProcessOutcome disruptProcess(RemoteProcess process, Map<String, String> serviceArguments)
     throws Exception {
-    for (RemoteProcess process : processes) {
-      if (process.isRunning()) {
-        LOGGER.info("Attempting to {} {} on {}", this.getName(), process.getName(), process.getAddress());
-        this.action(process);
-
-        if (process.isRunning()) {
-          LOGGER.error("{} on {} is still running!", process.getName(), process.getAddress());
-        } else {
-          LOGGER.info("{} on {} is no longer running", process.getName(), process.getAddress());
-        }
-      } else {
+    if (legacyAction) {
+      return disruptWithAction(process);
+    }
+    ActionScript.Result result = new ActionScript(getActionCommand(process), false, true,
+                                                  getVerifyTimeoutSeconds(serviceArguments)).run(process);
+
+    switch (result.getOutcome()) {
+      case SKIPPED:
         LOGGER.info("{} on {} is not running, skipping {} attempt", process.getName(), process.getAddress(),
                     this.getName());
+        break;
+      case SUCCEEDED:
+        LOGGER.info("{} on {} is no longer running after {}", process.getName(), process.getAddress(),
+                    this.getName());
+        break;
+      default:
+        LOGGER.error("{} on {} is still running after {} exited with {}: {}", process.getName(),
+                     process.getAddress(), this.getName(), result.getActionExitCode(), result.getErrorOutput());
+    }
+    return result.getOutcome();
+  }
+
+  /**
+   * Halts the process with {@link #action(RemoteProcess)}, checking whether it runs before and after with separate
+   * commands
+   */
+  private ProcessOutcome disruptWithAction(RemoteProcess process) throws Exception {
+    if (process.isRunning()) {
+      LOGGER.info("Attempting to {} {} on {}", this.getName(), process.getName(), process.getAddress());
+      this.action(process);
+
+      if (process.isRunning()) {
+        LOGGER.error("{} on {} is still running!", process.getName(), process.getAddress());
+        return ProcessOutcome.FAILED;
+      }
+      LOGGER.info("{} on {} is no longer running", process.getName(), process.getAddress());
+      return ProcessOutcome.SUCCEEDED;
+    }
+    LOGGER.info("{} on {} is not running, skipping {} attempt", process.getName(), process.getAddress(),
+                this.getName());
+    return ProcessOutcome.SKIPPED;
+  }
+
+  /**
+   * Returns whether the class of this disruption or one of its superclasses below this class declares the method
+   */
+  private boolean isOverridden(String method) {
+    for (Class<?> cls = getClass(); cls != AbstractHaltingDisruption.class; cls = cls.getSuperclass()) {
+      try {
+        cls.getDeclaredMethod(method, RemoteProcess.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // Look in the superclass
       }
     }
+    return false;
   }
 
-  protected abstract void action(RemoteProcess process) throws Exception;
+  /**
+   * Returns the command that halts the given process. Subclasses that only define {@link #action(RemoteProcess)} do
+   * not override this.
+   */
+  protected String getActionCommand(RemoteProcess process) {
+    throw new UnsupportedOperationException(getClass().getName() + " halts processes with action(RemoteProcess)");
+  }
+
+  /**
+   * Halts the given process by running its action command. Only called for subclasses that override this instead of
+   * {@link #getActionCommand(RemoteProcess)}.
+   *
+   * @deprecated implement {@link #getActionCommand(RemoteProcess)} instead, so that the process is checked, halted
+   * and verified with a single remote command
+   */
+  @Deprecated
+  protected void action(RemoteProcess process) throws Exception {
+    process.execAndGetReturnCode(getActionCommand(process));
+  }
 }
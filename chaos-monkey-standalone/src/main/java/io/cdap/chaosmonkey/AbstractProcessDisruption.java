@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.cdap.chaosmonkey.common.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+
+/**
+ * A disruption that acts on each process independently. Processes are disrupted concurrently on the
+ * {@link FanOutExecutor} set through {@link #setExecutor(FanOutExecutor)}, with at most the number of processes given
+ * by the parallelism service argument in flight. Without an executor, processes are disrupted one at a time.
+ */
+public abstract class AbstractProcessDisruption implements Disruption {
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractProcessDisruption.class);
+
+  private volatile FanOutExecutor executor;
+
+  /**
+   * Sets the executor used to disrupt processes concurrently.
+   */
+  public void setExecutor(@Nullable FanOutExecutor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void disrupt(Collection<RemoteProcess> processes, @Nullable Map<String, String> serviceArguments)
+    throws Exception {
+    disruptAll(processes, serviceArguments);
+  }
+
+  /**
+   * Perform the disruption on the given processes and collect the outcome on each node
+   *
+   * @param processes Collection of processes to disrupt
+   * @param serviceArguments Configuration for the disruption
+   * @return Map from the address of each process to the outcome of the disruption on it
+   * @throws InterruptedException if interrupted while waiting for the processes to be disrupted
+   */
+  public Map<String, ProcessOutcome> disruptAll(Collection<RemoteProcess> processes,
+                                                @Nullable Map<String, String> serviceArguments)
+    throws InterruptedException {
+    Map<String, ProcessOutcome> outcomes = new LinkedHashMap<>();
+    FanOutExecutor executor = this.executor;
+    final Map<String, String> arguments = serviceArguments == null ?
+      Collections.<String, String>emptyMap() : serviceArguments;
+    int parallelism = getParallelism(arguments);
+
+    if (executor == null || parallelism == 1) {
+      for (RemoteProcess process : processes) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedException();
+        }
+        outcomes.put(process.getAddress(), disruptSafely(process, arguments));
+      }
+    } else {
+      final Semaphore inFlight = new Semaphore(parallelism);
+      List<RemoteProcess> submitted = new ArrayList<>();
+      List<ListenableFuture<ProcessOutcome>> futures = new ArrayList<>();
+      try {
+        for (final RemoteProcess process : processes) {
+          inFlight.acquire();
+          ListenableFuture<ProcessOutcome> future = executor.submit(process.getAddress(),
+                                                                    new Callable<ProcessOutcome>() {
+            @Override
+            public ProcessOutcome call() throws Exception {
+              return disruptSafely(process, arguments);
+            }
+          });
+          future.addListener(new Runnable() {
+            @Override
+            public void run() {
+              inFlight.release();
+            }
+          }, MoreExecutors.sameThreadExecutor());
+          submitted.add(process);
+          futures.add(future);
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          outcomes.put(submitted.get(i).getAddress(), getOutcome(futures.get(i)));
+        }
+      } catch (InterruptedException e) {
+        for (ListenableFuture<ProcessOutcome> future : futures) {
+          future.cancel(true);
+        }
+        throw e;
+      }
+    }
+
+    logSummary(processes, outcomes);
+    return outcomes;
+  }
+
+  /**
+   * Perform the disruption on a single process
+   *
+   * @param process The process to disrupt
+   * @param serviceArguments Configuration for the disruption
+   * @return The outcome of the disruption on the process
+   */
+  protected abstract ProcessOutcome disruptProcess(RemoteProcess process, Map<String, String> serviceArguments)
+    throws Exception;
+
+  /**
+   * Returns the maximum number of seconds to wait for a process to reach the intended state after the disruption
+   */
+  protected int getVerifyTimeoutSeconds(Map<String, String> serviceArguments) {
+    String verifyTimeout = serviceArguments.get(Constants.Disruption.VERIFY_TIMEOUT_SECONDS);
+    return verifyTimeout == null ? Constants.Disruption.DEFAULT_VERIFY_TIMEOUT_SECONDS :
+      Integer.parseInt(verifyTimeout);
+  }
+
+  private ProcessOutcome disruptSafely(RemoteProcess process, Map<String, String> serviceArguments) {
+    try {
+      return disruptProcess(process, serviceArguments);
+    } catch (Exception e) {
+      LOG.error("Unable to {} {} on {}", getName(), process.getName(), process.getAddress(), e);
+      return ProcessOutcome.FAILED;
+    }
+  }
+
+  private ProcessOutcome getOutcome(ListenableFuture<ProcessOutcome> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      return ProcessOutcome.FAILED;
+    }
+  }
+
+  private int getParallelism(Map<String, String> serviceArguments) {
+    if (serviceArguments.get(Constants.Disruption.PARALLELISM) == null) {
+      return Integer.MAX_VALUE;
+    }
+    int parallelism = Integer.parseInt(serviceArguments.get(Constants.Disruption.PARALLELISM));
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    return parallelism;
+  }
+
+  private void logSummary(Collection<RemoteProcess> processes, Map<String, ProcessOutcome> outcomes) {
+    if (processes.isEmpty()) {
+      return;
+    }
+    Map<ProcessOutcome, Integer> counts = new EnumMap<>(ProcessOutcome.class);
+    for (ProcessOutcome outcome : ProcessOutcome.values()) {
+      counts.put(outcome, 0);
+    }
+    for (ProcessOutcome outcome : outcomes.values()) {
+      counts.put(outcome, counts.get(outcome) + 1);
+    }
+    LOG.info("Finished {} of {}: {}", getName(), processes.iterator().next().getName(), counts);
+  }
+}
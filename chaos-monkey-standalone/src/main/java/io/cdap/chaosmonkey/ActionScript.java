@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.jcraft.jsch.JSchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A remote script that checks the state of a process, acts on it and waits for it to reach the intended state, all
+ * in a single remote command. The exit codes of the first status check, the action and the last status check are
+ * echoed on tagged lines of the output.
+ */
+public class ActionScript {
+  private static final Logger LOG = LoggerFactory.getLogger(ActionScript.class);
+  private static final String ACTION_TAG = "chaos-monkey-action";
+
+  static final String PRE = "pre";
+  static final String ACT = "act";
+  static final String POST = "post";
+
+  private final String actionCommand;
+  private final boolean targetRunning;
+  private final boolean skipIfInTarget;
+  private final int verifyTimeoutSeconds;
+
+  /**
+   * @param actionCommand The command acting on the process
+   * @param targetRunning Whether the process is intended to be running after the action
+   * @param skipIfInTarget Whether to skip the action if the process is already in the intended state
+   * @param verifyTimeoutSeconds Maximum number of seconds to wait for the process to reach the intended state
+   */
+  ActionScript(String actionCommand, boolean targetRunning, boolean skipIfInTarget, int verifyTimeoutSeconds) {
+    if (verifyTimeoutSeconds < 0) {
+      throw new IllegalArgumentException("verifyTimeoutSeconds must not be negative: " + verifyTimeoutSeconds);
+    }
+    this.actionCommand = actionCommand;
+    this.targetRunning = targetRunning;
+    this.skipIfInTarget = skipIfInTarget;
+    this.verifyTimeoutSeconds = verifyTimeoutSeconds;
+  }
+
+  /**
+   * Runs the script against the given process.
+   *
+   * @param process The process to act on
+   * @return The states and exit code reported by the script
+   * @throws JSchException if the script could not be run
+   */
+  public Result run(RemoteProcess process) throws JSchException {
+    ShellOutput output = process.execAndGetOutput(build(process.getStatusCommand()));
+    Map<String, Integer> exitCodes = parseExitCodes(output.standardOutput);
+    Integer pre = exitCodes.get(PRE);
+    Integer act = exitCodes.get(ACT);
+    Integer post = exitCodes.get(POST);
+
+    ProcessOutcome outcome;
+    if (pre == null) {
+      LOG.warn("No state reported for {} on {}: {}", process.getName(), process.getAddress(), output.errorOutput);
+      outcome = ProcessOutcome.FAILED;
+    } else if (act == null) {
+      outcome = skipIfInTarget && (pre == 0) == targetRunning ? ProcessOutcome.SKIPPED : ProcessOutcome.FAILED;
+    } else {
+      outcome = post != null && (post == 0) == targetRunning ? ProcessOutcome.SUCCEEDED : ProcessOutcome.FAILED;
+    }
+    return new Result(outcome, pre == null ? null : pre == 0, act, post == null ? null : post == 0,
+                      output.errorOutput);
+  }
+
+  /**
+   * Builds the script for a process with the given status command.
+   */
+  String build(String statusCommand) {
+    String status = String.format("(%s) </dev/null >/dev/null 2>&1", statusCommand);
+    String inTarget = targetRunning ? "-eq 0" : "-ne 0";
+
+    StringBuilder script = new StringBuilder();
+    script.append(String.format("%s; pre=$?; echo \"%s %s $pre\"; ", status, ACTION_TAG, PRE));
+    if (skipIfInTarget) {
+      script.append(String.format("if [ $pre %s ]; then exit 0; fi; ", inTarget));
+    }
+    script.append(String.format("(%s) </dev/null >/dev/null; echo \"%s %s $?\"; ", actionCommand, ACTION_TAG, ACT));
+    script.append(String.format("i=0; while :; do %s; post=$?; if [ $post %s ] || [ $i -ge %d ]; then break; fi; " +
+                                  "sleep 1; i=$((i + 1)); done; ", status, inTarget, verifyTimeoutSeconds));
+    script.append(String.format("echo \"%s %s $post\"", ACTION_TAG, POST));
+    return script.toString();
+  }
+
+  /**
+   * Parses the output of a script built by {@link #build(String)}.
+   *
+   * @return Map from the step of the script to its exit code
+   */
+  static Map<String, Integer> parseExitCodes(String output) {
+    Map<String, Integer> exitCodes = new HashMap<>();
+    for (String line : output.split("\n")) {
+      String[] parts = line.trim().split(" ");
+      if (parts.length != 3 || !parts[0].equals(ACTION_TAG)) {
+        continue;
+      }
+      try {
+        exitCodes.put(parts[1], Integer.parseInt(parts[2]));
+      } catch (NumberFormatException e) {
+        LOG.debug("Ignoring malformed action line: {}", line);
+      }
+    }
+    return exitCodes;
+  }
+
+  /**
+   * The states and exit code reported by an {@link ActionScript}.
+   */
+  public static final class Result {
+    private final ProcessOutcome outcome;
+    private final Boolean wasRunning;
+    private final Integer actionExitCode;
+    private final Boolean running;
+    private final String errorOutput;
+
+    Result(ProcessOutcome outcome, @Nullable Boolean wasRunning, @Nullable Integer actionExitCode,
+           @Nullable Boolean running, String errorOutput) {
+      this.outcome = outcome;
+      this.wasRunning = wasRunning;
+      this.actionExitCode = actionExitCode;
+      this.running = running;
+      this.errorOutput = errorOutput;
+    }
+
+    public ProcessOutcome getOutcome() {
+      return outcome;
+    }
+
+    /**
+     * Returns whether the process was running before the action, or {@code null} if not reported
+     */
+    @Nullable
+    public Boolean wasRunning() {
+      return wasRunning;
+    }
+
+    /**
+     * Returns the exit code of the action, or {@code null} if the action was not run
+     */
+    @Nullable
+    public Integer getActionExitCode() {
+      return actionExitCode;
+    }
+
+    /**
+     * Returns whether the process was running after the action, or {@code null} if the action was not run
+     */
+    @Nullable
+    public Boolean isRunning() {
+      return running;
+    }
+
+    public String getErrorOutput() {
+      return errorOutput;
+    }
+  }
+}
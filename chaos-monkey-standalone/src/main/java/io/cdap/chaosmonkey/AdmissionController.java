@@ -0,0 +1,395 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the number of processes taken down by disruptions within a budget: in total, on each host, and for each
+ * service. Every disruption except rolling restart, which limits itself through maxUnavailable, needs a {@link Lease}
+ * on its processes before it runs. Processes count as down while a disruption runs on them, and processes stopped,
+ * killed or terminated stay down until they are started or restarted, or the status snapshot sees them running.
+ */
+public class AdmissionController {
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+  private static final ImmutableSet<String> HALTING_ACTIONS = ImmutableSet.of(Constants.RemoteProcess.STOP,
+                                                                              Constants.RemoteProcess.KILL,
+                                                                              Constants.RemoteProcess.TERMINATE);
+  private static final ImmutableSet<String> STARTING_ACTIONS = ImmutableSet.of(Constants.RemoteProcess.START,
+                                                                               Constants.RemoteProcess.RESTART);
+  private static final ImmutableSet<String> EXEMPT_ACTIONS = ImmutableSet.of(Constants.RemoteProcess.START,
+                                                                             Constants.RemoteProcess.ROLLING_RESTART);
+
+  private final int maxDown;
+  private final int maxDownPerHost;
+  private Map<String, Integer> maxDownPerService;
+  private final long queueTimeoutMillis;
+  // Number of running disruptions holding each process, by service and address
+  private final Table<String, String, Integer> disrupting;
+  // Processes left down by a stop, kill or terminate, by service and address
+  private final Table<String, String, Boolean> halted;
+  private long admitted;
+  private long queued;
+  private long rejected;
+
+  /**
+   * @param maxDown Maximum number of processes down at a time
+   * @param maxDownPerHost Maximum number of processes down at a time on the same host
+   * @param maxDownPerService Maximum number of processes down at a time for each service that has a limit
+   * @param queueTimeoutMillis Time a disruption over the budget waits for the budget to free up before being
+   *                           rejected, 0 to reject it right away
+   */
+  public AdmissionController(int maxDown, int maxDownPerHost, Map<String, Integer> maxDownPerService,
+                             long queueTimeoutMillis) {
+    this.maxDown = maxDown;
+    this.maxDownPerHost = maxDownPerHost;
+    this.maxDownPerService = ImmutableMap.copyOf(maxDownPerService);
+    this.queueTimeoutMillis = queueTimeoutMillis;
+    this.disrupting = HashBasedTable.create();
+    this.halted = HashBasedTable.create();
+  }
+
+  /**
+   * Creates a controller that admits every disruption
+   */
+  public static AdmissionController unlimited() {
+    return new AdmissionController(Integer.MAX_VALUE, Integer.MAX_VALUE, ImmutableMap.<String, Integer>of(), 0);
+  }
+
+  /**
+   * Creates a controller with the budget given in the configuration
+   *
+   * @param conf Configuration of the budget
+   * @param processTable Table from address and service name to the process, used to turn the maximum fraction of a
+   *                     service into a number of processes
+   */
+  public static AdmissionController create(Configuration conf, Table<String, String, RemoteProcess> processTable) {
+    return new AdmissionController(conf.getInt(Constants.Admission.MAX_DOWN, Integer.MAX_VALUE),
+                                   conf.getInt(Constants.Admission.MAX_DOWN_PER_HOST, Integer.MAX_VALUE),
+                                   getServiceLimits(conf, processTable),
+                                   TimeUnit.SECONDS.toMillis(conf.getInt(
+                                     Constants.Admission.QUEUE_TIMEOUT_SECONDS,
+                                     Constants.Admission.DEFAULT_QUEUE_TIMEOUT_SECONDS)));
+  }
+
+  /**
+   * Returns the maximum number of processes down at a time for each service that has a limit in the given
+   * configuration
+   *
+   * @param conf Configuration of the budget
+   * @param processTable Table from address and service name to the process, used to turn the maximum fraction of a
+   *                     service into a number of processes
+   */
+  public static Map<String, Integer> getServiceLimits(Configuration conf,
+                                                     Table<String, String, RemoteProcess> processTable) {
+    Map<String, Integer> maxDownPerService = new HashMap<>();
+    for (String service : processTable.columnKeySet()) {
+      int limit = conf.getInt(service + "." + Constants.Admission.SERVICE_MAX_DOWN, Integer.MAX_VALUE);
+      String fraction = conf.get(service + "." + Constants.Admission.SERVICE_MAX_DOWN_FRACTION);
+      if (fraction != null) {
+        limit = Math.min(limit, (int) Math.floor(Double.parseDouble(fraction) * processTable.column(service).size()));
+      }
+      if (limit != Integer.MAX_VALUE) {
+        maxDownPerService.put(service, limit);
+      }
+    }
+    return maxDownPerService;
+  }
+
+  /**
+   * Replaces the maximum number of processes down at a time for each service, for instance when the number of
+   * processes of a service with a maximum fraction changed
+   */
+  public synchronized void setServiceLimits(Map<String, Integer> maxDownPerService) {
+    this.maxDownPerService = ImmutableMap.copyOf(maxDownPerService);
+    notifyAll();
+  }
+
+  /**
+   * Stops counting processes that left the cluster as down
+   *
+   * @param service Name of the service
+   * @param addresses Addresses of the hosts the service was removed from
+   */
+  public synchronized void removeProcesses(String service, Collection<String> addresses) {
+    boolean changed = false;
+    for (String address : addresses) {
+      if (halted.remove(service, address) != null) {
+        changed = true;
+      }
+    }
+    if (changed) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Returns whether the given disruption leaves the processes it acts on down
+   */
+  static boolean isHalting(String action) {
+    return HALTING_ACTIONS.contains(action);
+  }
+
+  /**
+   * Returns whether a disruption over the budget waits for the budget to free up instead of being rejected right away
+   */
+  public boolean isQueueing() {
+    return queueTimeoutMillis > 0;
+  }
+
+  /**
+   * Admits a disruption if it fits in the budget
+   *
+   * @param service Name of the service being disrupted
+   * @param action Name of the disruption
+   * @param processes Processes affected by the disruption
+   * @return {@link Lease} to release once the disruption is done
+   * @throws IllegalStateException if the disruption does not fit in the budget
+   */
+  public synchronized Lease tryAcquire(String service, String action, Collection<RemoteProcess> processes) {
+    String reason = checkBudget(service, action, processes);
+    if (reason != null) {
+      rejected++;
+      throw new IllegalStateException(String.format("Rejected %s of %s: %s", action, service, reason));
+    }
+    return admit(service, action, processes);
+  }
+
+  /**
+   * Admits a disruption if it fits in the budget. A disruption that does not fit is not counted as rejected, since it
+   * is expected to wait for the budget through {@link #acquire(String, String, Collection)}.
+   *
+   * @return {@link Lease} to release once the disruption is done, or {@code null} if the disruption does not fit
+   */
+  @Nullable
+  public synchronized Lease tryAcquireOrNull(String service, String action, Collection<RemoteProcess> processes) {
+    return checkBudget(service, action, processes) == null ? admit(service, action, processes) : null;
+  }
+
+  /**
+   * Admits a disruption, waiting up to the queue timeout for it to fit in the budget
+   *
+   * @return {@link Lease} to release once the disruption is done
+   * @throws IllegalStateException if the disruption still does not fit in the budget after the queue timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized Lease acquire(String service, String action,
+                                    Collection<RemoteProcess> processes) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+    String reason = checkBudget(service, action, processes);
+    if (reason != null) {
+      queued++;
+      LOG.info("Queueing {} of {}: {}", action, service, reason);
+    }
+    while (reason != null) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        rejected++;
+        throw new IllegalStateException(String.format("Rejected %s of %s after waiting %d seconds: %s", action,
+                                                      service, TimeUnit.MILLISECONDS.toSeconds(queueTimeoutMillis),
+                                                      reason));
+      }
+      wait(remaining);
+      reason = checkBudget(service, action, processes);
+    }
+    return admit(service, action, processes);
+  }
+
+  /**
+   * Marks the processes reported running by the given statuses as no longer down
+   */
+  public synchronized void reconcile(Collection<NodeStatus> nodeStatuses) {
+    boolean changed = false;
+    for (NodeStatus nodeStatus : nodeStatuses) {
+      for (Map.Entry<String, String> entry : nodeStatus.getServiceStatusMap().entrySet()) {
+        if (HostStatusProbe.RUNNING.equals(entry.getValue()) &&
+          halted.remove(entry.getKey(), nodeStatus.getHostname()) != null) {
+          changed = true;
+        }
+      }
+    }
+    if (changed) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Returns the processes currently down and the budget, in total, for each host and for each service
+   */
+  public synchronized Map<String, Object> getUsage() {
+    Table<String, String, Boolean> down = getDown();
+    Map<String, Object> usage = new LinkedHashMap<>();
+    usage.put("down", down.size());
+    usage.put("maxDown", toLimit(maxDown));
+    usage.put("maxDownPerHost", toLimit(maxDownPerHost));
+    usage.put("admitted", admitted);
+    usage.put("queued", queued);
+    usage.put("rejected", rejected);
+
+    Map<String, Object> services = new TreeMap<>();
+    for (Map.Entry<String, Map<String, Boolean>> entry : down.rowMap().entrySet()) {
+      services.put(entry.getKey(), ImmutableMap.of("down", entry.getValue().size()));
+    }
+    for (Map.Entry<String, Integer> entry : maxDownPerService.entrySet()) {
+      services.put(entry.getKey(), ImmutableMap.of("down", down.row(entry.getKey()).size(),
+                                                   "maxDown", entry.getValue()));
+    }
+    usage.put("services", services);
+
+    Map<String, Integer> hosts = new TreeMap<>();
+    for (Map.Entry<String, Map<String, Boolean>> entry : down.columnMap().entrySet()) {
+      hosts.put(entry.getKey(), entry.getValue().size());
+    }
+    usage.put("hosts", hosts);
+    return usage;
+  }
+
+  @Nullable
+  private String checkBudget(String service, String action, Collection<RemoteProcess> processes) {
+    if (EXEMPT_ACTIONS.contains(action)) {
+      return null;
+    }
+    Table<String, String, Boolean> down = getDown();
+    for (RemoteProcess process : processes) {
+      down.put(service, process.getAddress(), true);
+    }
+    if (down.size() > maxDown) {
+      return String.format("%d processes would be down, the limit is %d", down.size(), maxDown);
+    }
+    Integer serviceLimit = maxDownPerService.get(service);
+    if (serviceLimit != null && down.row(service).size() > serviceLimit) {
+      return String.format("%d processes of %s would be down, the limit is %d", down.row(service).size(), service,
+                           serviceLimit);
+    }
+    for (RemoteProcess process : processes) {
+      int onHost = down.column(process.getAddress()).size();
+      if (onHost > maxDownPerHost) {
+        return String.format("%d processes on %s would be down, the limit is %d", onHost, process.getAddress(),
+                             maxDownPerHost);
+      }
+    }
+    return null;
+  }
+
+  private Lease admit(String service, String action, Collection<RemoteProcess> processes) {
+    admitted++;
+    List<String> addresses = new ArrayList<>();
+    if (!EXEMPT_ACTIONS.contains(action)) {
+      for (RemoteProcess process : processes) {
+        Integer holders = disrupting.get(service, process.getAddress());
+        disrupting.put(service, process.getAddress(), holders == null ? 1 : holders + 1);
+        addresses.add(process.getAddress());
+      }
+    }
+    return new Lease(service, action, processes, addresses);
+  }
+
+  private synchronized void release(Lease lease, Map<String, ProcessOutcome> outcomes) {
+    for (String address : lease.heldAddresses) {
+      Integer holders = disrupting.get(lease.service, address);
+      if (holders == null || holders <= 1) {
+        disrupting.remove(lease.service, address);
+      } else {
+        disrupting.put(lease.service, address, holders - 1);
+      }
+    }
+    for (RemoteProcess process : lease.processes) {
+      ProcessOutcome outcome = outcomes.get(process.getAddress());
+      if (HALTING_ACTIONS.contains(lease.action) && outcome == ProcessOutcome.SUCCEEDED) {
+        halted.put(lease.service, process.getAddress(), true);
+      } else if (STARTING_ACTIONS.contains(lease.action) && outcome != null && outcome != ProcessOutcome.FAILED) {
+        halted.remove(lease.service, process.getAddress());
+      }
+    }
+    notifyAll();
+  }
+
+  private Table<String, String, Boolean> getDown() {
+    Table<String, String, Boolean> down = HashBasedTable.create(halted);
+    for (Table.Cell<String, String, Integer> cell : disrupting.cellSet()) {
+      down.put(cell.getRowKey(), cell.getColumnKey(), true);
+    }
+    return down;
+  }
+
+  @Nullable
+  private static Integer toLimit(int limit) {
+    return limit == Integer.MAX_VALUE ? null : limit;
+  }
+
+  /**
+   * Admission of a disruption, released once the disruption is done.
+   */
+  public final class Lease {
+    private final String service;
+    private final String action;
+    private final Collection<RemoteProcess> processes;
+    private final List<String> heldAddresses;
+    private boolean released;
+
+    private Lease(String service, String action, Collection<RemoteProcess> processes, List<String> heldAddresses) {
+      this.service = service;
+      this.action = action;
+      this.processes = processes;
+      this.heldAddresses = heldAddresses;
+    }
+
+    /**
+     * Releases the processes held by the disruption without changing which processes are down. Only used when the
+     * disruption was cancelled before it ran, a disruption that ran is released with its outcomes.
+     */
+    public void release() {
+      release(Collections.<String, ProcessOutcome>emptyMap());
+    }
+
+    /**
+     * Releases the processes held by the disruption. Processes the disruption stopped, killed or terminated stay
+     * down, and processes it started or restarted are no longer down. Processes it failed on or has no outcome for
+     * are left as they were, until the status snapshot sees them.
+     *
+     * @param outcomes Map from the address of each process to the outcome of the disruption on it
+     */
+    public void release(Map<String, ProcessOutcome> outcomes) {
+      synchronized (AdmissionController.this) {
+        if (released) {
+          return;
+        }
+        released = true;
+        AdmissionController.this.release(this, outcomes);
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+/**
+ * Picks one of several outcomes with given probabilities in constant time, using Vose's alias method. If the
+ * probabilities add up to less than 1, the remainder is the probability of picking no outcome.
+ *
+ * @param <T> Type of the outcomes
+ */
+public final class AliasSampler<T> {
+  private final List<T> outcomes;
+  private final double[] probability;
+  private final int[] alias;
+
+  /**
+   * @param probabilities Map from each outcome to its probability, adding up to at most 1
+   * @throws IllegalArgumentException if a probability is negative or the probabilities add up to more than 1
+   */
+  public AliasSampler(Map<T, Double> probabilities) {
+    double total = 0;
+    outcomes = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+    for (Map.Entry<T, Double> entry : probabilities.entrySet()) {
+      if (entry.getValue() < 0) {
+        throw new IllegalArgumentException("Probability of " + entry.getKey() + " is negative: " + entry.getValue());
+      }
+      total += entry.getValue();
+      outcomes.add(entry.getKey());
+      weights.add(entry.getValue());
+    }
+    // Allow for rounding errors of probabilities that add up to 1
+    if (total > 1 + 1e-9) {
+      throw new IllegalArgumentException("Probabilities add up to more than 1: " + total);
+    }
+    // The last column stands for picking no outcome
+    outcomes.add(null);
+    weights.add(Math.max(0, 1 - total));
+
+    int n = weights.size();
+    probability = new double[n];
+    alias = new int[n];
+    double[] scaled = new double[n];
+    Deque<Integer> small = new ArrayDeque<>();
+    Deque<Integer> large = new ArrayDeque<>();
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights.get(i) * n;
+      (scaled[i] < 1 ? small : large).add(i);
+    }
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int less = small.poll();
+      int more = large.poll();
+      probability[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      (scaled[more] < 1 ? small : large).add(more);
+    }
+    // Whatever remains is 1 up to rounding errors
+    for (int i : large) {
+      probability[i] = 1;
+    }
+    for (int i : small) {
+      probability[i] = 1;
+    }
+  }
+
+  /**
+   * Picks an outcome
+   *
+   * @param random Source of randomness
+   * @return The picked outcome, or {@code null} if no outcome was picked
+   */
+  @Nullable
+  public T sample(Random random) {
+    int column = random.nextInt(probability.length);
+    return outcomes.get(random.nextDouble() < probability[column] ? column : alias[column]);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the iterations of a {@link ScheduledDisruption} happen. Implementations are only called from the
+ * timer thread of the {@link DisruptionScheduler}.
+ */
+public abstract class ArrivalProcess {
+
+  /**
+   * Returns the time of the iteration following an iteration at the given time
+   *
+   * @param previousMillis Time of the previous iteration, or the start of the schedule for the first iteration
+   * @return Time of the next iteration in milliseconds, after the given time
+   */
+  public abstract long next(long previousMillis);
+
+  /**
+   * Creates arrivals at a fixed rate, the first one at the start of the schedule
+   */
+  public static ArrivalProcess fixedRate(long intervalMillis) {
+    return new FixedRate(intervalMillis);
+  }
+
+  /**
+   * Creates arrivals of a Poisson process, with exponentially distributed times between arrivals
+   *
+   * @param meanMillis Mean time between arrivals
+   * @param random Source of randomness
+   */
+  public static ArrivalProcess poisson(long meanMillis, Random random) {
+    return new Poisson(meanMillis, random);
+  }
+
+  /**
+   * Creates arrivals at the times matching a cron expression
+   */
+  public static ArrivalProcess cron(CronExpression expression) {
+    return new Cron(expression);
+  }
+
+  /**
+   * Creates bursts of arrivals: windows of the given length in which arrivals follow the given process, separated by
+   * windows without arrivals. The first window with arrivals opens at the start of the schedule.
+   *
+   * @param arrivals Arrivals within the windows
+   * @param onMillis Length of the windows with arrivals
+   * @param offMillis Length of the windows without arrivals
+   */
+  public static ArrivalProcess onOff(ArrivalProcess arrivals, long onMillis, long offMillis) {
+    return new OnOff(arrivals, onMillis, offMillis);
+  }
+
+  private static String formatSeconds(long millis) {
+    return TimeUnit.MILLISECONDS.toSeconds(millis) + "s";
+  }
+
+  /**
+   * Arrivals at a fixed rate.
+   */
+  private static final class FixedRate extends ArrivalProcess {
+    private final long intervalMillis;
+    private boolean started;
+
+    private FixedRate(long intervalMillis) {
+      if (intervalMillis <= 0) {
+        throw new IllegalArgumentException("Interval must be positive: " + intervalMillis);
+      }
+      this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public long next(long previousMillis) {
+      if (!started) {
+        started = true;
+        return previousMillis;
+      }
+      return previousMillis + intervalMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "fixed every " + formatSeconds(intervalMillis);
+    }
+  }
+
+  /**
+   * Arrivals with exponentially distributed times between them.
+   */
+  private static final class Poisson extends ArrivalProcess {
+    private final long meanMillis;
+    private final Random random;
+
+    private Poisson(long meanMillis, Random random) {
+      if (meanMillis <= 0) {
+        throw new IllegalArgumentException("Mean interval must be positive: " + meanMillis);
+      }
+      this.meanMillis = meanMillis;
+      this.random = random;
+    }
+
+    @Override
+    public long next(long previousMillis) {
+      return previousMillis + (long) (-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+
+    @Override
+    public String toString() {
+      return "poisson with mean " + formatSeconds(meanMillis);
+    }
+  }
+
+  /**
+   * Arrivals at the times matching a cron expression.
+   */
+  private static final class Cron extends ArrivalProcess {
+    private final CronExpression expression;
+
+    private Cron(CronExpression expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public long next(long previousMillis) {
+      return expression.next(previousMillis);
+    }
+
+    @Override
+    public String toString() {
+      return "cron " + expression;
+    }
+  }
+
+  /**
+   * Arrivals that only happen in periodic windows.
+   */
+  private static final class OnOff extends ArrivalProcess {
+    private final ArrivalProcess arrivals;
+    private final long onMillis;
+    private final long periodMillis;
+    private long startMillis = -1;
+
+    private OnOff(ArrivalProcess arrivals, long onMillis, long offMillis) {
+      if (onMillis <= 0 || offMillis < 0) {
+        throw new IllegalArgumentException(String.format("Invalid on and off durations: %d, %d", onMillis,
+                                                         offMillis));
+      }
+      this.arrivals = arrivals;
+      this.onMillis = onMillis;
+      this.periodMillis = onMillis + offMillis;
+    }
+
+    @Override
+    public long next(long previousMillis) {
+      if (startMillis < 0) {
+        startMillis = previousMillis;
+      }
+      long next = arrivals.next(previousMillis);
+      long offset = (next - startMillis) % periodMillis;
+      if (offset >= onMillis) {
+        // Falls in a window without arrivals, move it to the opening of the next window
+        next += periodMillis - offset;
+      }
+      return next;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s, on for %s every %s", arrivals, formatSeconds(onMillis), formatSeconds(periodMillis));
+    }
+  }
+}
@@ -16,36 +16,61 @@
 
 package io.cdap.chaosmonkey;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Table;
 import com.google.common.util.concurrent.AbstractIdleService;
-import com.jcraft.jsch.JSchException;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.chaosmonkey.common.Constants;
 import io.cdap.chaosmonkey.common.conf.Configuration;
 import io.cdap.chaosmonkey.proto.ActionArguments;
 import io.cdap.chaosmonkey.proto.ActionStatus;
+import io.cdap.chaosmonkey.proto.AsyncClusterDisruptor;
+import io.cdap.chaosmonkey.proto.BatchEntry;
+import io.cdap.chaosmonkey.proto.BatchEntryStatus;
+import io.cdap.chaosmonkey.proto.BatchStatus;
 import io.cdap.chaosmonkey.proto.ClusterDisruptor;
 import io.cdap.chaosmonkey.proto.ClusterInfoCollector;
 import io.cdap.chaosmonkey.proto.ClusterNode;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
 import io.cdap.chaosmonkey.proto.NodeStatus;
 import io.cdap.chaosmonkey.proto.ServiceInfo;
-import io.cdap.chaosmonkey.proto.ServiceStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.annotation.Nullable;
@@ -55,38 +80,86 @@ import javax.ws.rs.NotFoundException;
 /**
  * {@link ChaosMonkeyService} Allows for user to perform disruptions directly
  */
-public class ChaosMonkeyService extends AbstractIdleService implements ClusterDisruptor {
+public class ChaosMonkeyService extends AbstractIdleService implements ClusterDisruptor, AsyncClusterDisruptor {
   private static final Logger LOG = LoggerFactory.getLogger(ChaosMonkeyService.class);
-
-  private DisruptionService disruptionService;
-  private final Table<String, String, RemoteProcess> processTable;
-  private ExecutorService executor;
+  // Number of most recently submitted batches whose status can be looked up by ID
+  private static final int MAX_RETAINED_BATCHES = 1000;
+
+  private volatile DisruptionService disruptionService;
+  // Immutable snapshots of the topology, replaced when the processes of a service change. While startup builds the
+  // services, they are concurrent tables that each service is added to as soon as it is built.
+  private volatile Table<String, String, RemoteProcess> processTable;
+  private volatile Table<String, String, Disruption> disruptionTable;
+  private final Object topologyLock;
+  // Whether the topology tables are updated in place, guarded by topologyLock
+  private boolean building;
+  private final StartupProgress startupProgress;
+  private final Map<String, ProcessSampler> samplers;
+  private volatile LabelIndex labelIndex;
+  // A single instance of each disruption class, shared by every service
+  private final ConcurrentMap<String, Disruption> disruptions;
+  // Services without processes because a pidPath is missing
+  private final Set<String> skippedServices;
+  private volatile FanOutExecutor executor;
   private final Configuration conf;
   private final ClusterInfoCollector clusterInfoCollector;
+  private final SshShellRegistry sshShells;
+  private StatusRefresher statusRefresher;
+  private TopologyRefresher topologyRefresher;
+  private DisruptionScheduler disruptionScheduler;
+  private AdmissionController admissionController;
+  private JournalReplayer journalReplayer;
+  private EventJournal journal;
+  private Random random;
+  private ScheduledExecutorService waitScheduler;
+  private final Map<String, BatchStatus> batches;
 
   public ChaosMonkeyService(Configuration conf, ClusterInfoCollector clusterInfoCollector) throws Exception {
-    this.processTable = HashBasedTable.create();
+    this(conf, clusterInfoCollector, SshShellRegistry.create(conf));
+  }
+
+  /**
+   * @param conf Configuration of the services and disruptions
+   * @param clusterInfoCollector Collector of the nodes of the cluster
+   * @param sshShells Registry handing out the shell of each host
+   */
+  ChaosMonkeyService(Configuration conf, ClusterInfoCollector clusterInfoCollector, SshShellRegistry sshShells) {
+    this.processTable = ImmutableTable.of();
+    this.disruptionTable = ImmutableTable.of();
+    this.topologyLock = new Object();
+    this.startupProgress = new StartupProgress();
+    this.samplers = new ConcurrentHashMap<>();
+    this.labelIndex = LabelIndex.empty();
+    this.disruptions = new ConcurrentHashMap<>();
+    this.skippedServices = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    this.sshShells = sshShells;
+    this.batches = Collections.synchronizedMap(new LinkedHashMap<String, BatchStatus>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BatchStatus> eldest) {
+        return size() > MAX_RETAINED_BATCHES;
+      }
+    });
     this.conf = conf;
     this.clusterInfoCollector = clusterInfoCollector;
+    addListener(new Listener() {
+      @Override
+      public void failed(State from, Throwable failure) {
+        if (from == State.STARTING) {
+          startupProgress.setPhase(StartupProgress.Phase.FAILED);
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
   }
 
-  private SshShell resolveSshShell(Configuration conf, String ipAddress) throws JSchException {
-    String username = conf.get("username", System.getProperty("user.name"));
-    String privateKey = conf.get("privateKey");
-    String keyPassphrase = conf.get("keyPassphrase");
-
-    SshShell sshShell;
-    if (privateKey != null) {
-      if (keyPassphrase != null) {
-        sshShell = new SshShell(username, ipAddress, privateKey, keyPassphrase);
-      } else {
-        sshShell = new SshShell(username, ipAddress, privateKey);
-      }
-    } else {
-      sshShell = new SshShell(username, ipAddress);
+  /**
+   * Throws if disruptions cannot be submitted or looked up yet, because the service is still starting
+   *
+   * @throws IllegalStateException if the service is not running
+   */
+  private void checkRunning() {
+    if (!isRunning()) {
+      throw new IllegalStateException("Chaos Monkey is not running, startup phase: " + startupProgress.getPhase());
     }
-
-    return sshShell;
   }
 
   /**
@@ -95,17 +168,47 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
    * @param service Name of the processes to be disrupted
    * @param disruptionName Disruption to be executed
    * @param actionArguments Configuration for the action to be run
+   * @return The ID of the submitted disruption
    * @throws BadRequestException if nodes, count, or percentage contain invalid values
    * @throws NotFoundException if service or action are not found
-   * @throws IllegalStateException if the same disruption is already running
+   * @throws IllegalStateException if the same disruption is already running, or the service is still starting
    */
-  public void executeAction(String service, String disruptionName, @Nullable ActionArguments actionArguments) {
-    Collection<RemoteProcess> processes = processTable.column(service).values();
+  public String executeAction(String service, String disruptionName, @Nullable ActionArguments actionArguments) {
+    return submitAction(service, disruptionName, actionArguments).getId();
+  }
+
+  /**
+   * Submits an action on configured processes
+   *
+   * @param service Name of the processes to be disrupted
+   * @param disruptionName Disruption to be executed
+   * @param actionArguments Configuration for the action to be run
+   * @return The {@link SubmittedDisruption}
+   * @throws BadRequestException if nodes, count, or percentage contain invalid values
+   * @throws NotFoundException if service or action are not found
+   * @throws IllegalStateException if the same disruption is already running, or the service is still starting
+   */
+  private SubmittedDisruption submitAction(String service, String disruptionName,
+                                           @Nullable ActionArguments actionArguments) {
+    checkRunning();
     if (actionArguments == null) {
       actionArguments = new ActionArguments();
     }
     actionArguments.validate();
+    return submit(service, disruptionName, selectProcesses(service, actionArguments),
+                  getServiceArguments(service, actionArguments), JournalEvent.API);
+  }
 
+  /**
+   * Selects the processes of a service affected by an action
+   *
+   * @throws BadRequestException if nodes contain invalid values, or no process matches the labels
+   * @throws NotFoundException if the service is not found
+   */
+  private Collection<RemoteProcess> selectProcesses(String service, ActionArguments actionArguments) {
+    Table<String, String, RemoteProcess> processTable = this.processTable;
+    ProcessSampler sampler = samplers.get(service);
+    Collection<RemoteProcess> processes = processTable.column(service).values();
     if (actionArguments.getNodes() != null) {
       processes = new HashSet<>();
       List<String> invalidNodes = new ArrayList<>();
@@ -121,22 +224,223 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
         throw new BadRequestException("The following nodes do not exist, or they do not " +
                                     "support " + service + ": " + invalidNodes);
       }
-    } else if (actionArguments.getCount() != null) {
-      List<RemoteProcess> processList = new ArrayList<>(processTable.column(service).values());
-      Collections.shuffle(processList);
-      processes = new HashSet<>(processList.subList(0, Math.min(processList.size(), actionArguments.getCount())));
-    } else if (actionArguments.getPercentage() != null) {
-      List<RemoteProcess> processList = new ArrayList<>(processTable.column(service).values());
-      Collections.shuffle(processList);
-      processes = new HashSet<>(processList.subList(0, (int) Math.round(processList.size() *
-                                                                          (actionArguments.getPercentage() / 100))));
+    } else if (actionArguments.getLabels() != null || actionArguments.getPerLabel() != null) {
+      processes = selectByLabels(service, actionArguments);
+      if (processes.isEmpty() && processTable.containsColumn(service)) {
+        throw new BadRequestException(String.format("No processes of %s match labels %s with perLabel %s", service,
+                                                    actionArguments.getLabels(), actionArguments.getPerLabel()));
+      }
+    } else if (actionArguments.getCount() != null && sampler != null) {
+      processes = sampler.sample(actionArguments.getCount(), getRandom(actionArguments));
+    } else if (actionArguments.getPercentage() != null && sampler != null) {
+      processes = sampler.sample((int) Math.round(sampler.size() * (actionArguments.getPercentage() / 100)),
+                                 getRandom(actionArguments));
     }
 
     if (processes.size() == 0) {
       throw new NotFoundException("Unknown service: " + service);
     }
-    
-    disruptionService.disrupt(disruptionName, service, processes, actionArguments.getServiceArguments());
+    return processes;
+  }
+
+  /**
+   * Selects the processes of a service on nodes with the labels of an action, then picks the count or percentage of
+   * them for each value of the perLabel label, or out of all of them without perLabel. The processes are looked up in
+   * the label index, so the time taken depends on the number of matching processes rather than on the size of the
+   * service.
+   */
+  private List<RemoteProcess> selectByLabels(String service, ActionArguments actionArguments) {
+    LabelIndex labelIndex = this.labelIndex;
+    List<RemoteProcess> candidates = actionArguments.getLabels() == null ?
+      null : labelIndex.select(service, actionArguments.getLabels());
+    Collection<List<RemoteProcess>> groups = actionArguments.getPerLabel() == null ?
+      Collections.singletonList(candidates) : labelIndex.groupBy(service, actionArguments.getPerLabel(),
+                                                                 candidates).values();
+
+    Random random = getRandom(actionArguments);
+    List<RemoteProcess> processes = new ArrayList<>();
+    for (List<RemoteProcess> group : groups) {
+      ProcessSampler sampler = new ProcessSampler(group);
+      if (actionArguments.getCount() != null) {
+        processes.addAll(sampler.sample(actionArguments.getCount(), random));
+      } else if (actionArguments.getPercentage() != null) {
+        processes.addAll(sampler.sample((int) Math.round(sampler.size() * (actionArguments.getPercentage() / 100)),
+                                        random));
+      } else {
+        processes.addAll(group);
+      }
+    }
+    return processes;
+  }
+
+  /**
+   * Returns the source of randomness used to pick the nodes of an action, seeded by the action if it has a seed, or
+   * else by the run
+   */
+  private Random getRandom(ActionArguments actionArguments) {
+    return actionArguments.getSeed() == null ? random : new Random(actionArguments.getSeed());
+  }
+
+  /**
+   * Returns the service arguments of an action, with defaults from the configuration of the service
+   */
+  private Map<String, String> getServiceArguments(String service, ActionArguments actionArguments) {
+    Map<String, String> serviceArguments = new HashMap<>(actionArguments.getServiceArguments());
+    for (String configOption : Constants.Disruption.CONFIG_OPTIONS) {
+      String value = conf.get(service + "." + configOption);
+      if (value != null && !serviceArguments.containsKey(configOption)) {
+        serviceArguments.put(configOption, value);
+      }
+    }
+    return serviceArguments;
+  }
+
+  private SubmittedDisruption submit(String service, String disruptionName, Collection<RemoteProcess> processes,
+                                     Map<String, String> serviceArguments, String source) {
+    SubmittedDisruption submitted = disruptionService.disrupt(disruptionName, service, processes, serviceArguments);
+    List<String> nodes = new ArrayList<>();
+    for (RemoteProcess process : processes) {
+      nodes.add(process.getAddress());
+    }
+    journal.record(JournalEvent.action(source, service, disruptionName, nodes, submitted.getId()));
+    // The statuses are stale once the disruption finished, including when it is cancelled
+    submitted.getFuture().addListener(new Runnable() {
+      @Override
+      public void run() {
+        statusRefresher.invalidate();
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    return submitted;
+  }
+
+  /**
+   * Re-executes an action recorded in a journal on the same nodes. If the same action is still running, it is waited
+   * for first.
+   *
+   * @param event Event recording the action
+   * @return The {@link SubmittedDisruption}
+   */
+  SubmittedDisruption replay(JournalEvent event) throws InterruptedException, ExecutionException {
+    ActionArguments actionArguments = ActionArguments.builder().setNodes(event.getNodes()).build();
+    Collection<RemoteProcess> processes = selectProcesses(event.getService(), actionArguments);
+    Map<String, String> serviceArguments = getServiceArguments(event.getService(), actionArguments);
+    while (true) {
+      SubmittedDisruption running = disruptionService.getRunning(event.getService(), event.getAction());
+      if (running != null) {
+        running.getFuture().get();
+      }
+      try {
+        return submit(event.getService(), event.getAction(), processes, serviceArguments, JournalEvent.REPLAY);
+      } catch (IllegalStateException e) {
+        // Submitted again since it finished, wait for it again
+      }
+    }
+  }
+
+  /**
+   * Executes a batch of actions. Every entry is validated before any is submitted, then all entries are submitted
+   * together.
+   *
+   * @param entries The service, action and configuration of each action to be run
+   * @return {@link BatchStatus} with the ID of the batch and the state of each entry
+   * @throws BadRequestException if any entry is invalid, or the same action on the same service is given twice
+   */
+  public BatchStatus executeBatch(List<BatchEntry> entries) {
+    checkRunning();
+    if (entries == null || entries.isEmpty()) {
+      throw new BadRequestException("A batch needs at least one entry");
+    }
+
+    List<String> errors = new ArrayList<>();
+    List<Collection<RemoteProcess>> processes = new ArrayList<>();
+    List<Map<String, String>> serviceArguments = new ArrayList<>();
+    Set<List<String>> actions = new HashSet<>();
+    for (BatchEntry entry : entries) {
+      String service = entry.getService();
+      String action = entry.getAction();
+      try {
+        if (service == null || action == null) {
+          throw new BadRequestException("service and action must be set");
+        }
+        if (!actions.add(Arrays.asList(service, action))) {
+          throw new BadRequestException("duplicate entry");
+        }
+        if (!disruptionService.getDisruptionMap().contains(service, action)) {
+          throw new NotFoundException(String.format("%s is not a valid action on %s", action, service));
+        }
+        if (disruptionService.isRunning(service, action)) {
+          throw new IllegalStateException("already running");
+        }
+        ActionArguments actionArguments = entry.getActionArguments() == null ?
+          new ActionArguments() : entry.getActionArguments();
+        actionArguments.validate();
+        processes.add(selectProcesses(service, actionArguments));
+        serviceArguments.add(getServiceArguments(service, actionArguments));
+      } catch (RuntimeException e) {
+        errors.add(String.format("%s %s: %s", service, action, e.getMessage()));
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw new BadRequestException("Invalid batch, nothing was submitted: " + errors);
+    }
+
+    List<BatchEntryStatus> entryStatuses = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++) {
+      String service = entries.get(i).getService();
+      String action = entries.get(i).getAction();
+      try {
+        SubmittedDisruption submitted = submit(service, action, processes.get(i), serviceArguments.get(i),
+                                               JournalEvent.API);
+        entryStatuses.add(new BatchEntryStatus(service, action, submitted.getId(), DisruptionResult.RUNNING, null));
+      } catch (IllegalStateException e) {
+        // The same action was submitted by another request since the batch was validated
+        entryStatuses.add(new BatchEntryStatus(service, action, null, BatchEntryStatus.REJECTED, e.getMessage()));
+      }
+    }
+    BatchStatus batchStatus = new BatchStatus(UUID.randomUUID().toString(), entryStatuses);
+    batches.put(batchStatus.getId(), batchStatus);
+    return batchStatus;
+  }
+
+  /**
+   * Get the current state of each entry of a batch
+   *
+   * @param id the ID of the batch
+   * @return {@link BatchStatus}
+   * @throws NotFoundException if the batch is unknown or no longer retained
+   */
+  public BatchStatus getBatchStatus(String id) {
+    BatchStatus batchStatus = batches.get(id);
+    if (batchStatus == null) {
+      throw new NotFoundException("Unknown batch: " + id);
+    }
+    List<BatchEntryStatus> entryStatuses = new ArrayList<>();
+    for (BatchEntryStatus entryStatus : batchStatus.getEntries()) {
+      SubmittedDisruption submitted = entryStatus.getId() == null ?
+        null : disruptionService.getSubmitted(entryStatus.getId());
+      if (submitted == null) {
+        entryStatuses.add(entryStatus);
+      } else {
+        DisruptionResult result = submitted.getResult();
+        entryStatuses.add(new BatchEntryStatus(entryStatus.getService(), entryStatus.getAction(), result.getId(),
+                                               result.getState(), result.getError()));
+      }
+    }
+    return new BatchStatus(id, entryStatuses);
+  }
+
+  /**
+   * Cancels a disruption running or waiting to run
+   *
+   * @param service Name of the disrupted service
+   * @param disruptionName Disruption to be cancelled
+   * @param id Optional, only cancel the disruption if it has this ID
+   * @return {@code true} if a disruption was cancelled, {@code false} if no matching disruption was running
+   * @throws NotFoundException if service or action are not found
+   */
+  public boolean cancelAction(String service, String disruptionName, @Nullable String id) {
+    checkRunning();
+    return disruptionService.cancel(service, disruptionName, id);
   }
 
   /**
@@ -147,7 +451,125 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
    * @return {@link ActionStatus}
    */
   public ActionStatus getActionStatus(String service, String action) {
-    return new ActionStatus(service, action, disruptionService.isRunning(service, action));
+    checkRunning();
+    SubmittedDisruption running = disruptionService.getRunning(service, action);
+    return new ActionStatus(service, action, running != null, running == null ? null : running.getId());
+  }
+
+  /**
+   * Get the running status of a disruption once it is no longer running, or once the given time passes
+   *
+   * @param service the name of the service to be queried
+   * @param action the name of the action to be queried
+   * @param waitMillis maximum number of milliseconds to wait for the action to finish
+   * @return future holding the {@link ActionStatus}
+   */
+  public ListenableFuture<ActionStatus> getActionStatus(final String service, final String action, long waitMillis) {
+    checkRunning();
+    SubmittedDisruption running = disruptionService.getRunning(service, action);
+    List<ListenableFuture<DisruptionResult>> futures = new ArrayList<>();
+    if (running != null) {
+      futures.add(running.getFuture());
+    }
+    return whenAnyDone(futures, waitMillis, new Supplier<ActionStatus>() {
+      @Override
+      public ActionStatus get() {
+        return getActionStatus(service, action);
+      }
+    });
+  }
+
+  /**
+   * Get the result of a submitted disruption
+   *
+   * @param id the ID of the disruption
+   * @return {@link DisruptionResult}
+   * @throws NotFoundException if the disruption is unknown or no longer retained
+   */
+  public DisruptionResult getDisruptionResult(String id) {
+    checkRunning();
+    SubmittedDisruption submitted = disruptionService.getSubmitted(id);
+    if (submitted == null) {
+      throw new NotFoundException("Unknown disruption: " + id);
+    }
+    return submitted.getResult();
+  }
+
+  /**
+   * Get the results of the given disruptions once any of them is done, or once the given time passes. Unknown IDs
+   * are left out of the results.
+   *
+   * @param ids the IDs of the disruptions
+   * @param waitMillis maximum number of milliseconds to wait for a disruption to be done
+   * @return future holding the {@link DisruptionResult} of each known disruption
+   */
+  public ListenableFuture<List<DisruptionResult>> getDisruptionResults(Collection<String> ids, long waitMillis) {
+    checkRunning();
+    final List<SubmittedDisruption> submittedDisruptions = new ArrayList<>();
+    List<ListenableFuture<DisruptionResult>> futures = new ArrayList<>();
+    for (String id : ids) {
+      SubmittedDisruption submitted = disruptionService.getSubmitted(id);
+      if (submitted != null) {
+        submittedDisruptions.add(submitted);
+        futures.add(submitted.getFuture());
+      }
+    }
+    return whenAnyDone(futures, waitMillis, new Supplier<List<DisruptionResult>>() {
+      @Override
+      public List<DisruptionResult> get() {
+        List<DisruptionResult> results = new ArrayList<>();
+        for (SubmittedDisruption submitted : submittedDisruptions) {
+          results.add(submitted.getResult());
+        }
+        return results;
+      }
+    });
+  }
+
+  /**
+   * Returns a future holding the value of the supplier once any of the given futures is done, or once the given time
+   * passes, without holding a thread while waiting.
+   */
+  private <T> ListenableFuture<T> whenAnyDone(List<? extends ListenableFuture<?>> futures, long waitMillis,
+                                              final Supplier<T> supplier) {
+    boolean anyDone = false;
+    for (ListenableFuture<?> future : futures) {
+      anyDone |= future.isDone();
+    }
+    if (futures.isEmpty() || anyDone || waitMillis <= 0) {
+      return Futures.immediateFuture(supplier.get());
+    }
+
+    final SettableFuture<T> result = SettableFuture.create();
+    Runnable complete = new Runnable() {
+      @Override
+      public void run() {
+        if (!result.isDone()) {
+          result.set(supplier.get());
+        }
+      }
+    };
+    for (ListenableFuture<?> future : futures) {
+      future.addListener(complete, MoreExecutors.sameThreadExecutor());
+    }
+    final ScheduledFuture<?> deadline = waitScheduler.schedule(complete, waitMillis, TimeUnit.MILLISECONDS);
+    result.addListener(new Runnable() {
+      @Override
+      public void run() {
+        deadline.cancel(false);
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    return result;
+  }
+
+  /**
+   * Waits for an action on the given service to finish
+   *
+   * @return true if the action is no longer running, false if it was still running after the timeout
+   */
+  private boolean waitForAction(String service, String action, long timeoutMs)
+    throws ExecutionException, InterruptedException {
+    return !getActionStatus(service, action, timeoutMs).get().isRunning();
   }
 
   /**
@@ -164,19 +586,25 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
     if (remoteProcesses.isEmpty()) {
       throw new NotFoundException("Unknown host: " + hostname);
     }
-    List<Status> threads = new ArrayList<>();
-    for (RemoteProcess remoteProcess : processTable.row(hostname).values()) {
-      threads.add(new Status(remoteProcess));
-    }
-    List<Future<ServiceStatus>> results = executor.invokeAll(threads);
-    List<ServiceStatus> statuses = new ArrayList<>();
+    return executor.submit(hostname, new HostStatusProbe(hostname, new ArrayList<>(remoteProcesses))).get();
+  }
 
-    for (Future<ServiceStatus> result : results) {
-      statuses.add(result.get());
+  /**
+   * Get the status of services on a given node, from the latest status snapshot unless a fresh status is requested
+   *
+   * @param hostname hostname of the node to query
+   * @param fresh whether to probe the node instead of reading the snapshot
+   * @return {@link NodeStatus}
+   * @throws NotFoundException if the hostname does not exist or is not configured
+   */
+  public NodeStatus getNodeStatus(String hostname, boolean fresh) throws Exception {
+    if (!fresh && isRunning() && processTable.containsRow(hostname)) {
+      NodeStatus nodeStatus = statusRefresher.get().getNodeStatus(hostname);
+      if (nodeStatus != null) {
+        return nodeStatus;
+      }
     }
-
-    NodeStatus status = new NodeStatus(hostname, statuses);
-    return status;
+    return getNodeStatus(hostname);
   }
 
   /**
@@ -187,91 +615,454 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
    * @throws InterruptedException
    */
   public Collection<NodeStatus> getNodeStatuses() throws ExecutionException, InterruptedException {
-    List<Status> threads = new ArrayList<>();
-    List<NodeStatus> statuses = new ArrayList<>();
-
-    for (RemoteProcess remoteProcess : processTable.values()) {
-      threads.add(new Status(remoteProcess));
+    List<ListenableFuture<NodeStatus>> results = new ArrayList<>();
+    for (Map.Entry<String, Map<String, RemoteProcess>> row : processTable.rowMap().entrySet()) {
+      results.add(executor.submit(row.getKey(),
+                                  new HostStatusProbe(row.getKey(), new ArrayList<>(row.getValue().values()))));
     }
-    List<Future<ServiceStatus>> results = executor.invokeAll(threads);
-    Multimap<String, ServiceStatus> serviceMap = HashMultimap.create();
+    return Futures.allAsList(results).get();
+  }
 
-    for (Future<ServiceStatus> result : results) {
-      ServiceStatus status = result.get();
-      serviceMap.put(status.getAddress(), status);
+  /**
+   * Get the status of services on all configured nodes, from the latest status snapshot unless a fresh status is
+   * requested
+   *
+   * @param fresh whether to probe every node instead of reading the snapshot
+   * @return Collection of {@link NodeStatus}
+   */
+  public Collection<NodeStatus> getNodeStatuses(boolean fresh) throws Exception {
+    if (!isRunning()) {
+      // No snapshot is kept until startup finishes, probe the nodes built so far
+      return getNodeStatuses();
     }
+    return fresh ? statusRefresher.refresh().getNodeStatuses() : statusRefresher.get().getNodeStatuses();
+  }
 
-    for (String address : serviceMap.keySet()) {
-      statuses.add(new NodeStatus(address, serviceMap.get(address)));
-    }
+  /**
+   * Get counters describing the load on the executor used for remote work and on the disruption queue
+   *
+   * @return Map from metric group to the metrics of that group
+   */
+  public Map<String, Map<String, Long>> getMetrics() {
+    checkRunning();
+    return ImmutableMap.of("executor", executor.getMetrics(), "disruptions", disruptionService.getMetrics(),
+                           "schedules", disruptionScheduler.getMetrics(), "topology", topologyRefresher.getMetrics());
+  }
 
-    return statuses;
+  /**
+   * Get the processes currently taken down by disruptions, and the budget of processes that may be down at a time
+   *
+   * @return Map describing the use of the budget in total, on each host and for each service
+   */
+  public Map<String, Object> getBudget() {
+    checkRunning();
+    return admissionController.getUsage();
+  }
+
+  /**
+   * Get the state of each scheduled disruption, including when its next iterations are due
+   *
+   * @return List describing each schedule
+   */
+  public List<Map<String, Object>> getSchedules() {
+    checkRunning();
+    return disruptionScheduler.getSchedules();
   }
 
   public Table<String, String, RemoteProcess> getProcessTable() {
     return this.processTable;
   }
 
+  /**
+   * Get the progress of startup. Nodes and services whose processes were built can be queried before startup
+   * finishes, other requests are rejected until then.
+   *
+   * @return Map describing the phase of startup and the number of services and hosts handled so far
+   */
+  public Map<String, Object> getReadiness() {
+    return startupProgress.toMap(isRunning());
+  }
+
   @Override
   protected void startUp() throws Exception {
-    Multimap<String, String> processToIp = HashMultimap.create();
-    Table<String, String, Disruption> disruptionTable = HashBasedTable.create();
+    this.executor = FanOutExecutor.create(conf);
+    buildProcesses();
+
+    startupProgress.setPhase(StartupProgress.Phase.STARTING);
+    Table<String, String, RemoteProcess> processTable = this.processTable;
+    Table<String, String, Disruption> disruptionTable = this.disruptionTable;
+    for (String service : processTable.columnKeySet()) {
+      // Order by address so that the same seed picks the same nodes
+      samplers.put(service, new ProcessSampler(new TreeMap<>(processTable.column(service)).values()));
+    }
+    this.waitScheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("action-wait").build());
+    this.admissionController = AdmissionController.create(conf, processTable);
+    this.disruptionService = new DisruptionService(disruptionTable, conf.getInt(Constants.Disruption.THREADS,
+                                                                                Constants.Disruption.DEFAULT_THREADS),
+                                                   admissionController);
+    disruptionService.startAsync().awaitRunning();
+
+    int refreshInterval = conf.getInt(Constants.StatusCache.REFRESH_INTERVAL_SECONDS,
+                                      Constants.StatusCache.DEFAULT_REFRESH_INTERVAL_SECONDS);
+    int maxStaleness = conf.getInt(Constants.StatusCache.MAX_STALENESS_SECONDS,
+                                   Constants.StatusCache.DEFAULT_MAX_STALENESS_SECONDS);
+    this.statusRefresher = new StatusRefresher(new Callable<Collection<NodeStatus>>() {
+      @Override
+      public Collection<NodeStatus> call() throws Exception {
+        Collection<NodeStatus> nodeStatuses = getNodeStatuses();
+        admissionController.reconcile(nodeStatuses);
+        return nodeStatuses;
+      }
+    }, TimeUnit.SECONDS.toMillis(refreshInterval), TimeUnit.SECONDS.toMillis(maxStaleness));
+    if (refreshInterval > 0) {
+      statusRefresher.startAsync();
+    }
+
+    String seed = conf.get(Constants.Run.SEED);
+    long runSeed = seed == null ? new Random().nextLong() : Long.parseLong(seed);
+    LOG.info("Starting run with seed {}", runSeed);
+    this.random = new Random(runSeed);
+    this.journal = EventJournal.open(conf.get(Constants.Run.JOURNAL_PATH));
+    journal.record(JournalEvent.run(runSeed));
+
+    DisruptionSubmitter submitter = new DisruptionSubmitter() {
+      @Override
+      public SubmittedDisruption submit(String service, String disruptionName, Collection<RemoteProcess> processes) {
+        return ChaosMonkeyService.this.submit(service, disruptionName, processes,
+                                              getServiceArguments(service, new ActionArguments()),
+                                              JournalEvent.SCHEDULE);
+      }
+    };
+    String replayPath = conf.get(Constants.Run.REPLAY_JOURNAL_PATH);
+    if (replayPath == null) {
+      this.disruptionScheduler = DisruptionScheduler.create(conf, processTable, disruptionTable, submitter, runSeed);
+    } else {
+      // Scheduled disruptions are not run while replaying, so that only the recorded actions are performed
+      Table<String, String, RemoteProcess> noProcesses = HashBasedTable.create();
+      this.disruptionScheduler = DisruptionScheduler.create(conf, noProcesses, disruptionTable, submitter, runSeed);
+      this.journalReplayer = new JournalReplayer(this, EventJournal.read(new File(replayPath)),
+                                                 conf.getDouble(Constants.Run.REPLAY_SPEED,
+                                                                Constants.Run.DEFAULT_REPLAY_SPEED));
+    }
+    disruptionScheduler.startAsync().awaitRunning();
+    if (journalReplayer != null) {
+      LOG.info("Replaying journal {}", replayPath);
+      journalReplayer.startAsync();
+    }
+
+    int topologyRefreshInterval = conf.getInt(Constants.Topology.REFRESH_INTERVAL_SECONDS,
+                                              Constants.Topology.DEFAULT_REFRESH_INTERVAL_SECONDS);
+    this.topologyRefresher = new TopologyRefresher(new Callable<TopologyDiff>() {
+      @Override
+      public TopologyDiff call() throws Exception {
+        return refreshTopology();
+      }
+    }, TimeUnit.SECONDS.toMillis(topologyRefreshInterval));
+    if (topologyRefreshInterval > 0) {
+      topologyRefresher.startAsync();
+    }
+    startupProgress.setPhase(StartupProgress.Phase.READY);
+  }
+
+  /**
+   * Re-reads the nodes of the cluster and applies the difference to the known processes. Only the processes that were
+   * added or removed are created or dropped, and the samplers, schedules and budget of the affected services are
+   * updated in place, so running disruptions and schedules carry on. Nodes that would remove every process, or more
+   * than the configured fraction of them, are taken for an incomplete answer of the cluster and ignored.
+   *
+   * @return The difference that was applied
+   */
+  TopologyDiff refreshTopology() throws Exception {
+    Collection<ClusterNode> nodes = clusterInfoCollector.getNodeProperties();
+    TopologyDiff diff = TopologyDiff.compute(processTable, nodes, skippedServices);
+    int known = processTable.size();
+    int removing = diff.getRemoved().size();
+    double maxRemovedFraction = conf.getDouble(Constants.Topology.MAX_REMOVED_FRACTION,
+                                               Constants.Topology.DEFAULT_MAX_REMOVED_FRACTION);
+    if (removing > 0 && (removing == known || removing > maxRemovedFraction * known)) {
+      LOG.warn("Ignoring the nodes reported by the cluster, which would remove {} of the {} known processes: {}",
+               removing, known, diff.getRemoved());
+      return TopologyDiff.none();
+    }
+    for (String service : diff.getServices()) {
+      Set<String> added = diff.getAdded().get(service);
+      Set<String> removed = diff.getRemoved().get(service);
+      if (!disruptionTable.containsRow(service)) {
+        // Services that were not known on startup are only scheduled after a restart
+        buildService(service, added);
+      } else {
+        String pidPath = conf.get(service + ".pidPath");
+        Map<String, RemoteProcess> processes = new HashMap<>();
+        for (String ipAddress : added) {
+          processes.put(ipAddress, createProcess(service, pidPath, sshShells.get(ipAddress)));
+        }
+        publish(service, ImmutableMap.<String, Disruption>of(), processes, removed);
+      }
 
-    for (ClusterNode node : clusterInfoCollector.getNodeProperties()) {
+      // Order by address so that the same seed picks the same nodes
+      List<RemoteProcess> processes = new ArrayList<>(new TreeMap<>(processTable.column(service)).values());
+      if (processes.isEmpty()) {
+        samplers.remove(service);
+      } else {
+        samplers.put(service, new ProcessSampler(processes));
+      }
+      try {
+        disruptionScheduler.updateProcesses(service, processes);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Unable to update the schedule of {}, keeping its previous processes", service, e);
+      }
+      admissionController.removeProcesses(service, removed);
+    }
+
+    if (!diff.isEmpty()) {
+      Table<String, String, RemoteProcess> processTable = this.processTable;
+      admissionController.setServiceLimits(AdmissionController.getServiceLimits(conf, processTable));
+      for (String host : diff.getRemoved().values()) {
+        if (!processTable.containsRow(host)) {
+          sshShells.close(host);
+        }
+      }
+      statusRefresher.invalidate();
+    }
+    Map<String, Map<String, String>> hostLabels = getHostLabels(nodes);
+    if (!diff.isEmpty() || !hostLabels.equals(labelIndex.getHostLabels())) {
+      this.labelIndex = LabelIndex.build(processTable, hostLabels);
+    }
+    return diff;
+  }
+
+  private static Map<String, Map<String, String>> getHostLabels(Collection<ClusterNode> nodes) {
+    Map<String, Map<String, String>> hostLabels = new HashMap<>();
+    for (ClusterNode node : nodes) {
+      if (!node.getLabels().isEmpty()) {
+        hostLabels.put(node.getHost(), ImmutableMap.copyOf(node.getLabels()));
+      }
+    }
+    return hostLabels;
+  }
+
+  /**
+   * Builds the processes of every service concurrently, publishing the processes of each service as soon as they are
+   * built. Services are added in place while building, and the topology is turned into immutable snapshots once, after
+   * every service is built. Disruptions are stateless, so a single instance of each disruption class is shared by all
+   * services.
+   */
+  private void buildProcesses() throws Exception {
+    Multimap<String, String> processToIp = HashMultimap.create();
+    Set<String> hosts = new HashSet<>();
+    Collection<ClusterNode> nodes = clusterInfoCollector.getNodeProperties();
+    for (ClusterNode node : nodes) {
+      hosts.add(node.getHost());
       for (String service : node.getServices()) {
         processToIp.put(service, node.getHost());
       }
     }
+    startupProgress.discovered(processToIp.keySet().size(), hosts.size());
+    startupProgress.setPhase(StartupProgress.Phase.BUILDING);
 
-    for (String service : processToIp.keySet()) {
-      String pidPath = conf.get(service + ".pidPath");
-      String disruptionsConf = conf.get(service + ".disruptions", Constants.Plugins.DEFAULT_DISRUPTIONS);
+    synchronized (topologyLock) {
+      this.processTable = DisruptionService.newConcurrentTable();
+      this.disruptionTable = DisruptionService.newConcurrentTable();
+      this.building = true;
+    }
 
-      String[] disruptions = disruptionsConf.split(",");
-      for (String disruptionString : disruptions) {
-        Disruption disruption = Class.forName(disruptionString).asSubclass(Disruption.class).newInstance();
-        disruptionTable.put(service, disruption.getName(), disruption);
+    int threads = conf.getInt(Constants.Startup.THREADS, Constants.Startup.DEFAULT_THREADS);
+    ExecutorService startupExecutor = Executors.newFixedThreadPool(
+      threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("startup-%d").build());
+    try {
+      List<Future<?>> builds = new ArrayList<>();
+      for (final String service : processToIp.keySet()) {
+        final List<String> serviceHosts = new ArrayList<>(processToIp.get(service));
+        builds.add(startupExecutor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            buildService(service, serviceHosts);
+            return null;
+          }
+        }));
       }
+      for (Future<?> build : builds) {
+        try {
+          build.get();
+        } catch (ExecutionException e) {
+          Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+      synchronized (topologyLock) {
+        this.processTable = ImmutableTable.copyOf(processTable);
+        this.disruptionTable = ImmutableTable.copyOf(disruptionTable);
+        this.building = false;
+      }
+      this.labelIndex = LabelIndex.build(processTable, getHostLabels(nodes));
 
-      if ((disruptionTable.get(service, Constants.RemoteProcess.KILL) != null ||
-        disruptionTable.get(service, Constants.RemoteProcess.TERMINATE) != null) && pidPath == null) {
-        LOG.warn("The following process does not have a pidPath and will be skipped: {}", service);
-        continue;
+      if (conf.getBoolean(Constants.Startup.PREWARM_SSH, Constants.Startup.DEFAULT_PREWARM_SSH)) {
+        startupProgress.setPhase(StartupProgress.Phase.CONNECTING);
+        prewarmSshSessions(startupExecutor);
       }
+    } finally {
+      startupExecutor.shutdownNow();
+    }
+  }
 
-      for (String ipAddress : processToIp.get(service)) {
-        SshShell sshShell = resolveSshShell(conf, ipAddress);
+  private void buildService(String service, Collection<String> hosts) throws Exception {
+    String pidPath = conf.get(service + ".pidPath");
+    String disruptionsConf = conf.get(service + ".disruptions", Constants.Plugins.DEFAULT_DISRUPTIONS);
 
-        RemoteProcess process;
-        switch (conf.get(service + ".init.style", "sysv")) {
-          case "sysv":
-            process = new SysVRemoteProcess(service, pidPath, sshShell);
-            break;
-          case "custom":
-            ImmutableMap.Builder<String, String> map = ImmutableMap.builder();
+    Map<String, Disruption> serviceDisruptions = new HashMap<>();
+    for (String disruptionString : disruptionsConf.split(",")) {
+      Disruption disruption = getDisruption(disruptionString);
+      serviceDisruptions.put(disruption.getName(), disruption);
+    }
 
-            for (String configOption : Constants.RemoteProcess.CONFIG_OPTIONS) {
-              String optionKey = String.format("%s.init.%s", service, configOption);
-              if (conf.get(optionKey) != null) {
-                map.put(configOption, conf.get(optionKey));
-              }
-            }
+    Map<String, RemoteProcess> processes = new HashMap<>();
+    if ((serviceDisruptions.containsKey(Constants.RemoteProcess.KILL) ||
+      serviceDisruptions.containsKey(Constants.RemoteProcess.TERMINATE)) && pidPath == null) {
+      LOG.warn("The following process does not have a pidPath and will be skipped: {}", service);
+      skippedServices.add(service);
+    } else {
+      for (String ipAddress : hosts) {
+        processes.put(ipAddress, createProcess(service, pidPath, sshShells.get(ipAddress)));
+      }
+    }
+    publish(service, serviceDisruptions, processes, ImmutableSet.<String>of());
+    startupProgress.serviceBuilt(processes.size());
+  }
 
-            process = new CustomRemoteProcess(service, pidPath, sshShell, map.build());
-            break;
-          default:
-            throw new IllegalArgumentException("The following process does not have a valid init.style: " + service);
+  private Disruption getDisruption(String className) throws Exception {
+    Disruption disruption = disruptions.get(className);
+    if (disruption != null) {
+      return disruption;
+    }
+    disruption = Class.forName(className).asSubclass(Disruption.class).newInstance();
+    if (disruption instanceof AbstractProcessDisruption) {
+      ((AbstractProcessDisruption) disruption).setExecutor(executor);
+    } else if (disruption instanceof RollingRestart) {
+      ((RollingRestart) disruption).setExecutor(executor);
+      ((RollingRestart) disruption).setConfiguration(conf);
+    }
+    Disruption existing = disruptions.putIfAbsent(className, disruption);
+    return existing == null ? disruption : existing;
+  }
+
+  private RemoteProcess createProcess(String service, @Nullable String pidPath, SshShell sshShell) {
+    switch (conf.get(service + ".init.style", "sysv")) {
+      case "sysv":
+        return new SysVRemoteProcess(service, pidPath, sshShell);
+      case "custom":
+        ImmutableMap.Builder<String, String> map = ImmutableMap.builder();
+
+        for (String configOption : Constants.RemoteProcess.CONFIG_OPTIONS) {
+          String optionKey = String.format("%s.init.%s", service, configOption);
+          if (conf.get(optionKey) != null) {
+            map.put(configOption, conf.get(optionKey));
+          }
         }
-        processTable.put(ipAddress, service, process);
+
+        return new CustomRemoteProcess(service, pidPath, sshShell, map.build());
+      default:
+        throw new IllegalArgumentException("The following process does not have a valid init.style: " + service);
+    }
+  }
+
+  /**
+   * Adds the given disruptions and processes of a service to the topology, and drops the processes of the service on
+   * the removed hosts. While startup builds the services they are updated in place, afterwards the topology snapshots
+   * are replaced with updated copies.
+   */
+  private void publish(String service, Map<String, Disruption> disruptions, Map<String, RemoteProcess> added,
+                       Set<String> removed) {
+    synchronized (topologyLock) {
+      if (building) {
+        for (Map.Entry<String, Disruption> entry : disruptions.entrySet()) {
+          this.disruptionTable.put(service, entry.getKey(), entry.getValue());
+        }
+        for (String host : removed) {
+          this.processTable.remove(host, service);
+        }
+        for (Map.Entry<String, RemoteProcess> entry : added.entrySet()) {
+          this.processTable.put(entry.getKey(), service, entry.getValue());
+        }
+        return;
+      }
+      ImmutableTable.Builder<String, String, Disruption> disruptionTable = ImmutableTable.builder();
+      disruptionTable.putAll(this.disruptionTable);
+      for (Map.Entry<String, Disruption> entry : disruptions.entrySet()) {
+        disruptionTable.put(service, entry.getKey(), entry.getValue());
+      }
+      ImmutableTable.Builder<String, String, RemoteProcess> processTable = ImmutableTable.builder();
+      for (Table.Cell<String, String, RemoteProcess> cell : this.processTable.cellSet()) {
+        if (!cell.getColumnKey().equals(service) || !removed.contains(cell.getRowKey())) {
+          processTable.put(cell);
+        }
+      }
+      for (Map.Entry<String, RemoteProcess> entry : added.entrySet()) {
+        processTable.put(entry.getKey(), service, entry.getValue());
+      }
+      this.disruptionTable = disruptionTable.build();
+      this.processTable = processTable.build();
+    }
+    DisruptionService disruptionService = this.disruptionService;
+    if (disruptionService != null && !disruptions.isEmpty()) {
+      // A service that joined after startup
+      disruptionService.addDisruptions(service, disruptions);
+    }
+  }
+
+  /**
+   * Opens an SSH session to every host, so that the first disruptions do not pay for the handshakes. Hosts that
+   * cannot be reached are only logged, as they may come up later.
+   */
+  private void prewarmSshSessions(ExecutorService startupExecutor) throws InterruptedException {
+    int timeout = conf.getInt(Constants.Startup.PREWARM_TIMEOUT_SECONDS,
+                              Constants.Startup.DEFAULT_PREWARM_TIMEOUT_SECONDS);
+    List<Future<?>> connections = new ArrayList<>();
+    for (final String host : processTable.rowKeySet()) {
+      connections.add(startupExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            sshShells.get(host).exec("true");
+            startupProgress.hostConnected(true);
+          } catch (Exception e) {
+            LOG.warn("Unable to open an SSH session to {}", host, e);
+            startupProgress.hostConnected(false);
+          }
+        }
+      }));
+    }
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+    for (Future<?> connection : connections) {
+      try {
+        connection.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      } catch (ExecutionException e) {
+        // Logged by the connection task
+      } catch (TimeoutException e) {
+        LOG.warn("Not all SSH sessions were opened within {} seconds, continuing startup", timeout);
+        return;
       }
     }
-    this.disruptionService = new DisruptionService(disruptionTable);
-    this.executor = Executors.newFixedThreadPool(processTable.values().size());
   }
 
   @Override
   protected void shutDown() throws Exception {
+    if (topologyRefresher.isRunning()) {
+      topologyRefresher.stopAsync().awaitTerminated();
+    }
+    if (journalReplayer != null) {
+      journalReplayer.stopAsync().awaitTerminated();
+    }
+    disruptionScheduler.stopAsync().awaitTerminated();
+    if (statusRefresher.isRunning()) {
+      statusRefresher.stopAsync().awaitTerminated();
+    }
+    disruptionService.stopAsync().awaitTerminated();
+    waitScheduler.shutdownNow();
     this.executor.shutdown();
+    sshShells.close();
+    journal.close();
   }
 
   @Override
@@ -289,15 +1080,56 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void disruptAndWait(String service, String disruptionName, @Nullable ActionArguments actionArguments,
                              long timeout, TimeUnit timeoutUnit) throws Exception {
     executeAction(service, disruptionName, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isActionRunning(service, disruptionName)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, disruptionName, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
+    }
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncDisrupt(String service, String disruptionName,
+                                                         @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, disruptionName, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncStart(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.START, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncRestart(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.RESTART, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncStop(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.STOP, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncTerminate(String service,
+                                                           @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.TERMINATE, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncKill(String service, @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.KILL, actionArguments);
+  }
+
+  @Override
+  public ListenableFuture<DisruptionResult> asyncRollingRestart(String service,
+                                                                @Nullable ActionArguments actionArguments) {
+    return submitAsync(service, Constants.RemoteProcess.ROLLING_RESTART, actionArguments);
+  }
+
+  private ListenableFuture<DisruptionResult> submitAsync(String service, String disruptionName,
+                                                         @Nullable ActionArguments actionArguments) {
+    try {
+      return submitAction(service, disruptionName, actionArguments).getFuture();
+    } catch (RuntimeException e) {
+      return Futures.immediateFailedFuture(e);
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -369,15 +1201,9 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void startAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                            TimeUnit timeoutUnit) throws Exception {
     start(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isStartRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.START, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -389,15 +1215,9 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void restartAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                              TimeUnit timeoutUnit) throws Exception {
     restart(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isRestartRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.RESTART, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -409,15 +1229,9 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void stopAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                           TimeUnit timeoutUnit) throws Exception {
     stop(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isStopRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.STOP, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -429,15 +1243,9 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void terminateAndWait(String service, ActionArguments actionArguments, long timeout,
                                TimeUnit timeoutUnit) throws Exception {
     terminate(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isTerminateRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.TERMINATE, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -449,15 +1257,9 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   public void killAndWait(String service, @Nullable ActionArguments actionArguments, long timeout,
                           TimeUnit timeoutUnit) throws Exception {
     kill(service, actionArguments);
-    long startTime = System.currentTimeMillis();
-    long timeoutMs = timeoutUnit.toMillis(timeout);
-    while (System.currentTimeMillis() - startTime < timeoutMs) {
-      if (!isKillRunning(service)) {
-        return;
-      }
-      TimeUnit.SECONDS.sleep(1);
+    if (!waitForAction(service, Constants.RemoteProcess.KILL, timeoutUnit.toMillis(timeout))) {
+      throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
     }
-    throw new TimeoutException(String.format("Timeout occurred after %d %s", timeout, timeoutUnit.name()));
   }
 
   @Override
@@ -468,9 +1270,17 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
   @Override
   public void rollingRestartAndWait(String service, @Nullable ActionArguments actionArguments) throws Exception {
     rollingRestart(service, actionArguments);
-    while (isRollingRestartRunning(service)) {
-      TimeUnit.SECONDS.sleep(1);
-    }
+    waitForAction(service, Constants.RemoteProcess.ROLLING_RESTART, Long.MAX_VALUE);
+  }
+
+  @Override
+  public BatchStatus batch(List<BatchEntry> entries) throws Exception {
+    return executeBatch(entries);
+  }
+
+  @Override
+  public boolean cancel(String service, String action) throws Exception {
+    return cancelAction(service, action, null);
   }
 
   @Override
@@ -490,7 +1300,7 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
 
   @Override
   public Collection<ServiceInfo> getServices() throws Exception {
-    Table<String, String, Disruption> disruptionTable = this.disruptionService.getDisruptionMap();
+    Table<String, String, Disruption> disruptionTable = this.disruptionTable;
     Collection<ServiceInfo> serviceInfos = new HashSet<>();
     for (String service : disruptionTable.rowKeySet()) {
       Collection<String> disruptions = new HashSet<>();
@@ -503,20 +1313,4 @@ public class ChaosMonkeyService extends AbstractIdleService implements ClusterDi
     }
     return serviceInfos;
   }
-
-  /**
-   * Callable to return the status of a single service
-   */
-  public static class Status implements Callable<ServiceStatus> {
-
-    private final RemoteProcess process;
-
-    Status(RemoteProcess process) {
-      this.process = process;
-    }
-
-    public ServiceStatus call() throws Exception {
-      return new ServiceStatus(process.getAddress(), process.getName(), process.isRunning() ? "running" : "stopped");
-    }
-  }
 }
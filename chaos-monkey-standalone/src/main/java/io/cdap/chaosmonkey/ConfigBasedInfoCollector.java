@@ -45,7 +45,8 @@ public class ConfigBasedInfoCollector implements ClusterInfoCollector {
 
     nodes = new HashSet<>();
     for (String host : hostToServices.keySet()) {
-      nodes.add(new ClusterNode(hostToServices.get(host), host));
+      Map<String, String> labels = LabelIndex.parseLabels(properties.get(host + ".labels"));
+      nodes.add(new ClusterNode(hostToServices.get(host), host, labels));
     }
   }
 
@@ -16,28 +16,70 @@
 
 package io.cdap.chaosmonkey;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import io.cdap.chaosmonkey.common.Constants;
 import io.cdap.chaosmonkey.proto.ClusterInfoCollector;
 import io.cdap.chaosmonkey.proto.ClusterNode;
-import io.cdap.common.http.HttpRequest;
-import io.cdap.common.http.HttpRequests;
-import io.cdap.common.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
- * Collect cluster information from Coopr
+ * Collect cluster information from Coopr. Requests are conditional on the ETag and Last-Modified of the previous
+ * response, so an unchanged cluster is not downloaded and parsed again, and responses are parsed as they are read.
+ * <p>
+ * If a snapshot path is configured, the last known nodes are saved there. On startup the nodes of the snapshot are
+ * returned right away while Coopr is queried in the background, and the snapshot is used whenever Coopr cannot be
+ * reached before any response was received.
  */
 public class CooprInfoCollector implements ClusterInfoCollector {
+  private static final Logger LOG = LoggerFactory.getLogger(CooprInfoCollector.class);
   private static final Gson GSON = new Gson();
   private static final Type NODES_TYPE = new TypeToken<Map<String, CooprNodeProperties>>() { }.getType();
-  private HttpRequest request;
+  private static final Type SNAPSHOT_TYPE = new TypeToken<List<ClusterNode>>() { }.getType();
+  private static final ExecutorService BACKGROUND_FETCH = Executors.newSingleThreadExecutor(
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("coopr-fetch").build());
+
+  private Map<String, String> properties;
+  private URL url;
+  private Map<String, String> headers;
+  private byte[] body;
+  private int timeoutMillis;
+  private File snapshot;
+  private List<ClusterNode> nodes;
+  private String etag;
+  private String lastModified;
 
   @Override
   public void initialize(Map<String, String> properties) throws Exception {
@@ -45,33 +87,168 @@ public class CooprInfoCollector implements ClusterInfoCollector {
     if (clusterId == null || clusterId.isEmpty()) {
       throw new IllegalArgumentException("Cluster ID not specified");
     }
-    URL url = new URL(properties.get(Constants.Coopr.SERVER_URI) + "/" +
-                        properties.get(Constants.Coopr.API_VERSION) + "/getNodeProperties");
-    this.request = HttpRequest.get(url)
-      .addHeader("coopr-userid", properties.get(Constants.Coopr.USER_ID))
-      .addHeader("coopr-tenantid", properties.get(Constants.Coopr.TENANT_ID))
-      .withBody(String.format("{\"clusterId\":\"%s\"}", clusterId)).build();
+    this.properties = properties;
+    this.url = new URL(properties.get(Constants.Coopr.SERVER_URI) + "/" +
+                         properties.get(Constants.Coopr.API_VERSION) + "/getNodeProperties");
+    this.headers = new HashMap<>();
+    if (properties.get(Constants.Coopr.USER_ID) != null) {
+      headers.put("coopr-userid", properties.get(Constants.Coopr.USER_ID));
+    }
+    if (properties.get(Constants.Coopr.TENANT_ID) != null) {
+      headers.put("coopr-tenantid", properties.get(Constants.Coopr.TENANT_ID));
+    }
+    this.body = String.format("{\"clusterId\":\"%s\"}", clusterId).getBytes(StandardCharsets.UTF_8);
+    String timeout = properties.get(Constants.Coopr.TIMEOUT_SECONDS);
+    this.timeoutMillis = (int) TimeUnit.SECONDS.toMillis(
+      timeout == null ? Constants.Coopr.DEFAULT_TIMEOUT_SECONDS : Integer.parseInt(timeout));
+    String snapshotPath = properties.get(Constants.Coopr.SNAPSHOT_PATH);
+    this.snapshot = snapshotPath == null ? null : new File(snapshotPath);
   }
 
   @Override
-  public Collection<ClusterNode> getNodeProperties() throws Exception {
-    HttpResponse response = HttpRequests.execute(request);
-    Map<String, ClusterNode> nodes =  GSON.fromJson(response.getResponseBodyAsString(), NODES_TYPE);
-    for (ClusterNode node : nodes.values()) {
-      Iterator<String> iterator = node.getServices().iterator();
+  public synchronized Collection<ClusterNode> getNodeProperties() throws Exception {
+    if (nodes == null && snapshot != null && snapshot.isFile()) {
+      List<ClusterNode> snapshotNodes = readSnapshot();
+      if (snapshotNodes != null) {
+        LOG.info("Loaded {} nodes from snapshot {}, fetching the nodes from Coopr in the background",
+                 snapshotNodes.size(), snapshot);
+        nodes = snapshotNodes;
+        BACKGROUND_FETCH.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              getNodeProperties();
+            } catch (Exception e) {
+              LOG.warn("Unable to fetch the nodes from Coopr, keeping the nodes of the snapshot", e);
+            }
+          }
+        });
+        return nodes;
+      }
+    }
+
+    try {
+      fetch();
+    } catch (IOException | JsonParseException e) {
+      if (nodes == null) {
+        throw e;
+      }
+      LOG.warn("Unable to fetch the nodes from Coopr, using the last known nodes", e);
+    }
+    return nodes;
+  }
+
+  /**
+   * Requests the nodes from Coopr unless they did not change since the previous response, and replaces the known
+   * nodes and the snapshot with the nodes in the response
+   */
+  private void fetch() throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setRequestMethod("GET");
+      connection.setConnectTimeout(timeoutMillis);
+      connection.setReadTimeout(timeoutMillis);
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        connection.setRequestProperty(header.getKey(), header.getValue());
+      }
+      if (nodes != null && etag != null) {
+        connection.setRequestProperty("If-None-Match", etag);
+      }
+      if (nodes != null && lastModified != null) {
+        connection.setRequestProperty("If-Modified-Since", lastModified);
+      }
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(body.length);
+      try (OutputStream output = connection.getOutputStream()) {
+        output.write(body);
+      }
+
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && nodes != null) {
+        LOG.debug("Nodes of Coopr cluster did not change");
+        return;
+      }
+      if (responseCode / 100 != 2) {
+        InputStream error = connection.getErrorStream();
+        String message = error == null ? "" : new String(ByteStreams.toByteArray(error), StandardCharsets.UTF_8);
+        throw new IOException(String.format("Unable to get nodes from %s: %d %s %s", url, responseCode,
+                                            connection.getResponseMessage(), message));
+      }
+
+      Map<String, CooprNodeProperties> response;
+      try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+        response = GSON.fromJson(new JsonReader(reader), NODES_TYPE);
+      }
+      if (response == null) {
+        throw new JsonParseException("Empty response from " + url);
+      }
+      nodes = toClusterNodes(response.values(), properties);
+      etag = connection.getHeaderField("ETag");
+      lastModified = connection.getHeaderField("Last-Modified");
+      writeSnapshot();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Copies the nodes of Coopr, replacing the cdap service by the services it is made of. The labels given by Coopr are
+   * extended by the labels configured for each host.
+   */
+  private static List<ClusterNode> toClusterNodes(Collection<? extends ClusterNode> cooprNodes,
+                                                  Map<String, String> properties) {
+    ImmutableList.Builder<ClusterNode> nodes = ImmutableList.builder();
+    for (ClusterNode node : cooprNodes) {
+      List<String> services = new ArrayList<>(node.getServices());
+      Iterator<String> iterator = services.iterator();
       while (iterator.hasNext()) {
         String service = iterator.next();
         if (service.equals("cdap")) {
           iterator.remove();
-          node.getServices().add("cdap-master");
-          node.getServices().add("cdap-router");
-          node.getServices().add("cdap-kafka-server");
-          node.getServices().add("cdap-auth-server");
-          node.getServices().add("cdap-ui");
+          services.add("cdap-master");
+          services.add("cdap-router");
+          services.add("cdap-kafka-server");
+          services.add("cdap-auth-server");
+          services.add("cdap-ui");
           break;
         }
       }
+      Map<String, String> labels = new HashMap<>(node.getLabels());
+      labels.putAll(LabelIndex.parseLabels(properties.get(node.getHost() + ".labels")));
+      nodes.add(new ClusterNode(services, node.getHost(), labels));
+    }
+    return nodes.build();
+  }
+
+  @Nullable
+  private List<ClusterNode> readSnapshot() {
+    try (Reader reader = new InputStreamReader(new FileInputStream(snapshot), StandardCharsets.UTF_8)) {
+      List<ClusterNode> snapshotNodes = GSON.fromJson(new JsonReader(reader), SNAPSHOT_TYPE);
+      return snapshotNodes == null ? null : ImmutableList.copyOf(snapshotNodes);
+    } catch (IOException | JsonParseException e) {
+      LOG.warn("Unable to read the snapshot of the nodes from {}", snapshot, e);
+      return null;
+    }
+  }
+
+  /**
+   * Saves the known nodes to the snapshot. The snapshot is replaced at once, so a snapshot is never left partially
+   * written.
+   */
+  private void writeSnapshot() {
+    if (snapshot == null) {
+      return;
+    }
+    File temp = new File(snapshot.getPath() + ".tmp");
+    try {
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+        GSON.toJson(nodes, SNAPSHOT_TYPE, new JsonWriter(writer));
+      }
+      if (!temp.renameTo(snapshot)) {
+        throw new IOException("Unable to rename " + temp + " to " + snapshot);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to save the snapshot of the nodes to {}", snapshot, e);
     }
-    return nodes.values();
   }
 }
@@ -23,10 +23,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * NodeProperties represents the JSON object returned by coopr
+ * NodeProperties represents the JSON object returned by coopr. The hardware and image types of the node are exposed as
+ * the hardwaretype and imagetype labels.
  */
 public class CooprNodeProperties extends ClusterNode {
   private final Map<String, String> ipaddresses;
+  private String hardwaretype;
+  private String imagetype;
 
   public CooprNodeProperties(Collection<String> services, String ipAddress) {
     super(services, ipAddress);
@@ -40,4 +43,16 @@ public class CooprNodeProperties extends ClusterNode {
   public String getHost() {
     return ipaddresses.get("access_v4");
   }
+
+  @Override
+  public Map<String, String> getLabels() {
+    Map<String, String> labels = new HashMap<>(super.getLabels());
+    if (hardwaretype != null) {
+      labels.put("hardwaretype", hardwaretype);
+    }
+    if (imagetype != null) {
+      labels.put("imagetype", imagetype);
+    }
+    return labels;
+  }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Splitter;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * A cron expression of five fields: minute, hour, day of month, month and day of week, evaluated in the local time
+ * zone. Each field is {@code *}, a value, a range such as {@code 9-17}, a step such as {@code *}{@code /15} or
+ * {@code 0-30/10}, or a comma separated list of those. Days of week go from 0 (Sunday) to 7 (Sunday again). As in
+ * cron, if both the day of month and the day of week are restricted, a day matching either one matches.
+ */
+public final class CronExpression {
+  // Searching further than this without a match means the expression never matches, such as on February 30th
+  private static final int MAX_YEARS = 5;
+
+  private final String expression;
+  private final BitSet minutes;
+  private final BitSet hours;
+  private final BitSet daysOfMonth;
+  private final BitSet months;
+  private final BitSet daysOfWeek;
+  private final boolean anyDayOfMonth;
+  private final boolean anyDayOfWeek;
+  private final TimeZone timeZone;
+
+  private CronExpression(String expression, TimeZone timeZone) {
+    List<String> fields = Splitter.on(' ').omitEmptyStrings().trimResults().splitToList(expression);
+    if (fields.size() != 5) {
+      throw new IllegalArgumentException("A cron expression needs 5 fields: " + expression);
+    }
+    this.expression = expression;
+    this.minutes = parseField(fields.get(0), 0, 59, expression);
+    this.hours = parseField(fields.get(1), 0, 23, expression);
+    this.daysOfMonth = parseField(fields.get(2), 1, 31, expression);
+    this.months = parseField(fields.get(3), 1, 12, expression);
+    this.daysOfWeek = parseField(fields.get(4), 0, 7, expression);
+    if (daysOfWeek.get(7)) {
+      daysOfWeek.set(0);
+    }
+    this.anyDayOfMonth = fields.get(2).equals("*");
+    this.anyDayOfWeek = fields.get(4).equals("*");
+    this.timeZone = timeZone;
+  }
+
+  /**
+   * Parses a cron expression evaluated in the local time zone
+   *
+   * @throws IllegalArgumentException if the expression is not valid
+   */
+  public static CronExpression parse(String expression) {
+    return new CronExpression(expression, TimeZone.getDefault());
+  }
+
+  /**
+   * Parses a cron expression evaluated in the given time zone
+   *
+   * @throws IllegalArgumentException if the expression is not valid
+   */
+  public static CronExpression parse(String expression, TimeZone timeZone) {
+    return new CronExpression(expression, timeZone);
+  }
+
+  /**
+   * Returns the first time matching the expression strictly after the given time
+   *
+   * @param afterMillis Time in milliseconds
+   * @return The matching time in milliseconds
+   * @throws IllegalStateException if the expression does not match any time in the following years
+   */
+  public long next(long afterMillis) {
+    Calendar calendar = Calendar.getInstance(timeZone);
+    calendar.setTimeInMillis(afterMillis);
+    calendar.set(Calendar.SECOND, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+    calendar.add(Calendar.MINUTE, 1);
+    int maxYear = calendar.get(Calendar.YEAR) + MAX_YEARS;
+
+    while (calendar.get(Calendar.YEAR) <= maxYear) {
+      if (!months.get(calendar.get(Calendar.MONTH) + 1)) {
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.add(Calendar.MONTH, 1);
+      } else if (!matchesDay(calendar)) {
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+      } else if (!hours.get(calendar.get(Calendar.HOUR_OF_DAY))) {
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.add(Calendar.HOUR_OF_DAY, 1);
+      } else if (!minutes.get(calendar.get(Calendar.MINUTE))) {
+        calendar.add(Calendar.MINUTE, 1);
+      } else {
+        return calendar.getTimeInMillis();
+      }
+    }
+    throw new IllegalStateException("Cron expression does not match any time: " + expression);
+  }
+
+  private boolean matchesDay(Calendar calendar) {
+    boolean dayOfMonth = daysOfMonth.get(calendar.get(Calendar.DAY_OF_MONTH));
+    boolean dayOfWeek = daysOfWeek.get(calendar.get(Calendar.DAY_OF_WEEK) - 1);
+    if (anyDayOfMonth || anyDayOfWeek) {
+      return dayOfMonth && dayOfWeek;
+    }
+    return dayOfMonth || dayOfWeek;
+  }
+
+  private static BitSet parseField(String field, int min, int max, String expression) {
+    BitSet values = new BitSet(max + 1);
+    for (String part : Splitter.on(',').split(field)) {
+      try {
+        int step = 1;
+        int slash = part.indexOf('/');
+        if (slash >= 0) {
+          step = Integer.parseInt(part.substring(slash + 1));
+          part = part.substring(0, slash);
+        }
+        int start;
+        int end;
+        if (part.equals("*")) {
+          start = min;
+          end = max;
+        } else if (part.indexOf('-') > 0) {
+          start = Integer.parseInt(part.substring(0, part.indexOf('-')));
+          end = Integer.parseInt(part.substring(part.indexOf('-') + 1));
+        } else {
+          start = Integer.parseInt(part);
+          end = slash >= 0 ? max : start;
+        }
+        if (start < min || end > max || start > end || step <= 0) {
+          throw new IllegalArgumentException();
+        }
+        for (int value = start; value <= end; value += step) {
+          values.set(value);
+        }
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("Invalid field '%s' in cron expression: %s", field,
+                                                         expression));
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+}
@@ -17,7 +17,6 @@
 package io.cdap.chaosmonkey;
 
 import com.google.common.collect.ImmutableMap;
-import com.jcraft.jsch.JSchException;
 import io.cdap.chaosmonkey.common.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,11 +44,11 @@ public class CustomRemoteProcess extends SysVRemoteProcess {
   }
 
   @Override
-  public boolean isRunning() throws JSchException {
+  public String getStatusCommand() {
     if (customCommands.containsKey(Constants.RemoteProcess.IS_RUNNING)) {
-      return execAndReturnSucessful(customCommands.get(Constants.RemoteProcess.IS_RUNNING));
+      return customCommands.get(Constants.RemoteProcess.IS_RUNNING);
     } else {
-      return super.isRunning();
+      return super.getStatusCommand();
     }
   }
 }
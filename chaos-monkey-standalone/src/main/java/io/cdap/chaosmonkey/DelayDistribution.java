@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of a delay in seconds, parsed from one of the following forms:
+ * <ul>
+ *   <li>{@code 60} - always 60 seconds</li>
+ *   <li>{@code 30-120} - uniformly distributed between 30 and 120 seconds</li>
+ *   <li>{@code exp:60} - exponentially distributed with a mean of 60 seconds</li>
+ * </ul>
+ */
+public final class DelayDistribution {
+  private static final String EXPONENTIAL_PREFIX = "exp:";
+
+  private final double min;
+  private final double max;
+  private final boolean exponential;
+
+  private DelayDistribution(double min, double max, boolean exponential) {
+    if (min < 0 || max < min) {
+      throw new IllegalArgumentException(String.format("Invalid delay range: %s-%s", min, max));
+    }
+    this.min = min;
+    this.max = max;
+    this.exponential = exponential;
+  }
+
+  /**
+   * Parses a delay distribution
+   *
+   * @throws IllegalArgumentException if the value is not in a supported form
+   */
+  public static DelayDistribution parse(String value) {
+    String trimmed = value.trim();
+    try {
+      if (trimmed.startsWith(EXPONENTIAL_PREFIX)) {
+        double mean = Double.parseDouble(trimmed.substring(EXPONENTIAL_PREFIX.length()));
+        return new DelayDistribution(mean, mean, true);
+      }
+      int separator = trimmed.indexOf('-', 1);
+      if (separator > 0) {
+        return new DelayDistribution(Double.parseDouble(trimmed.substring(0, separator)),
+                                     Double.parseDouble(trimmed.substring(separator + 1)), false);
+      }
+      double fixed = Double.parseDouble(trimmed);
+      return new DelayDistribution(fixed, fixed, false);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid delay: " + value, e);
+    }
+  }
+
+  /**
+   * Returns the mean of the distribution in seconds
+   */
+  public double getMeanSeconds() {
+    return (min + max) / 2;
+  }
+
+  /**
+   * Draws a delay from the distribution
+   *
+   * @param random Source of randomness
+   * @return The delay in milliseconds
+   */
+  public long sampleMillis(Random random) {
+    double seconds;
+    if (exponential) {
+      seconds = -min * Math.log(1 - random.nextDouble());
+    } else {
+      seconds = min == max ? min : min + random.nextDouble() * (max - min);
+    }
+    return (long) (seconds * TimeUnit.SECONDS.toMillis(1));
+  }
+
+  @Override
+  public String toString() {
+    if (exponential) {
+      return EXPONENTIAL_PREFIX + min;
+    }
+    return min == max ? Double.toString(min) : min + "-" + max;
+  }
+}
@@ -0,0 +1,583 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service that drives every {@link ScheduledDisruption} from a single timer thread. Iterations of each schedule are
+ * due at the times given by its {@link ArrivalProcess}, a few of which are computed ahead. When an iteration is due,
+ * the timer hands it to a bounded pool of workers, so the number of threads does not grow with the number of scheduled
+ * services. An iteration that is due while the previous iteration of the same schedule is still running is skipped and
+ * counted as an overrun, instead of delaying the iterations that follow. Likewise, when the timer was held up past
+ * several due times, only the first of them is run and the others are counted as overruns.
+ * <p>
+ * Processes stopped or killed by a schedule with a recovery delay are started again once the delay passes, by
+ * submitting a start like the disruptions of the schedule. Pending recoveries do not depend on the iteration that
+ * queued them. When the scheduler stops, it waits for the running iterations to finish, then runs all pending
+ * recoveries right away.
+ */
+public class DisruptionScheduler extends AbstractIdleService {
+  private static final Logger LOG = LoggerFactory.getLogger(DisruptionScheduler.class);
+  private static final String FIXED_ARRIVALS = "fixed";
+  private static final String POISSON_ARRIVALS = "poisson";
+  private static final String CRON_ARRIVALS = "cron";
+  private static final String BURST_ARRIVALS = "burst";
+  // Number of upcoming iterations of each schedule that are computed ahead and reported
+  private static final int UPCOMING_ITERATIONS = 3;
+  // Time to wait on stop for running iterations to finish before interrupting them
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+  // Time to wait before submitting a recovery again when a start of the same service is already running
+  private static final long RECOVERY_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final ImmutableSet<String> LEGACY_PROBABILITIES = ImmutableSet.of(Constants.RemoteProcess.STOP,
+                                                                                   Constants.RemoteProcess.KILL,
+                                                                                   Constants.RemoteProcess.RESTART);
+
+  private final List<Schedule> schedules;
+  private final int threads;
+  private final double jitter;
+  private final Set<Recovery> pendingRecoveries;
+  private final AtomicLong recoveries = new AtomicLong();
+  private final AtomicLong recoveryFailures = new AtomicLong();
+  private final Clock clock;
+  private ScheduledExecutorService timer;
+  private ThreadPoolExecutor workers;
+
+  /**
+   * @param disruptions Disruptions to run periodically
+   * @param threads Maximum number of iterations running at a time
+   * @param jitter Fraction of the interval by which each iteration is randomly delayed, between 0 and 1
+   */
+  public DisruptionScheduler(List<ScheduledDisruption> disruptions, int threads, double jitter) {
+    this(disruptions, threads, jitter, Clock.SYSTEM);
+  }
+
+  /**
+   * @param disruptions Disruptions to run periodically
+   * @param threads Maximum number of iterations and recoveries running at a time
+   * @param jitter Fraction of the interval by which each iteration is randomly delayed, between 0 and 1
+   * @param clock Clock the iterations are due by
+   */
+  DisruptionScheduler(List<ScheduledDisruption> disruptions, int threads, double jitter, Clock clock) {
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1: " + jitter);
+    }
+    this.schedules = new ArrayList<>();
+    for (ScheduledDisruption disruption : disruptions) {
+      schedules.add(new Schedule(disruption));
+    }
+    this.threads = threads;
+    this.jitter = jitter;
+    this.pendingRecoveries = Collections.newSetFromMap(new ConcurrentHashMap<Recovery, Boolean>());
+    this.clock = clock;
+  }
+
+  /**
+   * Creates a scheduler for every service of the process table with a valid schedule in the given configuration
+   *
+   * @param conf Configuration of the schedules
+   * @param processTable Table from address and service name to the process
+   * @param disruptionTable Table from service and disruption name to the disruptions that can be scheduled
+   * @param submitter Submitter of the disruptions picked by each schedule and of their recoveries
+   * @param seed Seed of the run, from which the random choices of each schedule are derived
+   */
+  public static DisruptionScheduler create(Configuration conf, Table<String, String, RemoteProcess> processTable,
+                                           Table<String, String, Disruption> disruptionTable,
+                                           DisruptionSubmitter submitter, long seed) {
+    List<ScheduledDisruption> disruptions = new ArrayList<>();
+    for (String service : processTable.columnKeySet()) {
+      boolean scheduled = true;
+      String arrival = conf.get(service + ".arrival", FIXED_ARRIVALS);
+      int interval;
+      try {
+        interval = conf.getInt(service + ".interval", 0);
+        if (interval <= 0 && !arrival.equals(CRON_ARRIVALS)) {
+          throw new IllegalArgumentException();
+        }
+      } catch (IllegalArgumentException | NullPointerException e) {
+        LOG.warn("The following process does not have a valid interval and will be skipped: {}", service);
+        interval = 0; // To avoid variable not initialized error, will not be used
+        scheduled = false;
+      }
+
+      // Sorted so that the same seed picks the same disruptions
+      Map<String, Double> probabilities = new TreeMap<>();
+      double totalProbability = 0.0;
+      for (String disruptionName : disruptionTable.row(service).keySet()) {
+        double probability = getProbability(conf, service, disruptionName);
+        if (probability != 0.0) {
+          probabilities.put(disruptionName, probability);
+          totalProbability += probability;
+        }
+      }
+      int minNodesPerIteration = conf.getInt(service + ".minNodesPerIteration", 0);
+      int maxNodesPerIteration = conf.getInt(service + ".maxNodesPerIteration", 0);
+
+      if (scheduled && probabilities.isEmpty()) {
+        LOG.warn("The following process has the probability of every disruption equal to 0.0 or undefined: {}",
+                 service);
+        scheduled = false;
+      }
+      if (scheduled && totalProbability > 1) {
+        LOG.warn("The following process has a combined probability of its disruptions of over 1.0: {}", service);
+        scheduled = false;
+      }
+
+      if (scheduled) {
+        LOG.info("Adding the following process to Chaos Monkey: {}", service);
+        // Each schedule has its own source of randomness, so its choices do not depend on the order iterations of
+        // different schedules run in. Processes are ordered by address so that the same seed picks the same nodes.
+        Random random = new Random(seed * 31 + service.hashCode());
+        ScheduledDisruption disruption = new ScheduledDisruption(
+          new ArrayList<>(new TreeMap<>(processTable.column(service)).values()), probabilities, interval,
+          minNodesPerIteration, maxNodesPerIteration, new Random(random.nextLong()), submitter);
+        try {
+          disruption.setArrivalProcess(createArrivalProcess(conf, service, arrival, interval,
+                                                            new Random(random.nextLong())));
+        } catch (IllegalArgumentException e) {
+          LOG.warn("The following process does not have valid arrivals and will be skipped: {}", service, e);
+          continue;
+        }
+        String recoveryDelay = conf.get(service + ".recoveryDelay");
+        if (recoveryDelay != null) {
+          disruption.setRecoveryDelay(DelayDistribution.parse(recoveryDelay));
+        }
+        disruptions.add(disruption);
+      }
+    }
+    return new DisruptionScheduler(disruptions,
+                                   conf.getInt(Constants.Scheduler.THREADS, Constants.Scheduler.DEFAULT_THREADS),
+                                   conf.getDouble(Constants.Scheduler.JITTER, Constants.Scheduler.DEFAULT_JITTER));
+  }
+
+  /**
+   * Creates the arrival process of the iterations of a scheduled service
+   *
+   * @throws IllegalArgumentException if the arrival process is not valid
+   */
+  private static ArrivalProcess createArrivalProcess(Configuration conf, String service, String arrival,
+                                                    int interval, Random random) {
+    long intervalMillis = TimeUnit.SECONDS.toMillis(interval);
+    switch (arrival) {
+      case FIXED_ARRIVALS:
+        return ArrivalProcess.fixedRate(intervalMillis);
+      case POISSON_ARRIVALS:
+        return ArrivalProcess.poisson(intervalMillis, random);
+      case CRON_ARRIVALS:
+        String cron = conf.get(service + ".cron");
+        if (cron == null) {
+          throw new IllegalArgumentException("The following process has cron arrivals without a cron: " + service);
+        }
+        CronExpression expression = CronExpression.parse(cron);
+        // A cron that never matches, such as February 30th, would otherwise only fail once the schedule starts
+        try {
+          expression.next(System.currentTimeMillis());
+        } catch (IllegalStateException e) {
+          throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return ArrivalProcess.cron(expression);
+      case BURST_ARRIVALS:
+        return ArrivalProcess.onOff(ArrivalProcess.poisson(intervalMillis, random),
+                                    TimeUnit.SECONDS.toMillis(conf.getInt(service + ".burstOn", 0)),
+                                    TimeUnit.SECONDS.toMillis(conf.getInt(service + ".burstOff", 0)));
+      default:
+        throw new IllegalArgumentException("The following process has invalid arrivals " + arrival + ": " + service);
+    }
+  }
+
+  /**
+   * Returns the probability that a disruption is performed on a service in an interval. For stop, kill and restart,
+   * the {service}.{disruption}Probability configuration is used if the probability is not set otherwise.
+   */
+  private static double getProbability(Configuration conf, String service, String disruptionName) {
+    String probability = conf.get(String.format("%s.schedule.%s.probability", service, disruptionName));
+    if (probability == null && LEGACY_PROBABILITIES.contains(disruptionName)) {
+      probability = conf.get(service + "." + disruptionName + "Probability");
+    }
+    return probability == null ? 0.0 : Double.parseDouble(probability);
+  }
+
+  /**
+   * Returns counters of iterations, overruns and schedule lag, in total and for each scheduled service. The lag of an
+   * iteration is the time between when it was due and when it started running.
+   */
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    long iterations = 0;
+    long overruns = 0;
+    long failures = 0;
+    long maxLagMillis = 0;
+    for (Schedule schedule : schedules) {
+      iterations += schedule.iterations.get();
+      overruns += schedule.overruns.get();
+      failures += schedule.failures.get();
+      maxLagMillis = Math.max(maxLagMillis, schedule.maxLagMillis.get());
+    }
+    metrics.put("schedules", (long) schedules.size());
+    metrics.put("threads", (long) threads);
+    metrics.put("iterations", iterations);
+    metrics.put("overruns", overruns);
+    metrics.put("failures", failures);
+    metrics.put("maxLagMillis", maxLagMillis);
+    metrics.put("pendingRecoveries", (long) pendingRecoveries.size());
+    metrics.put("recoveries", recoveries.get());
+    metrics.put("recoveryFailures", recoveryFailures.get());
+    for (Schedule schedule : schedules) {
+      String prefix = schedule.disruption.getService() + ".";
+      metrics.put(prefix + "iterations", schedule.iterations.get());
+      metrics.put(prefix + "overruns", schedule.overruns.get());
+      metrics.put(prefix + "failures", schedule.failures.get());
+      metrics.put(prefix + "lastLagMillis", schedule.lastLagMillis.get());
+      metrics.put(prefix + "maxLagMillis", schedule.maxLagMillis.get());
+    }
+    return metrics;
+  }
+
+  /**
+   * Replaces the processes disrupted by the schedule of a service, without interrupting the schedule. Services without
+   * a schedule are ignored.
+   *
+   * @param service Name of the service
+   * @param processes The processes of the service, ordered by address so that the same seed picks the same nodes
+   * @return {@code true} if the service has a schedule
+   * @throws IllegalArgumentException if the number of nodes per iteration is not valid for the new processes
+   */
+  public boolean updateProcesses(String service, List<RemoteProcess> processes) {
+    for (Schedule schedule : schedules) {
+      if (schedule.disruption.getService().equals(service)) {
+        schedule.disruption.setProcesses(processes);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the state of each schedule: its service, arrivals, the times its next iterations are due in milliseconds,
+   * and whether an iteration is running
+   */
+  public List<Map<String, Object>> getSchedules() {
+    List<Map<String, Object>> statuses = new ArrayList<>();
+    for (Schedule schedule : schedules) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("service", schedule.disruption.getService());
+      status.put("arrivals", schedule.arrivals.toString());
+      status.put("nextIterations", schedule.getUpcoming());
+      status.put("processes", schedule.disruption.getProcesses().size());
+      status.put("running", schedule.running.get());
+      status.put("iterations", schedule.iterations.get());
+      status.put("overruns", schedule.overruns.get());
+      statuses.add(status);
+    }
+    return statuses;
+  }
+
+  private static List<String> formatTimes(List<Long> times) {
+    DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    List<String> formatted = new ArrayList<>();
+    for (long time : times) {
+      formatted.add(format.format(new Date(time)));
+    }
+    return formatted;
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    timer = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("disruption-scheduler").build());
+    workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                     new ThreadFactoryBuilder().setDaemon(true)
+                                       .setNameFormat("scheduled-disruption-%d").build());
+    workers.allowCoreThreadTimeOut(true);
+    long now = clock.currentTimeMillis();
+    for (Schedule schedule : schedules) {
+      schedule.start(now);
+    }
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    timer.shutdownNow();
+    // Running iterations queue the recovery of the processes they halt, so they must be done before draining
+    workers.shutdown();
+    if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      LOG.warn("Scheduled disruptions still running after {} seconds, interrupting them", SHUTDOWN_TIMEOUT_SECONDS);
+      workers.shutdownNow();
+      workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    // Start every process that is still waiting for its recovery, instead of leaving it down
+    if (!pendingRecoveries.isEmpty()) {
+      LOG.info("Running {} pending recoveries before stopping", pendingRecoveries.size());
+    }
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS);
+    while (true) {
+      for (Recovery recovery : new ArrayList<>(pendingRecoveries)) {
+        recovery.run();
+      }
+      // Recoveries that conflicted with a running start stay pending
+      if (pendingRecoveries.isEmpty()) {
+        break;
+      }
+      if (System.currentTimeMillis() > deadline) {
+        LOG.warn("Unable to run {} pending recoveries before stopping", pendingRecoveries.size());
+        break;
+      }
+      TimeUnit.MILLISECONDS.sleep(RECOVERY_RETRY_MILLIS);
+    }
+  }
+
+  /**
+   * Queues the start of processes stopped or killed by a schedule
+   */
+  private void scheduleRecovery(ScheduledDisruption disruption, List<RemoteProcess> processes, long delayMillis) {
+    Recovery recovery = new Recovery(disruption, processes);
+    pendingRecoveries.add(recovery);
+    LOG.debug("Starting {} on {} processes in {} ms", disruption.getService(), processes.size(), delayMillis);
+    if (!delay(recovery, delayMillis)) {
+      // Stopping, recover right away since pending recoveries may already have been run
+      recovery.run();
+    }
+  }
+
+  /**
+   * Runs a pending recovery on the workers once the delay passes
+   *
+   * @return {@code false} if the scheduler is stopping and the recovery was not queued
+   */
+  private boolean delay(final Recovery recovery, long delayMillis) {
+    try {
+      timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          workers.execute(recovery);
+        }
+      }, delayMillis, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Start of the processes stopped or killed by an iteration, submitted like the disruptions of the schedule so that
+   * it is reported, journaled and checked for conflicts. A recovery runs at most once.
+   */
+  private final class Recovery implements Runnable {
+    private final ScheduledDisruption disruption;
+    private final List<RemoteProcess> processes;
+
+    private Recovery(ScheduledDisruption disruption, List<RemoteProcess> processes) {
+      this.disruption = disruption;
+      this.processes = processes;
+    }
+
+    @Override
+    public void run() {
+      if (!pendingRecoveries.remove(this)) {
+        return;
+      }
+      String service = disruption.getService();
+      SubmittedDisruption submitted;
+      try {
+        submitted = disruption.submitRecovery(processes);
+      } catch (IllegalStateException e) {
+        // Another start of the service is running, try again once it had time to finish. When stopping, shutDown
+        // retries the recoveries that are left pending.
+        LOG.info("Delaying recovery of {}: {}", service, e.getMessage());
+        pendingRecoveries.add(this);
+        delay(this, RECOVERY_RETRY_MILLIS);
+        return;
+      }
+      try {
+        DisruptionResult result = submitted.getFuture().get();
+        if (DisruptionResult.COMPLETED.equals(result.getState())) {
+          recoveries.incrementAndGet();
+        } else {
+          recoveryFailures.incrementAndGet();
+          LOG.error("Unable to recover {} with id {}: {}", service, submitted.getId(), result.getState());
+        }
+      } catch (InterruptedException e) {
+        // Interrupted by shutDown, the submitted start keeps running
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        recoveryFailures.incrementAndGet();
+        LOG.error("Unable to recover {} with id {}", service, submitted.getId(), e.getCause());
+      }
+    }
+  }
+
+  /**
+   * State of the schedule of a single {@link ScheduledDisruption}.
+   */
+  private final class Schedule {
+    private final ScheduledDisruption disruption;
+    private final ArrivalProcess arrivals;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    // Times the next iterations are due without jitter, computed ahead so that they can be reported
+    private final Deque<Long> upcoming = new ArrayDeque<>();
+    // Time the previous iteration was due without jitter, only accessed by the timer thread
+    private long previousTime;
+
+    private Schedule(ScheduledDisruption disruption) {
+      this.disruption = disruption;
+      this.arrivals = disruption.getArrivalProcess();
+    }
+
+    /**
+     * Computes the first iterations and schedules the first one on the timer.
+     */
+    private void start(long now) {
+      previousTime = now;
+      synchronized (this) {
+        long time = now;
+        while (upcoming.size() < UPCOMING_ITERATIONS) {
+          time = arrivals.next(time);
+          upcoming.add(time);
+        }
+      }
+      LOG.info("Scheduled disruption of {} with {} arrivals, next iterations at {}", disruption.getService(), arrivals,
+               formatTimes(getUpcoming()));
+      scheduleNext();
+    }
+
+    /**
+     * Returns the times the next iterations are due, without jitter
+     */
+    private synchronized List<Long> getUpcoming() {
+      return new ArrayList<>(upcoming);
+    }
+
+    /**
+     * Schedules the next iteration on the timer, at its nominal time plus a random fraction of the time since the
+     * previous iteration.
+     */
+    private void scheduleNext() {
+      long nominalTime;
+      synchronized (this) {
+        nominalTime = upcoming.peekFirst();
+      }
+      long jitterMillis = (long) (disruption.nextJitter() * jitter * (nominalTime - previousTime));
+      final long dueTime = nominalTime + jitterMillis;
+      timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          dispatch(dueTime);
+        }
+      }, Math.max(0, dueTime - clock.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(final long dueTime) {
+      if (running.compareAndSet(false, true)) {
+        workers.execute(new Runnable() {
+          @Override
+          public void run() {
+            runIteration(dueTime);
+          }
+        });
+      } else {
+        overruns.incrementAndGet();
+        LOG.warn("Skipping scheduled disruption of {}, the previous iteration is still running",
+                 disruption.getService());
+      }
+      // Skip the iterations that were missed while the timer was held up, instead of running them back to back
+      long now = clock.currentTimeMillis();
+      int missed = 0;
+      synchronized (this) {
+        advance();
+        while (upcoming.peekFirst() < now) {
+          advance();
+          missed++;
+        }
+      }
+      if (missed > 0) {
+        overruns.addAndGet(missed);
+        LOG.warn("Skipping {} missed iterations of the scheduled disruption of {}", missed, disruption.getService());
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Next iterations of the scheduled disruption of {} at {}", disruption.getService(),
+                  formatTimes(getUpcoming()));
+      }
+      scheduleNext();
+    }
+
+    /**
+     * Moves past the next iteration and computes the one after the last upcoming iteration
+     */
+    private synchronized void advance() {
+      previousTime = upcoming.removeFirst();
+      upcoming.add(arrivals.next(upcoming.isEmpty() ? previousTime : upcoming.peekLast()));
+    }
+
+    private void runIteration(long dueTime) {
+      long lag = Math.max(0, clock.currentTimeMillis() - dueTime);
+      lastLagMillis.set(lag);
+      long max = maxLagMillis.get();
+      while (lag > max && !maxLagMillis.compareAndSet(max, lag)) {
+        max = maxLagMillis.get();
+      }
+      iterations.incrementAndGet();
+      try {
+        List<RemoteProcess> halted = disruption.runOneIteration();
+        if (!halted.isEmpty() && disruption.hasRecovery()) {
+          scheduleRecovery(disruption, halted, disruption.nextRecoveryDelayMillis());
+        }
+      } catch (Exception e) {
+        failures.incrementAndGet();
+        LOG.error("Scheduled disruption of {} failed", disruption.getService(), e);
+      } finally {
+        running.set(false);
+      }
+    }
+  }
+}
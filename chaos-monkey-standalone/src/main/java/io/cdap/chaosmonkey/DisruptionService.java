@@ -16,39 +16,120 @@
 
 package io.cdap.chaosmonkey;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import com.google.common.util.concurrent.AbstractIdleService;
-import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.chaosmonkey.common.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import javax.ws.rs.NotFoundException;
 
 /**
- * Service to keep track of running disruptions
+ * Service to keep track of running disruptions. Disruptions of different services or actions run concurrently on a
+ * bounded pool of threads, and wait in submission order when all threads are busy. Since a disruption cannot be
+ * submitted while the same disruption is running or waiting, a single service cannot fill the queue. A disruption
+ * over the budget of the {@link AdmissionController} waits for the budget before it takes a thread of the pool.
  */
 public class DisruptionService extends AbstractIdleService {
+  private static final Logger LOG = LoggerFactory.getLogger(DisruptionService.class);
+  // Number of most recently submitted disruptions whose results can be looked up by ID
+  private static final int MAX_RETAINED_DISRUPTIONS = 1000;
 
-  private static final ExecutorService executor = Executors.newFixedThreadPool(1);
-
-  private Table<String, String, AtomicBoolean> status;
-  private Table<String, String, Disruption> disruptionTable;
+  private final ThreadPoolExecutor executor;
+  // Threads of the disruptions waiting for the budget of the admission controller
+  private final ExecutorService admissionWaiter;
+  private final WaitStats waitStats;
+  private final Map<String, SubmittedDisruption> disruptions;
+  private final AdmissionController admissionController;
+  // Only modified while holding the lock of this service, so that a service is added at most once
+  private final Table<String, String, AtomicReference<SubmittedDisruption>> status;
+  private final Table<String, String, Disruption> disruptionTable;
 
   public DisruptionService(Table<String, String, Disruption> compatibleDisruptions) {
-    this.disruptionTable = compatibleDisruptions;
-    status = HashBasedTable.create();
+    this(compatibleDisruptions, Constants.Disruption.DEFAULT_THREADS);
+  }
+
+  /**
+   * @param compatibleDisruptions Table from service and disruption name to the disruption
+   * @param threads Maximum number of disruptions running at a time
+   */
+  public DisruptionService(Table<String, String, Disruption> compatibleDisruptions, int threads) {
+    this(compatibleDisruptions, threads, AdmissionController.unlimited());
+  }
+
+  /**
+   * @param compatibleDisruptions Table from service and disruption name to the disruption
+   * @param threads Maximum number of disruptions running at a time
+   * @param admissionController Controller admitting each disruption within the budget of processes down at a time
+   */
+  public DisruptionService(Table<String, String, Disruption> compatibleDisruptions, int threads,
+                           AdmissionController admissionController) {
+    this.admissionController = admissionController;
+    this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                           new ThreadFactoryBuilder().setNameFormat("disruption-%d").build());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.admissionWaiter = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("admission-wait-%d").build());
+    this.waitStats = new WaitStats();
+    this.disruptions = Collections.synchronizedMap(new LinkedHashMap<String, SubmittedDisruption>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SubmittedDisruption> eldest) {
+        return size() > MAX_RETAINED_DISRUPTIONS;
+      }
+    });
+    this.disruptionTable = newConcurrentTable();
+    this.status = newConcurrentTable();
     for (String service : compatibleDisruptions.rowKeySet()) {
-      for (String disruptionName : compatibleDisruptions.columnKeySet()) {
-        if (compatibleDisruptions.get(service, disruptionName) != null) {
-          status.put(service, disruptionName, new AtomicBoolean(false));
-        }
+      addDisruptions(service, compatibleDisruptions.row(service));
+    }
+  }
+
+  /**
+   * Creates a table that can be read while it is updated
+   */
+  static <V> Table<String, String, V> newConcurrentTable() {
+    return Tables.newCustomTable(new ConcurrentHashMap<String, Map<String, V>>(), new Supplier<Map<String, V>>() {
+      @Override
+      public Map<String, V> get() {
+        return new ConcurrentHashMap<>();
+      }
+    });
+  }
+
+  /**
+   * Adds disruptions that can be submitted on a service, for instance when a service joins the cluster after startup.
+   * Disruptions already known for the service are kept, along with the disruption running for them.
+   *
+   * @param service The name of the service
+   * @param disruptions Map from disruption name to the disruption
+   */
+  public synchronized void addDisruptions(String service, Map<String, Disruption> disruptions) {
+    for (Map.Entry<String, Disruption> entry : disruptions.entrySet()) {
+      if (!status.contains(service, entry.getKey())) {
+        // Known before the status, so that a disruption that can be submitted is always found
+        disruptionTable.put(service, entry.getKey(), entry.getValue());
+        status.put(service, entry.getKey(), new AtomicReference<SubmittedDisruption>());
       }
     }
   }
@@ -58,8 +139,17 @@ public class DisruptionService extends AbstractIdleService {
   }
 
   public boolean isRunning(String service, String action) {
+    return getRunning(service, action) != null;
+  }
+
+  /**
+   * Returns the disruption running or waiting to run for the given service and action, or {@code null} if there is
+   * none
+   */
+  @Nullable
+  public SubmittedDisruption getRunning(String service, String action) {
     if (status.get(service, action) == null) {
-      return false;
+      return null;
     }
     return status.get(service, action).get();
   }
@@ -71,26 +161,142 @@ public class DisruptionService extends AbstractIdleService {
    * @param service The name of the service to be disrupted
    * @param processes Collection of {@link RemoteProcess} to be disrupted
    * @param serviceArguments Configuration for the disruption
-   * @return {@link Future<Void>} to signal when the disruption is complete
-   * @throws IllegalStateException if the same disruption is already running
+   * @return {@link SubmittedDisruption} to identify, cancel or wait for the disruption
+   * @throws IllegalStateException if the same disruption is already running, or the disruption is over the budget of
+   *                               the {@link AdmissionController} and is not queued
    */
-  public Future<Void> disrupt(String disruptionName, String service, Collection<RemoteProcess> processes,
-                              Map<String, String> serviceArguments) {
-    SettableFuture<Void> future = SettableFuture.create();
-    if (!checkAndStart(service, disruptionName)) {
+  public SubmittedDisruption disrupt(String disruptionName, String service, Collection<RemoteProcess> processes,
+                                     Map<String, String> serviceArguments) {
+    SubmittedDisruption submitted = new SubmittedDisruption(service, disruptionName);
+    if (!checkAndStart(service, disruptionName, submitted)) {
       throw new IllegalStateException(String.format("Conflict: %s %s is already running", service, disruptionName));
     }
-    executor.submit(new DisruptionCallable(disruptionTable.get(service, disruptionName), service, processes, status,
-                                           serviceArguments, future));
-    return future;
+    AdmissionController.Lease lease;
+    if (admissionController.isQueueing()) {
+      lease = admissionController.tryAcquireOrNull(service, disruptionName, processes);
+    } else {
+      try {
+        lease = admissionController.tryAcquire(service, disruptionName, processes);
+      } catch (IllegalStateException e) {
+        status.get(service, disruptionName).compareAndSet(submitted, null);
+        throw e;
+      }
+    }
+    waitStats.submitted.incrementAndGet();
+    disruptions.put(submitted.getId(), submitted);
+    if (lease == null) {
+      awaitAdmission(disruptionName, service, processes, serviceArguments, submitted);
+    } else {
+      execute(disruptionName, service, processes, serviceArguments, submitted, lease);
+    }
+    return submitted;
   }
 
-  private boolean checkAndStart(String service, String action) {
-    AtomicBoolean atomicBoolean = status.get(service, action);
-    if (atomicBoolean == null) {
+  /**
+   * Waits for the budget on a thread of its own, so that disruptions waiting for the budget do not hold the threads
+   * of the disruptions that would free it, then runs the disruption
+   */
+  private void awaitAdmission(final String disruptionName, final String service,
+                              final Collection<RemoteProcess> processes, final Map<String, String> serviceArguments,
+                              final SubmittedDisruption submitted) {
+    FutureTask<Void> admission = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        AdmissionController.Lease lease;
+        try {
+          lease = admissionController.acquire(service, disruptionName, processes);
+        } catch (InterruptedException e) {
+          LOG.info("{} of {} with id {} was cancelled while waiting for the budget", disruptionName, service,
+                   submitted.getId());
+          return;
+        } catch (IllegalStateException e) {
+          LOG.warn("{} of {} with id {} was rejected", disruptionName, service, submitted.getId(), e);
+          status.get(service, disruptionName).compareAndSet(submitted, null);
+          submitted.complete(Collections.<String, ProcessOutcome>emptyMap(), e);
+          return;
+        }
+        execute(disruptionName, service, processes, serviceArguments, submitted, lease);
+      }
+    }, null);
+    // Set before the wait starts, so that a cancellation interrupts the wait or the disruption that follows it
+    submitted.setTask(admission);
+    admissionWaiter.execute(admission);
+  }
+
+  private void execute(String disruptionName, String service, Collection<RemoteProcess> processes,
+                       Map<String, String> serviceArguments, SubmittedDisruption submitted,
+                       AdmissionController.Lease lease) {
+    final DisruptionCallable callable = new DisruptionCallable(disruptionTable.get(service, disruptionName), service,
+                                                               processes, status, serviceArguments, submitted,
+                                                               waitStats, lease);
+    // A disruption that runs releases the budget when it is done, one cancelled before it runs releases it here
+    submitted.getFuture().addListener(new Runnable() {
+      @Override
+      public void run() {
+        callable.releaseUnlessStarted();
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    submitted.setTask(executor.submit(callable));
+  }
+
+  /**
+   * Returns the disruption with the given ID, or {@code null} if it is unknown or no longer retained
+   */
+  @Nullable
+  public SubmittedDisruption getSubmitted(String id) {
+    return disruptions.get(id);
+  }
+
+  /**
+   * Cancels the disruption running or waiting to run for the given service and action. The running disruption is
+   * interrupted, and the same disruption can be submitted again right away.
+   *
+   * @param service The name of the service being disrupted
+   * @param action The name of the disruption to cancel
+   * @param id Optional, only cancel the disruption if it has this ID
+   * @return {@code true} if a disruption was cancelled, {@code false} if no matching disruption was running
+   * @throws NotFoundException if the action is not valid on the service
+   */
+  public boolean cancel(String service, String action, @Nullable String id) {
+    AtomicReference<SubmittedDisruption> running = status.get(service, action);
+    if (running == null) {
       throw new NotFoundException(String.format("%s is not a valid action on %s", action, service));
     }
-    return atomicBoolean.compareAndSet(false, true);
+    SubmittedDisruption submitted = running.get();
+    if (submitted == null || (id != null && !id.equals(submitted.getId())) ||
+      !running.compareAndSet(submitted, null)) {
+      return false;
+    }
+    LOG.info("Cancelling {} of {} with id {}", action, service, submitted.getId());
+    submitted.cancel();
+    waitStats.cancelled.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Returns counters describing how many disruptions are running and waiting, and how long they waited for a thread
+   */
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    metrics.put("threads", (long) executor.getMaximumPoolSize());
+    metrics.put("active", (long) executor.getActiveCount());
+    metrics.put("queued", (long) executor.getQueue().size());
+    metrics.put("submitted", waitStats.submitted.get());
+    metrics.put("started", waitStats.started.get());
+    metrics.put("completed", waitStats.completed.get());
+    metrics.put("cancelled", waitStats.cancelled.get());
+    metrics.put("totalWaitMillis", waitStats.totalWaitMillis.get());
+    metrics.put("maxWaitMillis", waitStats.maxWaitMillis.get());
+    metrics.put("lastWaitMillis", waitStats.lastWaitMillis.get());
+    return metrics;
+  }
+
+  private boolean checkAndStart(String service, String action, SubmittedDisruption submitted) {
+    AtomicReference<SubmittedDisruption> running = status.get(service, action);
+    if (running == null) {
+      throw new NotFoundException(String.format("%s is not a valid action on %s", action, service));
+    }
+    return running.compareAndSet(null, submitted);
   }
 
   @Override
@@ -100,6 +306,7 @@ public class DisruptionService extends AbstractIdleService {
 
   @Override
   protected void shutDown() throws Exception {
+    admissionWaiter.shutdownNow();
     executor.shutdown();
   }
 
@@ -107,35 +314,110 @@ public class DisruptionService extends AbstractIdleService {
     private final Disruption disruption;
     private final String service;
     private final Collection<RemoteProcess> processes;
-    private final Table<String, String, AtomicBoolean> status;
+    private final Table<String, String, AtomicReference<SubmittedDisruption>> status;
     private final Map<String, String> serviceArguments;
-    private final SettableFuture<Void> future;
+    private final SubmittedDisruption submitted;
+    private final WaitStats waitStats;
+    private final long submitTime;
+    private final AdmissionController.Lease lease;
+    private final AtomicBoolean started;
 
     DisruptionCallable(Disruption disruption, String service,  Collection<RemoteProcess> processes,
-                       Table<String, String, AtomicBoolean> status, @Nullable Map<String, String> serviceArguments,
-                       SettableFuture<Void> future) {
+                       Table<String, String, AtomicReference<SubmittedDisruption>> status,
+                       @Nullable Map<String, String> serviceArguments, SubmittedDisruption submitted,
+                       WaitStats waitStats, AdmissionController.Lease lease) {
       this.disruption = disruption;
       this.service = service;
       this.processes = processes;
       this.status = status;
       this.serviceArguments = serviceArguments;
-      this.future = future;
+      this.submitted = submitted;
+      this.waitStats = waitStats;
+      this.lease = lease;
+      this.submitTime = System.currentTimeMillis();
+      this.started = new AtomicBoolean();
+    }
+
+    /**
+     * Releases the budget of a disruption that was cancelled before it started, and keeps it from starting
+     */
+    void releaseUnlessStarted() {
+      if (started.compareAndSet(false, true)) {
+        lease.release();
+      }
     }
 
     @Override
     public Void call() throws Exception {
+      if (!started.compareAndSet(false, true)) {
+        // Cancelled before it started
+        return null;
+      }
+      waitStats.recordStart(System.currentTimeMillis() - submitTime);
+      Map<String, ProcessOutcome> outcomes = Collections.emptyMap();
+      // Outcomes the budget is updated with, which a disruption without an outcome per process has on every process
+      Map<String, ProcessOutcome> leaseOutcomes = Collections.emptyMap();
+      Throwable error = null;
       try {
-        disruption.disrupt(processes, serviceArguments);
+        if (disruption instanceof AbstractProcessDisruption) {
+          outcomes = ((AbstractProcessDisruption) disruption).disruptAll(processes, serviceArguments);
+          leaseOutcomes = outcomes;
+        } else {
+          disruption.disrupt(processes, serviceArguments);
+          leaseOutcomes = new HashMap<>();
+          for (RemoteProcess process : processes) {
+            leaseOutcomes.put(process.getAddress(), ProcessOutcome.SUCCEEDED);
+          }
+        }
+      } catch (InterruptedException e) {
+        LOG.info("{} of {} with id {} was cancelled", disruption.getName(), service, submitted.getId());
+        if (AdmissionController.isHalting(disruption.getName())) {
+          // Processes may have been halted before the cancellation, or by commands that are still running. They count
+          // as down until the status snapshot sees them running.
+          leaseOutcomes = new HashMap<>();
+          for (RemoteProcess process : processes) {
+            leaseOutcomes.put(process.getAddress(), ProcessOutcome.SUCCEEDED);
+          }
+        }
+      } catch (Throwable t) {
+        LOG.error("{} of {} with id {} failed", disruption.getName(), service, submitted.getId(), t);
+        error = t;
       } finally {
+        lease.release(leaseOutcomes);
         release(service, disruption.getName());
-        future.set(null);
+        waitStats.completed.incrementAndGet();
       }
+      // A cancelled disruption already has its result
+      submitted.complete(outcomes, error);
       return null;
     }
 
     private void release(String service, String action) {
-      AtomicBoolean atomicBoolean = status.get(service, action);
-      atomicBoolean.set(false);
+      // A cancelled disruption was already released, and the same disruption may have been submitted again since
+      status.get(service, action).compareAndSet(submitted, null);
+    }
+  }
+
+  /**
+   * Counters of disruptions and the time they waited for a thread.
+   */
+  private static final class WaitStats {
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong lastWaitMillis = new AtomicLong();
+
+    private void recordStart(long waitMillis) {
+      started.incrementAndGet();
+      totalWaitMillis.addAndGet(waitMillis);
+      lastWaitMillis.set(waitMillis);
+      long max = maxWaitMillis.get();
+      while (waitMillis > max && !maxWaitMillis.compareAndSet(max, waitMillis)) {
+        max = maxWaitMillis.get();
+      }
     }
   }
 }
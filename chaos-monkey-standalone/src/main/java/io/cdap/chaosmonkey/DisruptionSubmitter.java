@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.Collection;
+
+/**
+ * Submits disruptions picked by a {@link ScheduledDisruption}, so that they run like disruptions submitted through
+ * the API
+ */
+public interface DisruptionSubmitter {
+
+  /**
+   * Submits a disruption on the given processes
+   *
+   * @param service The name of the service to be disrupted
+   * @param disruptionName The name of the disruption to perform
+   * @param processes Processes to be disrupted
+   * @return {@link SubmittedDisruption} to wait for the disruption
+   * @throws IllegalStateException if the same disruption is already running, or the disruption is over budget
+   */
+  SubmittedDisruption submit(String service, String disruptionName, Collection<RemoteProcess> processes);
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only journal of the decisions and actions of a chaos run, written as one JSON object per line. A journal
+ * without a file records nothing.
+ */
+public class EventJournal implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(EventJournal.class);
+  private static final Gson GSON = new Gson();
+
+  private final Writer writer;
+
+  private EventJournal(@Nullable Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Opens the journal at the given path for appending
+   *
+   * @param path Optional, path of the journal file, nothing is recorded if this is {@code null}
+   */
+  public static EventJournal open(@Nullable String path) throws IOException {
+    if (path == null) {
+      return disabled();
+    }
+    LOG.info("Recording events to {}", path);
+    return new EventJournal(new OutputStreamWriter(new FileOutputStream(path, true), Charsets.UTF_8));
+  }
+
+  /**
+   * Returns a journal that records nothing
+   */
+  public static EventJournal disabled() {
+    return new EventJournal(null);
+  }
+
+  /**
+   * Reads every event of the journal at the given path, in the order they were recorded
+   */
+  public static List<JournalEvent> read(File file) throws IOException {
+    List<JournalEvent> events = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                                                                          Charsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          events.add(GSON.fromJson(line, JournalEvent.class));
+        }
+      }
+    }
+    return events;
+  }
+
+  /**
+   * Appends an event to the journal. Failures to write are logged, so that a full disk does not stop the run.
+   */
+  public void record(JournalEvent event) {
+    if (writer == null) {
+      return;
+    }
+    String line = GSON.toJson(event);
+    synchronized (this) {
+      try {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+      } catch (IOException e) {
+        LOG.warn("Unable to record event {}", line, e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+}
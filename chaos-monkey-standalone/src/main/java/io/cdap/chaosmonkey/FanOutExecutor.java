@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes remote work that fans out over many hosts, such as status probes and per-process disruptions. Tasks run
+ * either on a bounded thread pool or on one virtual thread per task, and at most a configured number of tasks run
+ * against the same host at a time. Tasks over the per-host limit wait without holding a thread.
+ */
+public class FanOutExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(FanOutExecutor.class);
+
+  /**
+   * Threading model of the {@link FanOutExecutor}.
+   */
+  public enum Type {
+    BOUNDED,
+    VIRTUAL
+  }
+
+  private final ExecutorService delegate;
+  private final Type type;
+  private final int perHostConcurrency;
+  private final Map<String, HostQueue> hostQueues;
+  private final AtomicLong submitted;
+  private final AtomicLong completed;
+  private final AtomicLong failed;
+  private final AtomicLong active;
+  private final AtomicLong maxActive;
+  private long waitingForHost;
+
+  /**
+   * @param delegate The executor tasks are run on
+   * @param type The threading model of the delegate
+   * @param perHostConcurrency Maximum number of tasks running against the same host at a time
+   */
+  public FanOutExecutor(ExecutorService delegate, Type type, int perHostConcurrency) {
+    if (perHostConcurrency <= 0) {
+      throw new IllegalArgumentException("perHostConcurrency must be positive: " + perHostConcurrency);
+    }
+    this.delegate = delegate;
+    this.type = type;
+    this.perHostConcurrency = perHostConcurrency;
+    this.hostQueues = new HashMap<>();
+    this.submitted = new AtomicLong();
+    this.completed = new AtomicLong();
+    this.failed = new AtomicLong();
+    this.active = new AtomicLong();
+    this.maxActive = new AtomicLong();
+  }
+
+  /**
+   * Creates a {@code FanOutExecutor} based on the executor.* configurations. Virtual threads are used only if
+   * requested and the running JVM supports them, otherwise a bounded pool is used.
+   */
+  public static FanOutExecutor create(Configuration conf) {
+    Type type = Type.valueOf(conf.get(Constants.Executor.TYPE, Constants.Executor.DEFAULT_TYPE).toUpperCase());
+    int threads = conf.getInt(Constants.Executor.THREADS, Constants.Executor.DEFAULT_THREADS);
+    int perHostConcurrency = conf.getInt(Constants.Executor.PER_HOST_CONCURRENCY,
+                                         Constants.Executor.DEFAULT_PER_HOST_CONCURRENCY);
+
+    if (type == Type.VIRTUAL) {
+      ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+      if (virtualExecutor != null) {
+        LOG.info("Using virtual threads with at most {} tasks per host", perHostConcurrency);
+        return new FanOutExecutor(virtualExecutor, Type.VIRTUAL, perHostConcurrency);
+      }
+      LOG.warn("Virtual threads are not supported by this JVM, using a pool of {} threads instead", threads);
+    }
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                     new LinkedBlockingQueue<Runnable>(),
+                                                     new ThreadFactoryBuilder().setDaemon(true)
+                                                       .setNameFormat("fan-out-%d").build());
+    pool.allowCoreThreadTimeOut(true);
+    return new FanOutExecutor(pool, Type.BOUNDED, perHostConcurrency);
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (Exception e) {
+      LOG.debug("Unable to create virtual thread executor", e);
+      return null;
+    }
+  }
+
+  /**
+   * Submits a task that works against the given host.
+   *
+   * @param host The host the task works against
+   * @param task The task to run
+   * @return A future holding the result of the task
+   */
+  public <T> ListenableFuture<T> submit(String host, Callable<T> task) {
+    ListenableFutureTask<T> futureTask = ListenableFutureTask.create(task);
+    submitted.incrementAndGet();
+
+    boolean runNow;
+    synchronized (hostQueues) {
+      HostQueue hostQueue = hostQueues.get(host);
+      if (hostQueue == null) {
+        hostQueue = new HostQueue();
+        hostQueues.put(host, hostQueue);
+      }
+      runNow = hostQueue.running < perHostConcurrency;
+      if (runNow) {
+        hostQueue.running++;
+      } else {
+        hostQueue.pending.add(futureTask);
+        waitingForHost++;
+      }
+    }
+
+    if (runNow) {
+      dispatch(host, futureTask);
+    }
+    return futureTask;
+  }
+
+  /**
+   * Runs a task that holds a slot of its host on the delegate. When the delegate rejects it, for instance after being
+   * shut down, the task is cancelled and the tasks waiting for the host are cancelled in turn, in a loop so that a
+   * long queue does not take one stack frame per task.
+   */
+  private void dispatch(String host, ListenableFutureTask<?> futureTask) {
+    ListenableFutureTask<?> next = futureTask;
+    while (next != null) {
+      try {
+        delegate.execute(new HostTask(host, next));
+        return;
+      } catch (RejectedExecutionException e) {
+        next.cancel(false);
+        next = onFinished(host, next);
+      }
+    }
+  }
+
+  /**
+   * Counts a finished task and hands its slot to the next task waiting for the same host
+   *
+   * @return The next task of the host, which must be dispatched, or {@code null} if no task is waiting for the host
+   */
+  private ListenableFutureTask<?> onFinished(String host, ListenableFutureTask<?> futureTask) {
+    if (isFailed(futureTask)) {
+      failed.incrementAndGet();
+    }
+    completed.incrementAndGet();
+
+    synchronized (hostQueues) {
+      HostQueue hostQueue = hostQueues.get(host);
+      ListenableFutureTask<?> next = hostQueue.pending.poll();
+      if (next == null) {
+        hostQueue.running--;
+        if (hostQueue.running == 0) {
+          hostQueues.remove(host);
+        }
+      } else {
+        waitingForHost--;
+      }
+      return next;
+    }
+  }
+
+  private boolean isFailed(ListenableFutureTask<?> futureTask) {
+    if (futureTask.isCancelled()) {
+      return true;
+    }
+    try {
+      futureTask.get(0, TimeUnit.MILLISECONDS);
+      return false;
+    } catch (Exception e) {
+      return true;
+    }
+  }
+
+  private void updateMaxActive(long running) {
+    long max = maxActive.get();
+    while (running > max && !maxActive.compareAndSet(max, running)) {
+      max = maxActive.get();
+    }
+  }
+
+  /**
+   * Returns counters describing how saturated the executor is.
+   */
+  public Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    metrics.put("virtualThreads", type == Type.VIRTUAL ? 1L : 0L);
+    metrics.put("submitted", submitted.get());
+    metrics.put("completed", completed.get());
+    metrics.put("failed", failed.get());
+    metrics.put("active", active.get());
+    metrics.put("maxActive", maxActive.get());
+    synchronized (hostQueues) {
+      metrics.put("waitingForHost", waitingForHost);
+      metrics.put("busyHosts", (long) hostQueues.size());
+    }
+    if (delegate instanceof ThreadPoolExecutor) {
+      ThreadPoolExecutor pool = (ThreadPoolExecutor) delegate;
+      metrics.put("poolSize", (long) pool.getPoolSize());
+      metrics.put("maxPoolSize", (long) pool.getMaximumPoolSize());
+      metrics.put("largestPoolSize", (long) pool.getLargestPoolSize());
+      metrics.put("waitingForThread", (long) pool.getQueue().size());
+    }
+    return metrics;
+  }
+
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  /**
+   * A task running on the delegate, which dispatches the next task of its host once it finishes.
+   */
+  private final class HostTask implements Runnable {
+    private final String host;
+    private final ListenableFutureTask<?> futureTask;
+
+    private HostTask(String host, ListenableFutureTask<?> futureTask) {
+      this.host = host;
+      this.futureTask = futureTask;
+    }
+
+    @Override
+    public void run() {
+      long running = active.incrementAndGet();
+      updateMaxActive(running);
+      ListenableFutureTask<?> next;
+      try {
+        futureTask.run();
+      } finally {
+        active.decrementAndGet();
+        next = onFinished(host, futureTask);
+      }
+      if (next != null) {
+        dispatch(host, next);
+      }
+    }
+  }
+
+  /**
+   * Tasks of a single host.
+   */
+  private static final class HostQueue {
+    private final Queue<ListenableFutureTask<?>> pending = new ArrayDeque<>();
+    private int running;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import io.cdap.chaosmonkey.proto.ServiceStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Callable to return the status of every configured service on a single host, checking all of them with one remote
+ * command. Each status command is run in turn and its exit code is echoed on a tagged line of the output.
+ */
+public class HostStatusProbe implements Callable<NodeStatus> {
+  private static final Logger LOG = LoggerFactory.getLogger(HostStatusProbe.class);
+  private static final String STATUS_TAG = "chaos-monkey-status";
+
+  static final String RUNNING = "running";
+  static final String STOPPED = "stopped";
+  static final String UNKNOWN = "unknown";
+
+  private final String host;
+  private final List<RemoteProcess> processes;
+
+  /**
+   * @param host The host to check
+   * @param processes The processes configured on the host, must not be empty
+   */
+  HostStatusProbe(String host, List<RemoteProcess> processes) {
+    if (processes.isEmpty()) {
+      throw new IllegalArgumentException("No processes to check on " + host);
+    }
+    this.host = host;
+    this.processes = processes;
+  }
+
+  @Override
+  public NodeStatus call() throws Exception {
+    ShellOutput output = processes.get(0).execAndGetOutput(buildScript(processes));
+    Map<Integer, Integer> exitCodes = parseExitCodes(output.standardOutput);
+
+    List<ServiceStatus> statuses = new ArrayList<>();
+    for (int i = 0; i < processes.size(); i++) {
+      RemoteProcess process = processes.get(i);
+      Integer exitCode = exitCodes.get(i);
+      String status;
+      if (exitCode == null) {
+        LOG.warn("No status reported for {} on {}: {}", process.getName(), host, output.errorOutput);
+        status = UNKNOWN;
+      } else {
+        status = exitCode == 0 ? RUNNING : STOPPED;
+      }
+      statuses.add(new ServiceStatus(host, process.getName(), status));
+    }
+    return new NodeStatus(host, statuses);
+  }
+
+  /**
+   * Builds a script that runs the status command of every given process and reports each exit code, in the order of
+   * the given list.
+   */
+  static String buildScript(List<RemoteProcess> processes) {
+    StringBuilder script = new StringBuilder();
+    for (int i = 0; i < processes.size(); i++) {
+      if (i > 0) {
+        script.append("; ");
+      }
+      script.append(String.format("(%s) </dev/null >/dev/null 2>&1; echo \"%s %d $?\"",
+                                  processes.get(i).getStatusCommand(), STATUS_TAG, i));
+    }
+    return script.toString();
+  }
+
+  /**
+   * Parses the output of a script built by {@link #buildScript(List)}.
+   *
+   * @return Map from the index of a process to the exit code of its status command
+   */
+  static Map<Integer, Integer> parseExitCodes(String output) {
+    Map<Integer, Integer> exitCodes = new HashMap<>();
+    for (String line : output.split("\n")) {
+      String[] parts = line.trim().split(" ");
+      if (parts.length != 3 || !parts[0].equals(STATUS_TAG)) {
+        continue;
+      }
+      try {
+        exitCodes.put(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+      } catch (NumberFormatException e) {
+        LOG.debug("Ignoring malformed status line: {}", line);
+      }
+    }
+    return exitCodes;
+  }
+}
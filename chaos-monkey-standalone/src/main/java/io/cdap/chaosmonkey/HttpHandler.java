@@ -16,20 +16,36 @@
 
 package io.cdap.chaosmonkey;
 
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import io.cdap.chaosmonkey.common.Constants;
 import io.cdap.chaosmonkey.proto.ActionArguments;
+import io.cdap.chaosmonkey.proto.BatchEntry;
 import io.cdap.http.AbstractHttpHandler;
 import io.cdap.http.HttpResponder;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * The class that handles HTTP calls.
@@ -37,7 +53,9 @@ import javax.ws.rs.PathParam;
 @Path(Constants.Server.API_VERSION_1)
 public class HttpHandler extends AbstractHttpHandler {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HttpHandler.class);
   private static final Gson GSON = new Gson();
+  private static final Type BATCH_TYPE = new TypeToken<List<BatchEntry>>() { }.getType();
 
   private final ChaosMonkeyService chaosMonkeyService;
 
@@ -52,34 +70,126 @@ public class HttpHandler extends AbstractHttpHandler {
     ActionArguments actionArguments = GSON.fromJson(request.content().toString(StandardCharsets.UTF_8),
                                                     ActionArguments.class);
 
-    chaosMonkeyService.executeAction(service, action, actionArguments);
-    responder.sendString(HttpResponseStatus.OK, "success");
+    responder.sendString(HttpResponseStatus.OK, chaosMonkeyService.executeAction(service, action, actionArguments));
   }
 
+  /**
+   * Cancels the given action on the given service, interrupting it between the steps it performs on each node. If id
+   * is set, the action is only cancelled if it has that ID.
+   */
+  @DELETE
+  @Path("/services/{service}/{action}")
+  public void cancelAction(HttpRequest request, HttpResponder responder,
+                           @PathParam("service") String service, @PathParam("action") String action,
+                           @QueryParam("id") String id) {
+    if (!chaosMonkeyService.cancelAction(service, action, id)) {
+      throw new IllegalStateException(String.format("Conflict: %s %s is not running", service, action));
+    }
+    responder.sendString(HttpResponseStatus.OK, "cancelled");
+  }
+
+  /**
+   * Executes a batch of actions, given as a list of service, action and actionArguments. Every entry is validated
+   * before any is submitted.
+   */
+  @POST
+  @Path("/batch")
+  public void executeBatch(FullHttpRequest request, HttpResponder responder) {
+    List<BatchEntry> entries = GSON.fromJson(request.content().toString(StandardCharsets.UTF_8), BATCH_TYPE);
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.executeBatch(entries)));
+  }
+
+  /**
+   * Gets the current state of each entry of the batch with the given ID
+   */
+  @GET
+  @Path("/batch/{id}")
+  public void getBatchStatus(HttpRequest request, HttpResponder responder, @PathParam("id") String id) {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getBatchStatus(id)));
+  }
+
+  /**
+   * Gets whether the given action is running on the given service. If waitMillis is set, the response is held until
+   * the action is no longer running or waitMillis passes, without holding a thread.
+   */
   @GET
   @Path("/services/{service}/{action}/status")
-  public void getActionStatus(HttpRequest request, HttpResponder responder,
+  public void getActionStatus(HttpRequest request, final HttpResponder responder,
                                       @PathParam("service") String service,
-                                      @PathParam("action") String action) {
-    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getActionStatus(service, action)));
+                                      @PathParam("action") String action,
+                                      @QueryParam("waitMillis") @DefaultValue("0") long waitMillis) {
+    sendJsonWhenDone(chaosMonkeyService.getActionStatus(service, action, waitMillis), responder);
   }
 
   /**
-   * Gets the status of services managed by chaos monkey on the given ip address
+   * Gets the result of the disruption with the given ID
+   */
+  @GET
+  @Path("/disruptions/{id}")
+  public void getDisruptionResult(HttpRequest request, HttpResponder responder, @PathParam("id") String id) {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getDisruptionResult(id)));
+  }
+
+  /**
+   * Gets the results of the disruptions with the given comma separated IDs. If waitMillis is set, the response is held
+   * until any of the disruptions is done or waitMillis passes, without holding a thread.
+   */
+  @GET
+  @Path("/disruptions")
+  public void getDisruptionResults(HttpRequest request, HttpResponder responder,
+                                   @QueryParam("ids") @DefaultValue("") String ids,
+                                   @QueryParam("waitMillis") @DefaultValue("0") long waitMillis) {
+    sendJsonWhenDone(chaosMonkeyService.getDisruptionResults(
+      Splitter.on(',').omitEmptyStrings().trimResults().splitToList(ids), waitMillis), responder);
+  }
+
+  /**
+   * Gets the status of services managed by chaos monkey on the given ip address. The status is read from the latest
+   * status snapshot, unless fresh is set.
    */
   @GET
   @Path("/nodes/{ip}/status")
-  public void getNodeStatus(HttpRequest request, HttpResponder responder, @PathParam("ip") String ip) throws Exception {
-    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getNodeStatus(ip)));
+  public void getNodeStatus(HttpRequest request, HttpResponder responder, @PathParam("ip") String ip,
+                            @QueryParam("fresh") @DefaultValue("false") boolean fresh) throws Exception {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getNodeStatus(ip, fresh)));
   }
 
   /**
-   * Gets the status of all services managed by chaos monkey
+   * Gets the status of all services managed by chaos monkey. The statuses are read from the latest status snapshot,
+   * unless fresh is set.
    */
   @GET
   @Path("/status")
-  public void getNodeStatuses(HttpRequest request, HttpResponder responder) throws Exception {
-    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getNodeStatuses()));
+  public void getNodeStatuses(HttpRequest request, HttpResponder responder,
+                              @QueryParam("fresh") @DefaultValue("false") boolean fresh) throws Exception {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getNodeStatuses(fresh)));
+  }
+
+  /**
+   * Gets counters describing the load on chaos monkey's executors
+   */
+  @GET
+  @Path("/metrics")
+  public void getMetrics(HttpRequest request, HttpResponder responder) {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getMetrics()));
+  }
+
+  /**
+   * Gets the state of each scheduled disruption, including when its next iterations are due
+   */
+  @GET
+  @Path("/schedules")
+  public void getSchedules(HttpRequest request, HttpResponder responder) {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getSchedules()));
+  }
+
+  /**
+   * Gets the processes currently taken down by disruptions and the budget of processes that may be down at a time
+   */
+  @GET
+  @Path("/budget")
+  public void getBudget(HttpRequest request, HttpResponder responder) {
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getBudget()));
   }
 
   /**
@@ -90,4 +200,40 @@ public class HttpHandler extends AbstractHttpHandler {
   public void getServices(HttpRequest request, HttpResponder responder) throws Exception {
     responder.sendJson(HttpResponseStatus.OK, GSON.toJson(chaosMonkeyService.getServices()));
   }
+
+  /**
+   * Gets the progress of startup, responding with 503 until the service is ready to accept disruptions
+   */
+  @GET
+  @Path("/ready")
+  public void getReadiness(HttpRequest request, HttpResponder responder) {
+    Map<String, Object> readiness = chaosMonkeyService.getReadiness();
+    HttpResponseStatus status = Boolean.TRUE.equals(readiness.get("ready")) ?
+      HttpResponseStatus.OK : HttpResponseStatus.SERVICE_UNAVAILABLE;
+    responder.sendJson(status, GSON.toJson(readiness));
+  }
+
+  /**
+   * Responds with the value of a future once it is done, or with an error if the future failed or was cancelled, so
+   * that a held request is always answered
+   */
+  private static void sendJsonWhenDone(final ListenableFuture<?> future, final HttpResponder responder) {
+    future.addListener(new Runnable() {
+      @Override
+      public void run() {
+        Object value;
+        try {
+          value = Futures.getUnchecked(future);
+        } catch (CancellationException e) {
+          responder.sendString(HttpResponseStatus.SERVICE_UNAVAILABLE, "Cancelled while waiting");
+          return;
+        } catch (UncheckedExecutionException e) {
+          LOG.error("Unable to respond to a held request", e.getCause());
+          responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, String.valueOf(e.getCause().getMessage()));
+          return;
+        }
+        responder.sendJson(HttpResponseStatus.OK, GSON.toJson(value));
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A single entry of the {@link EventJournal}
+ */
+public class JournalEvent {
+  /**
+   * Start of a run, carrying the seed of the run
+   */
+  public static final String RUN = "run";
+  /**
+   * Action picked by a scheduled disruption
+   */
+  public static final String SCHEDULE = "schedule";
+  /**
+   * Action submitted through {@link ChaosMonkeyService}
+   */
+  public static final String API = "api";
+  /**
+   * Action re-executed from a journal
+   */
+  public static final String REPLAY = "replay";
+
+  private final long time;
+  private final String source;
+  private final String service;
+  private final String action;
+  private final Collection<String> nodes;
+  private final Long seed;
+  private final String id;
+
+  public JournalEvent(long time, String source, @Nullable String service, @Nullable String action,
+                      @Nullable Collection<String> nodes, @Nullable Long seed, @Nullable String id) {
+    this.time = time;
+    this.source = source;
+    this.service = service;
+    this.action = action;
+    this.nodes = nodes;
+    this.seed = seed;
+    this.id = id;
+  }
+
+  /**
+   * Creates the event recording the start of a run
+   */
+  public static JournalEvent run(long seed) {
+    return new JournalEvent(System.currentTimeMillis(), RUN, null, null, null, seed, null);
+  }
+
+  /**
+   * Creates the event recording an action on the given nodes
+   */
+  public static JournalEvent action(String source, String service, String action, List<String> nodes,
+                                    @Nullable String id) {
+    return new JournalEvent(System.currentTimeMillis(), source, service, action, nodes, null, id);
+  }
+
+  /**
+   * Returns the time of the event in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  @Nullable
+  public String getService() {
+    return service;
+  }
+
+  @Nullable
+  public String getAction() {
+    return action;
+  }
+
+  @Nullable
+  public Collection<String> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the seed of the run, if this event records the start of a run
+   */
+  @Nullable
+  public Long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the ID of the submitted disruption, if the action was submitted through {@link ChaosMonkeyService}
+   */
+  @Nullable
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns whether the event records an action that can be replayed
+   */
+  public boolean isAction() {
+    return service != null && action != null && nodes != null && !nodes.isEmpty();
+  }
+}
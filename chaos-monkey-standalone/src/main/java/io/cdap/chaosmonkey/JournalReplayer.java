@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that re-executes the actions of a journal against the cluster, keeping the time between actions divided by
+ * the given speed. Each run in the journal is replayed right after the previous one, and actions that were replayed
+ * from a journal are not replayed again. An action that is still running from an earlier event is waited for before
+ * it is replayed.
+ */
+public class JournalReplayer extends AbstractExecutionThreadService {
+  private static final Logger LOG = LoggerFactory.getLogger(JournalReplayer.class);
+
+  private final ChaosMonkeyService chaosMonkeyService;
+  private final List<JournalEvent> events;
+  private final double speed;
+  private final CountDownLatch stopLatch;
+
+  /**
+   * @param chaosMonkeyService Service used to execute the actions
+   * @param events Events of the journal to replay
+   * @param speed Factor by which the replay is faster than the original run, 1 to replay at the original speed
+   */
+  public JournalReplayer(ChaosMonkeyService chaosMonkeyService, List<JournalEvent> events, double speed) {
+    if (speed <= 0) {
+      throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+    }
+    this.chaosMonkeyService = chaosMonkeyService;
+    this.events = events;
+    this.speed = speed;
+    this.stopLatch = new CountDownLatch(1);
+  }
+
+  @Override
+  protected void run() throws Exception {
+    if (events.isEmpty()) {
+      return;
+    }
+    long firstTime = events.get(0).getTime();
+    long startTime = System.currentTimeMillis();
+    int replayed = 0;
+    for (JournalEvent event : events) {
+      if (event.getSource().equals(JournalEvent.RUN)) {
+        // The journal is appended to by every run, so the time between runs is not replayed
+        LOG.info("Replaying run with seed {}", event.getSeed());
+        firstTime = event.getTime();
+        startTime = System.currentTimeMillis();
+      }
+      if (!event.isAction() || event.getSource().equals(JournalEvent.REPLAY)) {
+        // A replayed action repeats an event of an earlier run, replaying it again would run that action twice
+        continue;
+      }
+      long delay = startTime + (long) ((event.getTime() - firstTime) / speed) - System.currentTimeMillis();
+      if (stopLatch.await(Math.max(0, delay), TimeUnit.MILLISECONDS)) {
+        LOG.info("Replay stopped after {} actions", replayed);
+        return;
+      }
+      try {
+        chaosMonkeyService.replay(event);
+        replayed++;
+      } catch (Exception e) {
+        LOG.error("Unable to replay {} of {} on {}", event.getAction(), event.getService(), event.getNodes(), e);
+      }
+    }
+    LOG.info("Finished replaying {} actions", replayed);
+  }
+
+  @Override
+  protected void triggerShutdown() {
+    stopLatch.countDown();
+  }
+}
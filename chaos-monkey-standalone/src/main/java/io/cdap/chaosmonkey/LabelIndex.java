@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Inverted index from the labels of each node to the processes on it, by service, so that the processes matching a
+ * label selector are found without scanning every process of the service. Processes are kept ordered by address, so
+ * that the same seed picks the same nodes. An index is immutable, and is rebuilt when the topology changes.
+ */
+public final class LabelIndex {
+  private static final Splitter LABEL_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+  // Processes by service, label name and label value
+  private final Map<String, Map<String, Map<String, List<RemoteProcess>>>> postings;
+  // Labels by address
+  private final Map<String, Map<String, String>> hostLabels;
+
+  private LabelIndex(Map<String, Map<String, Map<String, List<RemoteProcess>>>> postings,
+                     Map<String, Map<String, String>> hostLabels) {
+    this.postings = postings;
+    this.hostLabels = hostLabels;
+  }
+
+  /**
+   * Creates an index of the labels of the processes of every service
+   *
+   * @param processTable Table from address and service name to the process
+   * @param hostLabels Labels of each host, from label name to value
+   */
+  public static LabelIndex build(Table<String, String, RemoteProcess> processTable,
+                                 Map<String, Map<String, String>> hostLabels) {
+    Map<String, Map<String, Map<String, List<RemoteProcess>>>> postings = new HashMap<>();
+    for (String service : processTable.columnKeySet()) {
+      Map<String, Map<String, List<RemoteProcess>>> servicePostings = new HashMap<>();
+      for (Map.Entry<String, RemoteProcess> entry : new TreeMap<>(processTable.column(service)).entrySet()) {
+        Map<String, String> labels = hostLabels.get(entry.getKey());
+        if (labels == null) {
+          continue;
+        }
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+          Map<String, List<RemoteProcess>> values = servicePostings.get(label.getKey());
+          if (values == null) {
+            values = new TreeMap<>();
+            servicePostings.put(label.getKey(), values);
+          }
+          List<RemoteProcess> processes = values.get(label.getValue());
+          if (processes == null) {
+            processes = new ArrayList<>();
+            values.put(label.getValue(), processes);
+          }
+          processes.add(entry.getValue());
+        }
+      }
+      for (Map<String, List<RemoteProcess>> values : servicePostings.values()) {
+        for (Map.Entry<String, List<RemoteProcess>> value : values.entrySet()) {
+          value.setValue(ImmutableList.copyOf(value.getValue()));
+        }
+      }
+      postings.put(service, servicePostings);
+    }
+    return new LabelIndex(postings, ImmutableMap.copyOf(hostLabels));
+  }
+
+  /**
+   * Creates an index without any labels
+   */
+  public static LabelIndex empty() {
+    return new LabelIndex(Collections.<String, Map<String, Map<String, List<RemoteProcess>>>>emptyMap(),
+                          Collections.<String, Map<String, String>>emptyMap());
+  }
+
+  /**
+   * Parses labels given as comma separated name=value pairs, such as {@code rack=r2,zone=us-east-1a}
+   *
+   * @param labels The labels, or {@code null} if there are none
+   * @return Map from label name to value
+   * @throws IllegalArgumentException if a pair does not have a name and a value
+   */
+  public static Map<String, String> parseLabels(@Nullable String labels) {
+    if (labels == null) {
+      return ImmutableMap.of();
+    }
+    Map<String, String> parsed = new LinkedHashMap<>();
+    for (String label : LABEL_SPLITTER.split(labels)) {
+      int separator = label.indexOf('=');
+      if (separator <= 0 || separator == label.length() - 1) {
+        throw new IllegalArgumentException("Label needs to be a name=value pair: " + label);
+      }
+      parsed.put(label.substring(0, separator).trim(), label.substring(separator + 1).trim());
+    }
+    return ImmutableMap.copyOf(parsed);
+  }
+
+  /**
+   * Returns the labels of every host, from address to label name and value
+   */
+  public Map<String, Map<String, String>> getHostLabels() {
+    return hostLabels;
+  }
+
+  /**
+   * Returns the labels of a host
+   */
+  public Map<String, String> getLabels(String address) {
+    Map<String, String> labels = hostLabels.get(address);
+    return labels == null ? ImmutableMap.<String, String>of() : labels;
+  }
+
+  /**
+   * Returns the processes of a service on nodes that have all of the given labels, ordered by address. Only the
+   * processes with the rarest of the given labels are looked at.
+   *
+   * @param service Name of the service
+   * @param selector Labels the nodes must have, from label name to value
+   */
+  public List<RemoteProcess> select(String service, Map<String, String> selector) {
+    List<RemoteProcess> candidates = null;
+    for (Map.Entry<String, String> label : selector.entrySet()) {
+      List<RemoteProcess> processes = getPostings(service, label.getKey()).get(label.getValue());
+      if (processes == null) {
+        return ImmutableList.of();
+      }
+      if (candidates == null || processes.size() < candidates.size()) {
+        candidates = processes;
+      }
+    }
+    if (candidates == null) {
+      return ImmutableList.of();
+    }
+    if (selector.size() == 1) {
+      return candidates;
+    }
+
+    List<RemoteProcess> selected = new ArrayList<>();
+    for (RemoteProcess process : candidates) {
+      if (matches(getLabels(process.getAddress()), selector)) {
+        selected.add(process);
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Groups processes of a service by the value of a label, leaving out processes on nodes without the label
+   *
+   * @param service Name of the service
+   * @param label Name of the label
+   * @param processes Processes to group ordered by address, or {@code null} to group all processes of the service
+   * @return Map from label value to the processes on nodes with that value, ordered by value and by address
+   */
+  public Map<String, List<RemoteProcess>> groupBy(String service, String label,
+                                                  @Nullable Collection<RemoteProcess> processes) {
+    if (processes == null) {
+      return getPostings(service, label);
+    }
+    Map<String, List<RemoteProcess>> groups = new TreeMap<>();
+    for (RemoteProcess process : processes) {
+      String value = getLabels(process.getAddress()).get(label);
+      if (value == null) {
+        continue;
+      }
+      List<RemoteProcess> group = groups.get(value);
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.put(value, group);
+      }
+      group.add(process);
+    }
+    return groups;
+  }
+
+  private Map<String, List<RemoteProcess>> getPostings(String service, String label) {
+    Map<String, Map<String, List<RemoteProcess>>> servicePostings = postings.get(service);
+    Map<String, List<RemoteProcess>> values = servicePostings == null ? null : servicePostings.get(label);
+    return values == null ? Collections.<String, List<RemoteProcess>>emptyMap() : Collections.unmodifiableMap(values);
+  }
+
+  private static boolean matches(Map<String, String> labels, Map<String, String> selector) {
+    for (Map.Entry<String, String> label : selector.entrySet()) {
+      if (!label.getValue().equals(labels.get(label.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
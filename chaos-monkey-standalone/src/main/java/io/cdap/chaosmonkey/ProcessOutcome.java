@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+/**
+ * Outcome of a disruption on a single process
+ */
+public enum ProcessOutcome {
+  /**
+   * The process reached the state intended by the disruption
+   */
+  SUCCEEDED,
+
+  /**
+   * The process was already in the intended state, so the disruption was not attempted
+   */
+  SKIPPED,
+
+  /**
+   * The disruption was attempted but the process did not reach the intended state
+   */
+  FAILED
+}
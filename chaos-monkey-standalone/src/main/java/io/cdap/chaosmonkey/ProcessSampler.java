@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Picks random processes out of a fixed set of processes. Sampling k of n processes takes O(k) time and space, using a
+ * partial Fisher-Yates shuffle that records the swapped positions in a map instead of shuffling a copy of the
+ * processes. The processes are never modified, so a sampler can be shared between threads. Creating a sampler over an
+ * {@link ImmutableList} does not copy it.
+ */
+public class ProcessSampler {
+  private final List<RemoteProcess> processes;
+
+  public ProcessSampler(Collection<RemoteProcess> processes) {
+    this.processes = ImmutableList.copyOf(processes);
+  }
+
+  /**
+   * Returns the number of processes to sample from
+   */
+  public int size() {
+    return processes.size();
+  }
+
+  /**
+   * Picks distinct processes uniformly at random
+   *
+   * @param count Number of processes to pick, capped by the number of processes
+   * @param random Source of randomness
+   * @return List of the picked processes, in random order
+   */
+  public List<RemoteProcess> sample(int count, Random random) {
+    int k = Math.max(0, Math.min(count, processes.size()));
+    List<RemoteProcess> sample = new ArrayList<>(k);
+    // Positions of the virtual shuffle that no longer hold their own index
+    Map<Integer, Integer> swapped = new HashMap<>();
+    for (int i = 0; i < k; i++) {
+      int j = i + random.nextInt(processes.size() - i);
+      Integer atI = swapped.get(i);
+      Integer atJ = swapped.get(j);
+      sample.add(processes.get(atJ == null ? j : atJ));
+      swapped.put(j, atI == null ? i : atI);
+    }
+    return sample;
+  }
+}
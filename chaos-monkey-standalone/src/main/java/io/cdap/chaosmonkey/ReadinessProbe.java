@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Checks whether restarted processes are ready to serve again. A process is ready once it is running and, if
+ * configured, its health command exits with {@code 0} and its health URL responds with a 2xx status. The processes
+ * are checked concurrently on the {@link FanOutExecutor} if one is given, or else one at a time.
+ */
+public class ReadinessProbe {
+  private static final Logger LOG = LoggerFactory.getLogger(ReadinessProbe.class);
+  private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final int HTTP_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(5);
+
+  private final String healthCommand;
+  private final String healthUrl;
+  private final long timeoutMillis;
+  private final FanOutExecutor executor;
+
+  /**
+   * @param healthCommand Optional, command run on the host of a process that exits with {@code 0} if it is healthy
+   * @param healthUrl Optional, URL that responds with a 2xx status if a process is healthy, {host} is replaced with
+   *                  the address of the process
+   * @param timeoutMillis Maximum time to wait for processes to be ready
+   */
+  public ReadinessProbe(@Nullable String healthCommand, @Nullable String healthUrl, long timeoutMillis) {
+    this(healthCommand, healthUrl, timeoutMillis, null);
+  }
+
+  /**
+   * @param healthCommand Optional, command run on the host of a process that exits with {@code 0} if it is healthy
+   * @param healthUrl Optional, URL that responds with a 2xx status if a process is healthy, {host} is replaced with
+   *                  the address of the process
+   * @param timeoutMillis Maximum time to wait for processes to be ready
+   * @param executor Optional, executor the processes are checked on concurrently
+   */
+  public ReadinessProbe(@Nullable String healthCommand, @Nullable String healthUrl, long timeoutMillis,
+                        @Nullable FanOutExecutor executor) {
+    this.healthCommand = healthCommand;
+    this.healthUrl = healthUrl;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = executor;
+  }
+
+  /**
+   * Waits for the given processes to be ready, checking the ones that are not ready yet with an exponential backoff.
+   *
+   * @return The processes that were still not ready once the timeout passed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public List<RemoteProcess> awaitReady(Collection<RemoteProcess> processes) throws InterruptedException {
+    List<RemoteProcess> notReady = new ArrayList<>(processes);
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long backoff = INITIAL_BACKOFF_MILLIS;
+    while (true) {
+      notReady = executor == null ? checkSerially(notReady) : checkConcurrently(notReady);
+
+      long remaining = deadline - System.currentTimeMillis();
+      if (notReady.isEmpty() || remaining <= 0) {
+        return notReady;
+      }
+      TimeUnit.MILLISECONDS.sleep(Math.min(backoff, remaining));
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+  }
+
+  /**
+   * Returns the given processes that are not ready, checking one process at a time
+   */
+  private List<RemoteProcess> checkSerially(List<RemoteProcess> processes) throws InterruptedException {
+    List<RemoteProcess> notReady = new ArrayList<>();
+    for (RemoteProcess process : processes) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedException();
+      }
+      if (!isReady(process)) {
+        notReady.add(process);
+      }
+    }
+    return notReady;
+  }
+
+  /**
+   * Returns the given processes that are not ready, checking every process at once on the executor
+   */
+  private List<RemoteProcess> checkConcurrently(List<RemoteProcess> processes) throws InterruptedException {
+    List<ListenableFuture<Boolean>> futures = new ArrayList<>();
+    try {
+      for (final RemoteProcess process : processes) {
+        futures.add(executor.submit(process.getAddress(), new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            return isReady(process);
+          }
+        }));
+      }
+      List<RemoteProcess> notReady = new ArrayList<>();
+      for (int i = 0; i < futures.size(); i++) {
+        if (!getResult(futures.get(i))) {
+          notReady.add(processes.get(i));
+        }
+      }
+      return notReady;
+    } catch (InterruptedException e) {
+      for (ListenableFuture<Boolean> future : futures) {
+        future.cancel(true);
+      }
+      throw e;
+    }
+  }
+
+  private static boolean getResult(ListenableFuture<Boolean> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException | CancellationException e) {
+      // Rejected by an executor that is shutting down
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether the given process is ready
+   */
+  public boolean isReady(RemoteProcess process) {
+    try {
+      if (!process.isRunning()) {
+        return false;
+      }
+      if (healthCommand != null && !process.execAndReturnSucessful(healthCommand)) {
+        LOG.debug("Health command of {} on {} failed", process.getName(), process.getAddress());
+        return false;
+      }
+      return healthUrl == null || isHealthy(new URL(healthUrl.replace("{host}", process.getAddress())));
+    } catch (Exception e) {
+      LOG.debug("Unable to check the readiness of {} on {}", process.getName(), process.getAddress(), e);
+      return false;
+    }
+  }
+
+  private boolean isHealthy(URL url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setConnectTimeout(HTTP_TIMEOUT_MILLIS);
+      connection.setReadTimeout(HTTP_TIMEOUT_MILLIS);
+      int responseCode = connection.getResponseCode();
+      LOG.debug("Health check {} responded with {}", url, responseCode);
+      return responseCode >= 200 && responseCode < 300;
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
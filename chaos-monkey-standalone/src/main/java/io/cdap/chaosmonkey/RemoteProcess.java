@@ -65,6 +65,11 @@ public interface RemoteProcess {
    */
   ShellOutput execAndGetOutput(String command) throws JSchException;
 
+  /**
+   * Returns the command that exits with {@code 0} if the process is running.
+   */
+  String getStatusCommand();
+
   /**
    * Returns whether the process is running.
    *
@@ -19,29 +19,28 @@ package io.cdap.chaosmonkey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
 import java.util.Map;
-import javax.annotation.Nullable;
 
 /**
  * A disruption that restarts a process
  */
-public class Restart implements Disruption {
+public class Restart extends AbstractProcessDisruption {
   private static final Logger LOGGER = LoggerFactory.getLogger(Restart.class);
 
   @Override
-  public void disrupt(Collection<RemoteProcess> processes, @Nullable Map<String, String> serviceArguments)
+  protected ProcessOutcome disruptProcess(RemoteProcess process, Map<String, String> serviceArguments)
     throws Exception {
-    for (RemoteProcess process : processes) {
-      LOGGER.info("Attempting to restart {} on {}", process.getName(), process.getAddress());
-      process.execAndGetReturnCode(String.format("sudo service %s %s", process.getName(), this.getName()));
+    String command = String.format("sudo service %s %s", process.getName(), this.getName());
+    ActionScript.Result result = new ActionScript(command, true, false,
+                                                  getVerifyTimeoutSeconds(serviceArguments)).run(process);
 
-      if (process.isRunning()) {
-        LOGGER.info("{} on {} is now running", process.getName(), process.getAddress());
-      } else {
-        LOGGER.info("{} on {} did not restart", process.getName(), process.getAddress());
-      }
+    if (result.getOutcome() == ProcessOutcome.SUCCEEDED) {
+      LOGGER.info("{} on {} is now running", process.getName(), process.getAddress());
+    } else {
+      LOGGER.info("{} on {} did not restart, restart exited with {}: {}", process.getName(), process.getAddress(),
+                  result.getActionExitCode(), result.getErrorOutput());
     }
+    return result.getOutcome();
   }
 
   @Override
@@ -16,22 +16,56 @@
 
 package io.cdap.chaosmonkey;
 
+import io.cdap.chaosmonkey.common.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
- * Restarts given service on each node sequentially
+ * Restarts given service on each node sequentially. If batchSize or maxUnavailable is given, nodes are instead
+ * restarted in batches, and the next batch starts as soon as the restarted processes pass a {@link ReadinessProbe}.
+ * The health command and health URL of the probe are only read from the configuration of the service, never from
+ * the service arguments of a request, since the command runs on every node and the URL is fetched by Chaos Monkey.
  */
 public class RollingRestart implements Disruption {
   private static final Logger LOG = LoggerFactory.getLogger(RollingRestart.class);
-  private static final Start start = new Start();
-  private static final Stop stop = new Stop();
+  private static final String RESTART_TIME = "restartTime";
+  private static final String DELAY = "delay";
+  private static final String BATCH_SIZE = "batchSize";
+  private static final String MAX_UNAVAILABLE = "maxUnavailable";
+  private static final String READINESS_TIMEOUT_SECONDS = "readinessTimeout";
+  private static final String HEALTH_COMMAND = "healthCommand";
+  private static final String HEALTH_URL = "healthUrl";
+  private static final int DEFAULT_READINESS_TIMEOUT_SECONDS = 300;
+
+  private final Start start = new Start();
+  private final Stop stop = new Stop();
+  private volatile FanOutExecutor executor;
+  private volatile Configuration conf;
+
+  /**
+   * Sets the executor used to stop, start and probe the processes of a batch concurrently.
+   */
+  public void setExecutor(@Nullable FanOutExecutor executor) {
+    this.executor = executor;
+    start.setExecutor(executor);
+    stop.setExecutor(executor);
+  }
+
+  /**
+   * Sets the configuration that the {service}.healthCommand and {service}.healthUrl of the readiness probe are read
+   * from. Without a configuration, processes are ready once they are running.
+   */
+  public void setConfiguration(@Nullable Configuration conf) {
+    this.conf = conf;
+  }
 
   /**
    * Starts a rolling restart on given list of processes.
@@ -45,10 +79,11 @@ public class RollingRestart implements Disruption {
     throws Exception {
     if (serviceArguments == null) {
       disrupt(processes, null, null);
+    } else if (serviceArguments.get(BATCH_SIZE) != null || serviceArguments.get(MAX_UNAVAILABLE) != null) {
+      disruptInBatches(processes, serviceArguments);
     } else {
-      Integer restartTime = serviceArguments.get("restartTime") == null ? null :
-        new Integer(serviceArguments.get("restartTime"));
-      Integer delay = serviceArguments.get("delay") == null ? null : new Integer(serviceArguments.get("delay"));
+      Integer restartTime = getInteger(serviceArguments, RESTART_TIME);
+      Integer delay = getInteger(serviceArguments, DELAY);
       disrupt(processes, restartTime, delay);
     }
   }
@@ -78,6 +113,86 @@ public class RollingRestart implements Disruption {
     }
   }
 
+  /**
+   * Restarts the given processes in batches of at most batchSize nodes, keeping at most maxUnavailable nodes down at a
+   * time. Nodes that do not pass the readiness probe remain counted as unavailable, and the rolling restart is aborted
+   * once no more nodes can be taken down.
+   */
+  private void disruptInBatches(Collection<RemoteProcess> processes, Map<String, String> serviceArguments)
+    throws Exception {
+    if (processes.size() < 1) {
+      throw new IllegalArgumentException("Process list has an invalid size of: " + processes.size());
+    }
+
+    Integer batchSize = getInteger(serviceArguments, BATCH_SIZE);
+    Integer maxUnavailable = getInteger(serviceArguments, MAX_UNAVAILABLE);
+    batchSize = batchSize == null ? maxUnavailable : batchSize;
+    maxUnavailable = maxUnavailable == null ? batchSize : maxUnavailable;
+    if (batchSize <= 0 || maxUnavailable <= 0) {
+      throw new IllegalArgumentException(String.format("%s and %s must be positive: %d, %d",
+                                                       BATCH_SIZE, MAX_UNAVAILABLE, batchSize, maxUnavailable));
+    }
+    Integer restartTime = getInteger(serviceArguments, RESTART_TIME);
+    Integer delay = getInteger(serviceArguments, DELAY);
+    restartTime = (restartTime == null || restartTime < 0) ? 0 : restartTime;
+    delay = (delay == null || delay < 0) ? 0 : delay;
+    Integer readinessTimeout = getInteger(serviceArguments, READINESS_TIMEOUT_SECONDS);
+    String service = processes.iterator().next().getName();
+    if (serviceArguments.containsKey(HEALTH_COMMAND) || serviceArguments.containsKey(HEALTH_URL)) {
+      LOG.warn("Ignoring the {} and {} service arguments of {} of {}, they can only be configured", HEALTH_COMMAND,
+               HEALTH_URL, getName(), service);
+    }
+    Configuration conf = this.conf;
+    ReadinessProbe probe = new ReadinessProbe(conf == null ? null : conf.get(service + "." + HEALTH_COMMAND),
+                                              conf == null ? null : conf.get(service + "." + HEALTH_URL),
+                                              TimeUnit.SECONDS.toMillis(readinessTimeout == null ?
+                                                DEFAULT_READINESS_TIMEOUT_SECONDS : readinessTimeout),
+                                              executor);
+
+    List<RemoteProcess> remaining = new ArrayList<>(processes);
+    List<RemoteProcess> unavailable = new ArrayList<>();
+    while (!remaining.isEmpty()) {
+      int size = Math.min(batchSize, maxUnavailable - unavailable.size());
+      if (size <= 0) {
+        throw new IllegalStateException(String.format("Aborting %s of %s, %d nodes did not become ready: %s",
+                                                      getName(), remaining.get(0).getName(), unavailable.size(),
+                                                      getAddresses(unavailable)));
+      }
+      List<RemoteProcess> batch = new ArrayList<>(remaining.subList(0, Math.min(size, remaining.size())));
+      remaining.removeAll(batch);
+
+      stop.disruptAll(batch, serviceArguments);
+      TimeUnit.SECONDS.sleep(restartTime);
+      start.disruptAll(batch, serviceArguments);
+      List<RemoteProcess> notReady = probe.awaitReady(batch);
+      if (!notReady.isEmpty()) {
+        LOG.warn("{} nodes did not become ready after {} of {}: {}", notReady.size(), getName(),
+                 notReady.get(0).getName(), getAddresses(notReady));
+        unavailable.addAll(notReady);
+      }
+      if (!remaining.isEmpty()) {
+        TimeUnit.SECONDS.sleep(delay);
+      }
+    }
+    if (!unavailable.isEmpty()) {
+      throw new IllegalStateException(String.format("%d nodes did not become ready after %s: %s", unavailable.size(),
+                                                    getName(), getAddresses(unavailable)));
+    }
+  }
+
+  @Nullable
+  private static Integer getInteger(Map<String, String> serviceArguments, String key) {
+    return serviceArguments.get(key) == null ? null : Integer.valueOf(serviceArguments.get(key));
+  }
+
+  private static List<String> getAddresses(Collection<RemoteProcess> processes) {
+    List<String> addresses = new ArrayList<>();
+    for (RemoteProcess process : processes) {
+      addresses.add(process.getAddress());
+    }
+    return addresses;
+  }
+
   @Override
   public String getName() {
     return "rolling-restart";
@@ -16,94 +16,240 @@
 
 package io.cdap.chaosmonkey;
 
-import com.google.common.util.concurrent.AbstractScheduledService;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
- * Scheduled service that will periodically disrupt configured services
+ * Disruption of a configured service that is run periodically by the {@link DisruptionScheduler}. Each iteration picks
+ * one of the disruptions of the service, or none, according to their probabilities, and submits it through a
+ * {@link DisruptionSubmitter} so that it shows up in the action status and conflicts with the same running action.
  */
-public class ScheduledDisruption extends AbstractScheduledService {
+public class ScheduledDisruption {
   private static final Logger LOG = LoggerFactory.getLogger(ScheduledDisruption.class);
 
-  private List<RemoteProcess> processes;
-  private double stopProbability;
-  private double killProbability;
-  private double restartProbability;
-  private int executionPeriod;
-  private int minNodesPerIteration;
-  private int maxNodesPerIteration;
-  private Kill kill = new Kill();
-  private Stop stop = new Stop();
-  private Restart restart = new Restart();
+  private final String service;
+  private final AliasSampler<String> disruptionSampler;
+  private final int executionPeriod;
+  private final int minNodesPerIteration;
+  private final int maxNodesPerIteration;
+  private volatile Targets targets;
+  private final Random random;
+  // Jitter is drawn by the timer while iterations draw from random, so it has a source of its own
+  private final Random jitterRandom;
+  private final DisruptionSubmitter submitter;
+  private DelayDistribution recoveryDelay;
+  private ArrivalProcess arrivalProcess;
 
   /**
    *
    * @param processes A list of processes that will be managed
-   * @param stopProbability Probability that this process will be stopped in the current interval
-   * @param killProbability Probability that this process will be killed in the current interval
-   * @param restartProbability Probability that this process will be restarted in the current interval
+   * @param probabilities Map from the name of each disruption to the probability that it is performed in an interval,
+   *                      adding up to at most 1
    * @param executionPeriod The rate of execution cycles (in seconds)
    * @param minNodesPerIteration The minimum number of nodes that will be affected by chaos monkey each iteration
    * @param maxNodesPerIteration The maximum number of nodes that will be affected by chaos monkey each iteration
+   * @param random Source of every random choice of this schedule
+   * @param submitter Submitter of the disruptions picked by this schedule
    */
   public ScheduledDisruption(List<RemoteProcess> processes,
-                             double stopProbability,
-                             double killProbability,
-                             double restartProbability,
+                             Map<String, Double> probabilities,
                              int executionPeriod,
                              int minNodesPerIteration,
-                             int maxNodesPerIteration) {
-    this.processes = processes;
-    this.stopProbability = stopProbability;
-    this.killProbability = killProbability;
-    this.restartProbability = restartProbability;
+                             int maxNodesPerIteration,
+                             Random random,
+                             DisruptionSubmitter submitter) {
+    this.random = random;
+    this.jitterRandom = new Random(random.nextLong());
+    this.submitter = submitter;
+    this.service = processes.get(0).getName();
+    this.disruptionSampler = new AliasSampler<>(probabilities);
     this.executionPeriod = executionPeriod;
+    this.minNodesPerIteration = minNodesPerIteration;
+    this.maxNodesPerIteration = maxNodesPerIteration;
+    this.targets = new Targets(processes);
+  }
+
+  /**
+   * Replaces the processes disrupted by the iterations of this schedule, for instance when nodes joined or left the
+   * cluster. An iteration that is already running keeps the processes it picked.
+   *
+   * @param processes The processes of the service, which may be empty
+   * @throws IllegalArgumentException if the number of nodes per iteration is not valid for the new processes
+   */
+  public void setProcesses(List<RemoteProcess> processes) {
+    this.targets = new Targets(processes);
+  }
+
+  /**
+   * Returns the processes disrupted by the iterations of this schedule
+   */
+  public List<RemoteProcess> getProcesses() {
+    return targets.processes;
+  }
+
+  /**
+   * Randomly disrupts some of the processes, or none of them, according to the configured probabilities, and waits
+   * for the disruption to finish
+   *
+   * @return The processes this iteration stopped, killed or terminated, which are left down
+   */
+  public List<RemoteProcess> runOneIteration() throws Exception {
+    Targets targets = this.targets;
+    String disruptionName = disruptionSampler.sample(random);
+    int numNodes = targets.minNodes + random.nextInt(targets.maxNodes - targets.minNodes + 1);
+    if (disruptionName == null || targets.processes.isEmpty() || numNodes == 0) {
+      return Collections.emptyList();
+    }
 
-    this.minNodesPerIteration = Math.min(processes.size(), minNodesPerIteration);
-    this.maxNodesPerIteration = Math.min(processes.size(), maxNodesPerIteration);
-    if (this.maxNodesPerIteration < 0) {
-      this.maxNodesPerIteration = processes.size() + this.maxNodesPerIteration;
+    List<RemoteProcess> affectedNodes = targets.sampler.sample(numNodes, random);
+    SubmittedDisruption submitted;
+    try {
+      submitted = submitter.submit(getService(), disruptionName, affectedNodes);
+    } catch (IllegalStateException e) {
+      LOG.info("Skipping scheduled {} of {}: {}", disruptionName, getService(), e.getMessage());
+      return Collections.emptyList();
     }
-    if (this.minNodesPerIteration < 0) {
-      this.minNodesPerIteration = processes.size() + this.minNodesPerIteration;
+    DisruptionResult result = submitted.getFuture().get();
+    if (!AdmissionController.isHalting(disruptionName)) {
+      return Collections.emptyList();
     }
-    if (this.minNodesPerIteration > this.maxNodesPerIteration) {
-      throw new IllegalArgumentException("minNodePerIteration is greater than maxNodePerIteration for process: "
-                                            + this.processes.get(0).getName() + "\n" +
-                                            "minNodePerIteration: " + this.minNodesPerIteration + "\n" +
-                                            "maxNodePerIteration: " + this.maxNodesPerIteration);
+    if (!DisruptionResult.COMPLETED.equals(result.getState())) {
+      LOG.warn("Scheduled {} of {} with id {} did not complete: {}", disruptionName, getService(), submitted.getId(),
+               result.getState());
     }
+    // Processes that were already down or could not be halted were not disrupted by this iteration
+    List<RemoteProcess> halted = new ArrayList<>();
+    String succeeded = ProcessOutcome.SUCCEEDED.name().toLowerCase();
+    for (RemoteProcess process : affectedNodes) {
+      if (succeeded.equals(result.getNodeOutcomes().get(process.getAddress()))) {
+        halted.add(process);
+      }
+    }
+    return halted;
+  }
+
+  /**
+   * Returns the name of the service disrupted by this schedule
+   */
+  public String getService() {
+    return service;
+  }
+
+  /**
+   * Sets the delay after which processes stopped or killed by this schedule are started again
+   *
+   * @param recoveryDelay Optional, processes are left down if this is {@code null}
+   */
+  public void setRecoveryDelay(@Nullable DelayDistribution recoveryDelay) {
+    this.recoveryDelay = recoveryDelay;
+  }
+
+  /**
+   * Returns whether processes stopped or killed by this schedule are started again
+   */
+  public boolean hasRecovery() {
+    return recoveryDelay != null;
   }
 
-  @Override
-  protected void runOneIteration() throws Exception {
-    double random = Math.random();
-    int numNodes = ThreadLocalRandom.current().nextInt(minNodesPerIteration, maxNodesPerIteration + 1);
-
-    if (random < stopProbability) {
-      stop.disrupt(getAffectedNodes(numNodes), null);
-    } else if (random < stopProbability + killProbability) {
-      kill.disrupt(getAffectedNodes(numNodes), null);
-    } else if (random < stopProbability + killProbability + restartProbability) {
-      restart.disrupt(getAffectedNodes(numNodes), null);
-    } else {
-      return;
+  /**
+   * Submits the start of processes stopped or killed by an iteration of this schedule
+   *
+   * @param processes Processes halted by an iteration
+   * @return {@link SubmittedDisruption} to wait for the start
+   * @throws IllegalStateException if a start of the service is already running
+   */
+  public SubmittedDisruption submitRecovery(List<RemoteProcess> processes) {
+    return submitter.submit(service, Constants.RemoteProcess.START, processes);
+  }
+
+  /**
+   * Draws the delay after which the processes stopped or killed by an iteration are started again
+   *
+   * @return The delay in milliseconds
+   */
+  public long nextRecoveryDelayMillis() {
+    return recoveryDelay.sampleMillis(random);
+  }
+
+  /**
+   * Draws the fraction of the time between iterations by which the next iteration is delayed, before scaling by the
+   * configured jitter
+   *
+   * @return A fraction between 0 inclusive and 1 exclusive
+   */
+  public double nextJitter() {
+    return jitterRandom.nextDouble();
+  }
+
+  /**
+   * Sets when the iterations of this schedule happen
+   *
+   * @param arrivalProcess Optional, iterations happen at a fixed rate of the execution period if this is {@code null}
+   */
+  public void setArrivalProcess(@Nullable ArrivalProcess arrivalProcess) {
+    this.arrivalProcess = arrivalProcess;
+  }
+
+  /**
+   * Returns the process deciding when the iterations of this schedule happen
+   */
+  public ArrivalProcess getArrivalProcess() {
+    if (arrivalProcess == null) {
+      arrivalProcess = ArrivalProcess.fixedRate(TimeUnit.SECONDS.toMillis(executionPeriod));
     }
+    return arrivalProcess;
   }
 
-  private List<RemoteProcess> getAffectedNodes(int numNodes) {
-    Collections.shuffle(processes);
-    return processes.subList(0, numNodes);
+  /**
+   * Returns the number of seconds between iterations
+   */
+  public int getExecutionPeriod() {
+    return executionPeriod;
   }
 
-  @Override
-  protected Scheduler scheduler() {
-    return AbstractScheduledService.Scheduler.newFixedRateSchedule(0, this.executionPeriod, TimeUnit.SECONDS);
+  /**
+   * The processes of the service along with the number of them that each iteration disrupts
+   */
+  private final class Targets {
+    private final List<RemoteProcess> processes;
+    private final ProcessSampler sampler;
+    private final int minNodes;
+    private final int maxNodes;
+
+    private Targets(List<RemoteProcess> processes) {
+      int minNodes = Math.min(processes.size(), minNodesPerIteration);
+      int maxNodes = Math.min(processes.size(), maxNodesPerIteration);
+      if (maxNodes < 0) {
+        maxNodes = processes.size() + maxNodes;
+      }
+      if (minNodes < 0) {
+        minNodes = processes.size() + minNodes;
+      }
+      if (processes.isEmpty()) {
+        // Nothing is disrupted until processes of the service join again
+        minNodes = 0;
+        maxNodes = 0;
+      }
+      if (minNodes > maxNodes) {
+        throw new IllegalArgumentException("minNodePerIteration is greater than maxNodePerIteration for process: "
+                                             + service + "\n" +
+                                             "minNodePerIteration: " + minNodes + "\n" +
+                                             "maxNodePerIteration: " + maxNodes);
+      }
+      this.processes = Collections.unmodifiableList(new ArrayList<>(processes));
+      this.sampler = new ProcessSampler(this.processes);
+      this.minNodes = minNodes;
+      this.maxNodes = maxNodes;
+    }
   }
 }
@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import io.cdap.chaosmonkey.common.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated SSH sessions to a single host alive so that commands can be executed on new channels of an
+ * existing session instead of paying for a full handshake each time.
+ */
+public class SshSessionPool {
+  private static final Logger LOG = LoggerFactory.getLogger(SshSessionPool.class);
+  private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ssh-session-evictor").build());
+
+  private final JSch jsch;
+  private final String username;
+  private final String address;
+  private final Settings settings;
+  private final List<PooledSession> sessions;
+  private final ScheduledFuture<?> evictionTask;
+  private boolean closed;
+  // Completes once the session being opened is pooled, null if no session is being opened
+  private SettableFuture<Void> connecting;
+
+  /**
+   * Constructs a new {@code SshSessionPool}.
+   *
+   * @param jsch The {@link JSch} holding the identities used to authenticate
+   * @param username The username to connect with
+   * @param address The address of the host
+   * @param settings Limits and timeouts of the pooled sessions
+   */
+  public SshSessionPool(JSch jsch, String username, String address, Settings settings) {
+    this.jsch = jsch;
+    this.username = username;
+    this.address = address;
+    this.settings = settings;
+    this.sessions = new ArrayList<>();
+
+    long evictionPeriod = Math.max(1000L, settings.getIdleTimeoutMillis() / 2);
+    this.evictionTask = EVICTOR.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictIdle();
+      }
+    }, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Reserves a channel slot on a connected session, opening a new session if every pooled session is either
+   * disconnected or already has the maximum number of open channels. Only one session is opened at a time, callers
+   * arriving meanwhile wait for it and reserve a slot on it instead of opening sessions of their own. Every call must
+   * be paired with a call to {@link #release(PooledSession, boolean)}.
+   *
+   * @return A session with a reserved channel slot
+   * @throws JSchException if a new session could not be established, including by the caller that was waited for
+   */
+  public PooledSession acquire() throws JSchException {
+    while (true) {
+      SettableFuture<Void> pending;
+      boolean connector = false;
+      synchronized (this) {
+        PooledSession pooledSession = reserve();
+        if (pooledSession != null) {
+          return pooledSession;
+        }
+        if (connecting == null) {
+          connecting = SettableFuture.create();
+          connector = true;
+        }
+        pending = connecting;
+      }
+
+      if (connector) {
+        return connectAndReserve(pending);
+      }
+      try {
+        Uninterruptibles.getUninterruptibly(pending);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), JSchException.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Reserves a channel slot on a pooled session, dropping the disconnected sessions that have no open channels
+   *
+   * @return The session the slot was reserved on, or {@code null} if every pooled session is full or disconnected
+   */
+  private synchronized PooledSession reserve() {
+    if (closed) {
+      throw new IllegalStateException("Session pool to " + address + " is closed");
+    }
+    Iterator<PooledSession> iterator = sessions.iterator();
+    while (iterator.hasNext()) {
+      PooledSession pooledSession = iterator.next();
+      if (!pooledSession.session.isConnected()) {
+        if (pooledSession.openChannels == 0) {
+          iterator.remove();
+        }
+        continue;
+      }
+      if (pooledSession.openChannels < settings.getMaxChannelsPerSession()) {
+        pooledSession.openChannels++;
+        return pooledSession;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Opens a new session with a reserved channel slot and adds it to the pool, then completes the given future so
+   * that the callers waiting for it reserve slots on it.
+   */
+  private PooledSession connectAndReserve(SettableFuture<Void> connected) throws JSchException {
+    // Connect outside of the lock so that a slow handshake does not block commands on already pooled sessions
+    Session session;
+    try {
+      session = connect();
+    } catch (JSchException | RuntimeException e) {
+      synchronized (this) {
+        connecting = null;
+      }
+      connected.setException(e);
+      throw e;
+    }
+
+    PooledSession pooledSession = new PooledSession(session);
+    pooledSession.openChannels++;
+    boolean added;
+    synchronized (this) {
+      connecting = null;
+      added = !closed;
+      if (added) {
+        sessions.add(pooledSession);
+      }
+    }
+    connected.set(null);
+    if (!added) {
+      session.disconnect();
+      throw new IllegalStateException("Session pool to " + address + " is closed");
+    }
+    return pooledSession;
+  }
+
+  /**
+   * Returns a channel slot reserved with {@link #acquire()}.
+   *
+   * @param pooledSession The session the slot was reserved on
+   * @param healthy {@code false} if the session failed while being used and should not be reused
+   */
+  public void release(PooledSession pooledSession, boolean healthy) {
+    boolean disconnect;
+    synchronized (this) {
+      pooledSession.openChannels--;
+      pooledSession.lastUsed = System.currentTimeMillis();
+      if (!healthy || !pooledSession.session.isConnected()) {
+        pooledSession.broken = true;
+      }
+      disconnect = pooledSession.broken && pooledSession.openChannels == 0;
+      if (pooledSession.broken) {
+        sessions.remove(pooledSession);
+      }
+    }
+    if (disconnect) {
+      LOG.debug("Discarding broken session to {}@{}", username, address);
+      pooledSession.session.disconnect();
+    }
+  }
+
+  /**
+   * Disconnects sessions that have had no open channels for longer than the idle timeout.
+   */
+  public void evictIdle() {
+    long now = System.currentTimeMillis();
+    List<PooledSession> evicted = new ArrayList<>();
+    synchronized (this) {
+      Iterator<PooledSession> iterator = sessions.iterator();
+      while (iterator.hasNext()) {
+        PooledSession pooledSession = iterator.next();
+        if (pooledSession.openChannels == 0 &&
+          (!pooledSession.session.isConnected() ||
+            now - pooledSession.lastUsed > settings.getIdleTimeoutMillis())) {
+          iterator.remove();
+          evicted.add(pooledSession);
+        }
+      }
+    }
+    for (PooledSession pooledSession : evicted) {
+      LOG.debug("Evicting idle session to {}@{}", username, address);
+      pooledSession.session.disconnect();
+    }
+  }
+
+  /**
+   * Disconnects every pooled session and stops accepting new requests.
+   */
+  public void close() {
+    List<PooledSession> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(sessions);
+      sessions.clear();
+    }
+    evictionTask.cancel(false);
+    for (PooledSession pooledSession : toClose) {
+      pooledSession.session.disconnect();
+    }
+  }
+
+  private Session connect() throws JSchException {
+    Session session = jsch.getSession(username, address);
+    if (settings.getKeepAliveMillis() > 0) {
+      session.setServerAliveInterval(settings.getKeepAliveMillis());
+      session.setServerAliveCountMax(settings.getKeepAliveCountMax());
+    }
+    session.connect();
+    LOG.debug("Opened new session to {}@{}", username, address);
+    return session;
+  }
+
+  /**
+   * A pooled {@link Session} along with the bookkeeping used by the pool.
+   */
+  public static final class PooledSession {
+    private final Session session;
+    private int openChannels;
+    private long lastUsed;
+    private boolean broken;
+
+    private PooledSession(Session session) {
+      this.session = session;
+      this.lastUsed = System.currentTimeMillis();
+    }
+
+    public Session getSession() {
+      return session;
+    }
+  }
+
+  /**
+   * Limits and timeouts applied to the sessions of a {@link SshSessionPool}.
+   */
+  public static final class Settings {
+    public static final Settings DEFAULT = new Settings(
+      Constants.Ssh.DEFAULT_MAX_CHANNELS_PER_SESSION,
+      TimeUnit.SECONDS.toMillis(Constants.Ssh.DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS),
+      (int) TimeUnit.SECONDS.toMillis(Constants.Ssh.DEFAULT_SESSION_KEEP_ALIVE_SECONDS));
+
+    private static final int KEEP_ALIVE_COUNT_MAX = 3;
+
+    private final int maxChannelsPerSession;
+    private final long idleTimeoutMillis;
+    private final int keepAliveMillis;
+
+    /**
+     * @param maxChannelsPerSession Maximum number of concurrently open channels on a single session, should not exceed
+     *                              the MaxSessions setting of the remote sshd
+     * @param idleTimeoutMillis Time a session without open channels is kept before being disconnected
+     * @param keepAliveMillis Interval between keepalive messages, or 0 to disable keepalives
+     */
+    public Settings(int maxChannelsPerSession, long idleTimeoutMillis, int keepAliveMillis) {
+      if (maxChannelsPerSession <= 0) {
+        throw new IllegalArgumentException("maxChannelsPerSession must be positive: " + maxChannelsPerSession);
+      }
+      this.maxChannelsPerSession = maxChannelsPerSession;
+      this.idleTimeoutMillis = idleTimeoutMillis;
+      this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public int getMaxChannelsPerSession() {
+      return maxChannelsPerSession;
+    }
+
+    public long getIdleTimeoutMillis() {
+      return idleTimeoutMillis;
+    }
+
+    public int getKeepAliveMillis() {
+      return keepAliveMillis;
+    }
+
+    public int getKeepAliveCountMax() {
+      return KEEP_ALIVE_COUNT_MAX;
+    }
+  }
+}
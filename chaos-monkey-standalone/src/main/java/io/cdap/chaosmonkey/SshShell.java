@@ -16,7 +16,13 @@
 
 package io.cdap.chaosmonkey;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
@@ -30,8 +36,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
@@ -42,10 +51,12 @@ public class SshShell {
   private static final ImmutableList<String> RELATIVE_KEY_PATHS = ImmutableList.of(".ssh/id_dsa",
                                                                                    ".ssh/id_ecdsa",
                                                                                    ".ssh/id_rsa");
+  private static final Executor COMPLETION_EXECUTOR = Executors.newCachedThreadPool(
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ssh-exec-completion-%d").build());
 
-  private final JSch jsch;
   private final String username;
   private final String address;
+  private final SshSessionPool sessionPool;
 
   /**
    * Constructs a new {@code SshShell}.
@@ -54,33 +65,41 @@ public class SshShell {
    * @param address The address used to connect to the host
    * @param privateKey The location of the private key file
    * @param passphrase The passphrase encrypting the private key
+   * @param poolSettings Settings for the sessions kept open to the host
    * @throws JSchException
    */
-  public SshShell(String username, String address,
-                  String privateKey, String passphrase) throws JSchException {
+  public SshShell(String username, String address, @Nullable String privateKey, @Nullable String passphrase,
+                  SshSessionPool.Settings poolSettings) throws JSchException {
+    this(username, address, createJSch(privateKey, passphrase), poolSettings);
+  }
+
+  /**
+   * Constructs a new {@code SshShell} authenticating with the identities of an existing {@link JSch}, which may be
+   * shared by the shells of many hosts.
+   *
+   * @param username The username to connect with
+   * @param address The address used to connect to the host
+   * @param jsch The {@link JSch} holding the identities used to authenticate
+   * @param poolSettings Settings for the sessions kept open to the host
+   */
+  public SshShell(String username, String address, JSch jsch, SshSessionPool.Settings poolSettings) {
     this.username = username;
     this.address = address;
+    this.sessionPool = new SshSessionPool(jsch, username, address, poolSettings);
+  }
 
-    this.jsch = new JSch();
-    this.jsch.setConfig("StrictHostKeyChecking", "no");
-
-    try {
-      Connector connector = ConnectorFactory.getDefault().createConnector();
-      if (connector != null) {
-        jsch.setIdentityRepository(new RemoteIdentityRepository(connector));
-        LOG.debug("Attaching to ssh-agent");
-      }
-    } catch (AgentProxyException e) {
-      LOG.error("Unable to connect to ssh-agent", e);
-    }
-
-    if (privateKey != null) {
-      if (passphrase != null) {
-        jsch.addIdentity(privateKey, passphrase);
-      } else {
-        jsch.addIdentity(privateKey);
-      }
-    }
+  /**
+   * Constructs a new {@code SshShell} using the default session pool settings.
+   *
+   * @param username The username to connect with
+   * @param address The address used to connect to the host
+   * @param privateKey The location of the private key file
+   * @param passphrase The passphrase encrypting the private key
+   * @throws JSchException
+   */
+  public SshShell(String username, String address,
+                  String privateKey, String passphrase) throws JSchException {
+    this(username, address, privateKey, passphrase, SshSessionPool.Settings.DEFAULT);
   }
 
   /**
@@ -103,25 +122,72 @@ public class SshShell {
    * @throws JSchException
    */
   public SshShell(String username, String address) throws JSchException {
-    this(username, address, null);
+    this(username, address, SshSessionPool.Settings.DEFAULT);
+  }
+
+  /**
+   * Constructs a new {@code SshShell} by looking in the default key locations; keys should be unencrypted.
+   *
+   * @param username The username to connect with
+   * @param address The IP address of the host
+   * @param poolSettings Settings for the sessions kept open to the host
+   * @throws JSchException
+   */
+  public SshShell(String username, String address, SshSessionPool.Settings poolSettings) throws JSchException {
+    this(username, address, createJSch(), poolSettings);
+  }
+
+  /**
+   * Creates a {@link JSch} attached to the ssh-agent, if one is running, holding the given private key.
+   *
+   * @param privateKey The location of the private key file, or {@code null} to only use the ssh-agent
+   * @param passphrase The passphrase encrypting the private key
+   * @return A {@link JSch} that can be shared by the shells of many hosts
+   * @throws JSchException if the private key could not be loaded
+   */
+  public static JSch createJSch(@Nullable String privateKey, @Nullable String passphrase) throws JSchException {
+    JSch jsch = new JSch();
+    JSch.setConfig("StrictHostKeyChecking", "no");
+
+    try {
+      Connector connector = ConnectorFactory.getDefault().createConnector();
+      if (connector != null) {
+        jsch.setIdentityRepository(new RemoteIdentityRepository(connector));
+        LOG.debug("Attaching to ssh-agent");
+      }
+    } catch (AgentProxyException e) {
+      LOG.error("Unable to connect to ssh-agent", e);
+    }
 
-    boolean noIdentity = true;
+    if (privateKey != null) {
+      if (passphrase != null) {
+        jsch.addIdentity(privateKey, passphrase);
+      } else {
+        jsch.addIdentity(privateKey);
+      }
+    }
+    return jsch;
+  }
+
+  /**
+   * Creates a {@link JSch} attached to the ssh-agent, if one is running, holding the first key found in the default
+   * key locations; keys should be unencrypted.
+   *
+   * @return A {@link JSch} that can be shared by the shells of many hosts
+   * @throws JSchException if the private key could not be loaded
+   */
+  public static JSch createJSch() throws JSchException {
     for (String relativeKeyPath : RELATIVE_KEY_PATHS) {
       String absoluteKeyPath = System.getProperty("user.home") + "/" + relativeKeyPath;
       if (new File(absoluteKeyPath).exists()) {
-        jsch.addIdentity(absoluteKeyPath);
-        noIdentity = false;
-        break;
+        return createJSch(absoluteKeyPath, null);
       }
     }
-
-    if (noIdentity) {
-      throw new IllegalStateException("No keys found, please manually add your key");
-    }
+    throw new IllegalStateException("No keys found, please manually add your key");
   }
 
   /**
-   * Execute a command on a remote host.
+   * Execute a command on a remote host, blocking until the command completes.
    *
    * @param command The command to be executed
    * @param input The input to accompany the command
@@ -129,38 +195,144 @@ public class SshShell {
    * @throws JSchException
    */
   public ShellOutput exec(String command, @Nullable InputStream input) throws JSchException {
-    Session session = jsch.getSession(this.username, this.getAddress());
+    try {
+      return Uninterruptibles.getUninterruptibly(execAsync(command, input));
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), JSchException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Execute a command on a remote host without waiting for it to complete. The command is run on a new channel of a
+   * pooled session, and a new session is opened once if the pooled one turns out to be broken. The returned future
+   * completes as soon as the remote side closes the channel, without a thread waiting on the command.
+   *
+   * @param command The command to be executed
+   * @param input The input to accompany the command
+   * @return A future holding the output of the command, or failed with a {@link JSchException}
+   */
+  public ListenableFuture<ShellOutput> execAsync(String command, @Nullable InputStream input) {
     command = String.format("bash -lc '%s'", command);
+
+    SshSessionPool.PooledSession pooledSession;
+    ChannelExec channel;
     try {
-      session.connect();
-      ChannelExec channel = (ChannelExec) session.openChannel("exec");
-
-      try (ByteArrayOutputStream output = new ByteArrayOutputStream();
-          ByteArrayOutputStream error = new ByteArrayOutputStream()) {
-        channel.setCommand(command);
-        channel.setInputStream(input);
-        channel.setOutputStream(output);
-        channel.setErrStream(error);
-        channel.connect();
-        LOG.debug("Executing '{}' to {}@{}", command, getUsername(), getAddress());
-
-        while (channel.getExitStatus() < 0) {
-          try {
-            Thread.sleep(250);
-          } catch (InterruptedException e) {
-            // Do nothing
-          }
+      pooledSession = sessionPool.acquire();
+      try {
+        channel = openChannel(pooledSession.getSession());
+      } catch (JSchException e) {
+        LOG.debug("Unable to open channel to {}@{}, reconnecting", getUsername(), getAddress(), e);
+        sessionPool.release(pooledSession, false);
+        pooledSession = sessionPool.acquire();
+        try {
+          channel = openChannel(pooledSession.getSession());
+        } catch (JSchException retryException) {
+          sessionPool.release(pooledSession, false);
+          throw retryException;
+        }
+      }
+    } catch (JSchException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+
+    ChannelCompletion completion = new ChannelCompletion(command, channel, pooledSession);
+    channel.setCommand(command);
+    channel.setInputStream(input);
+    channel.setOutputStream(completion.output);
+    channel.setErrStream(completion.error);
+    try {
+      channel.connect();
+      LOG.debug("Executing '{}' to {}@{}", command, getUsername(), getAddress());
+    } catch (JSchException e) {
+      completion.fail(e);
+    }
+    return completion.future;
+  }
+
+  /**
+   * Execute a command on a remote host without waiting for it to complete.
+   *
+   * @param command The command to be executed
+   * @return A future holding the output of the command, or failed with a {@link JSchException}
+   */
+  public ListenableFuture<ShellOutput> execAsync(String command) {
+    return execAsync(command, null);
+  }
+
+  private ChannelExec openChannel(Session session) throws JSchException {
+    if (!session.isConnected()) {
+      throw new JSchException("Session is not connected");
+    }
+    return (ChannelExec) session.openChannel("exec");
+  }
+
+  /**
+   * Disconnects all sessions kept open to the remote host.
+   */
+  public void close() {
+    sessionPool.close();
+  }
+
+  /**
+   * Tracks a single command execution. JSch closes the error stream of a channel once the remote side closes the
+   * channel, which only happens after the exit status was delivered, so closing that stream marks completion.
+   */
+  private final class ChannelCompletion {
+    private final String command;
+    private final ChannelExec channel;
+    private final SshSessionPool.PooledSession pooledSession;
+    private final SettableFuture<ShellOutput> future;
+    private final AtomicBoolean done;
+    private final ByteArrayOutputStream output;
+    private final ByteArrayOutputStream error;
+
+    ChannelCompletion(String command, ChannelExec channel, SshSessionPool.PooledSession pooledSession) {
+      this.command = command;
+      this.channel = channel;
+      this.pooledSession = pooledSession;
+      this.future = SettableFuture.create();
+      this.done = new AtomicBoolean(false);
+      this.output = new ByteArrayOutputStream();
+      this.error = new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          complete();
         }
-        return new ShellOutput(channel.getExitStatus(), output.toString(), error.toString());
-      } catch (IOException e) {
-        // Execution should never reach here because ByteArrayOutputStream should never throw this exception
-        throw new IllegalStateException("This should not happen", e);
-      } finally {
-        channel.disconnect();
+      };
+    }
+
+    private void complete() {
+      if (!done.compareAndSet(false, true)) {
+        return;
       }
+      // The channel is also closed when the session is torn down, in which case no exit status was received
+      final int exitStatus = channel.getExitStatus();
+      final boolean healthy = exitStatus >= 0;
+      channel.disconnect();
+      sessionPool.release(pooledSession, healthy);
 
-    } finally {
-      session.disconnect();
+      // Complete outside of the JSch session thread, so that listeners cannot stall the session they were called from
+      COMPLETION_EXECUTOR.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (healthy) {
+            future.set(new ShellOutput(exitStatus, output.toString(), error.toString()));
+          } else {
+            future.setException(new JSchException(String.format("No exit status received from %s@%s for '%s'",
+                                                                 getUsername(), getAddress(), command)));
+          }
+        }
+      });
+    }
+
+    private void fail(JSchException e) {
+      if (!done.compareAndSet(false, true)) {
+        return;
+      }
+      channel.disconnect();
+      sessionPool.release(pooledSession, false);
+      future.setException(e);
     }
   }
 
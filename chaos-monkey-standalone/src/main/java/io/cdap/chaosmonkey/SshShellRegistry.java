@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out one {@link SshShell} per host, so that all processes on a host share a single session pool. All shells
+ * authenticate with the same {@link JSch}, which is created on first use, so the ssh-agent is attached to and the keys
+ * are parsed only once.
+ */
+public class SshShellRegistry {
+  private final String username;
+  private final Supplier<JSch> jsch;
+  private final SshSessionPool.Settings poolSettings;
+  private final Map<String, SshShell> shells;
+
+  /**
+   * Constructs a new {@code SshShellRegistry}.
+   *
+   * @param username The username to connect with
+   * @param jsch Supplies the {@link JSch} shared by all shells, called at most once
+   * @param poolSettings Settings for the sessions kept open to each host
+   */
+  public SshShellRegistry(String username, Supplier<JSch> jsch, SshSessionPool.Settings poolSettings) {
+    this.username = username;
+    this.jsch = Suppliers.memoize(jsch);
+    this.poolSettings = poolSettings;
+    this.shells = new HashMap<>();
+  }
+
+  /**
+   * Creates a {@code SshShellRegistry} from the username, private key and ssh settings of the configuration. Without a
+   * private key, the first key found in the default key locations is used.
+   */
+  public static SshShellRegistry create(Configuration conf) {
+    String username = conf.get("username", System.getProperty("user.name"));
+    final String privateKey = conf.get("privateKey");
+    final String keyPassphrase = conf.get("keyPassphrase");
+    int maxChannels = conf.getInt(Constants.Ssh.MAX_CHANNELS_PER_SESSION,
+                                  Constants.Ssh.DEFAULT_MAX_CHANNELS_PER_SESSION);
+    int idleTimeout = conf.getInt(Constants.Ssh.SESSION_IDLE_TIMEOUT_SECONDS,
+                                  Constants.Ssh.DEFAULT_SESSION_IDLE_TIMEOUT_SECONDS);
+    int keepAlive = conf.getInt(Constants.Ssh.SESSION_KEEP_ALIVE_SECONDS,
+                                Constants.Ssh.DEFAULT_SESSION_KEEP_ALIVE_SECONDS);
+    SshSessionPool.Settings poolSettings = new SshSessionPool.Settings(maxChannels,
+                                                                       TimeUnit.SECONDS.toMillis(idleTimeout),
+                                                                       (int) TimeUnit.SECONDS.toMillis(keepAlive));
+
+    return new SshShellRegistry(username, new Supplier<JSch>() {
+      @Override
+      public JSch get() {
+        try {
+          return privateKey == null ? SshShell.createJSch() : SshShell.createJSch(privateKey, keyPassphrase);
+        } catch (JSchException e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    }, poolSettings);
+  }
+
+  /**
+   * Returns the shell of the given host, creating it if this is the first time the host is asked for.
+   *
+   * @param address The address used to connect to the host
+   * @return The shell shared by all processes on the host
+   * @throws JSchException if the keys could not be loaded
+   */
+  public synchronized SshShell get(String address) throws JSchException {
+    SshShell shell = shells.get(address);
+    if (shell == null) {
+      JSch shared;
+      try {
+        shared = jsch.get();
+      } catch (RuntimeException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), JSchException.class);
+        throw e;
+      }
+      shell = new SshShell(username, address, shared, poolSettings);
+      shells.put(address, shell);
+    }
+    return shell;
+  }
+
+  /**
+   * Returns the number of hosts a shell was created for.
+   */
+  public synchronized int size() {
+    return shells.size();
+  }
+
+  /**
+   * Disconnects the sessions to the given host, so that a later {@link #get(String)} creates a new shell.
+   */
+  public void close(String address) {
+    SshShell shell;
+    synchronized (this) {
+      shell = shells.remove(address);
+    }
+    if (shell != null) {
+      shell.close();
+    }
+  }
+
+  /**
+   * Disconnects the sessions of all shells.
+   */
+  public void close() {
+    List<SshShell> closing;
+    synchronized (this) {
+      closing = new ArrayList<>(shells.values());
+      shells.clear();
+    }
+    for (SshShell shell : closing) {
+      shell.close();
+    }
+  }
+}
@@ -19,34 +19,34 @@ package io.cdap.chaosmonkey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
 import java.util.Map;
-import javax.annotation.Nullable;
 
 /**
  * A disruption that starts a process
  */
-public class Start implements Disruption {
+public class Start extends AbstractProcessDisruption {
   private static final Logger LOGGER = LoggerFactory.getLogger(Start.class);
 
   @Override
-  public void disrupt(Collection<RemoteProcess> processes, @Nullable Map<String, String> serviceArguments)
+  protected ProcessOutcome disruptProcess(RemoteProcess process, Map<String, String> serviceArguments)
     throws Exception {
-    for (RemoteProcess process : processes) {
-      if (!process.isRunning()) {
-        LOGGER.info("Attempting to {} {} on {}", this.getName(), process.getName(), process.getAddress());
-        process.execAndGetReturnCode(String.format("sudo service %s %s", process.getName(), this.getName()));
+    String command = String.format("sudo service %s %s", process.getName(), this.getName());
+    ActionScript.Result result = new ActionScript(command, true, true,
+                                                  getVerifyTimeoutSeconds(serviceArguments)).run(process);
 
-        if (process.isRunning()) {
-          LOGGER.info("{} on {} is now running", process.getName(), process.getAddress());
-        } else {
-          LOGGER.error("{} on {} is still down after start attempt!", process.getName(), process.getAddress());
-        }
-      } else {
+    switch (result.getOutcome()) {
+      case SKIPPED:
         LOGGER.info("{} on {} is already running, skipping {} attempt", process.getName(), process.getAddress(),
                     this.getName());
-      }
+        break;
+      case SUCCEEDED:
+        LOGGER.info("{} on {} is now running", process.getName(), process.getAddress());
+        break;
+      default:
+        LOGGER.error("{} on {} is still down after start attempt exited with {}: {}", process.getName(),
+                     process.getAddress(), result.getActionExitCode(), result.getErrorOutput());
     }
+    return result.getOutcome();
   }
 
   @Override
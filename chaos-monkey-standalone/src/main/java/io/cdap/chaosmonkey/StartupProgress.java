@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how far {@link ChaosMonkeyService} got in building the processes of each service, so that progress can be
+ * reported while the service is still starting.
+ */
+public class StartupProgress {
+
+  /**
+   * Steps of startup, in the order they are taken
+   */
+  public enum Phase {
+    DISCOVERING, BUILDING, CONNECTING, STARTING, READY, FAILED
+  }
+
+  private final long startedAt;
+  private final AtomicInteger servicesBuilt;
+  private final AtomicInteger processesBuilt;
+  private final AtomicInteger hostsConnected;
+  private final AtomicInteger hostsUnreachable;
+  private volatile Phase phase;
+  private volatile int services;
+  private volatile int hosts;
+  private volatile long finishedAt;
+
+  public StartupProgress() {
+    this.startedAt = System.currentTimeMillis();
+    this.servicesBuilt = new AtomicInteger();
+    this.processesBuilt = new AtomicInteger();
+    this.hostsConnected = new AtomicInteger();
+    this.hostsUnreachable = new AtomicInteger();
+    this.phase = Phase.DISCOVERING;
+  }
+
+  public Phase getPhase() {
+    return phase;
+  }
+
+  /**
+   * Moves on to the next step of startup
+   */
+  public void setPhase(Phase phase) {
+    if (phase == Phase.READY || phase == Phase.FAILED) {
+      finishedAt = System.currentTimeMillis();
+    }
+    this.phase = phase;
+  }
+
+  /**
+   * Records the topology discovered from the cluster information collector
+   */
+  public void discovered(int services, int hosts) {
+    this.services = services;
+    this.hosts = hosts;
+  }
+
+  /**
+   * Records that the processes of a service were built
+   */
+  public void serviceBuilt(int processes) {
+    processesBuilt.addAndGet(processes);
+    servicesBuilt.incrementAndGet();
+  }
+
+  /**
+   * Records the outcome of opening an SSH session to a host
+   */
+  public void hostConnected(boolean connected) {
+    (connected ? hostsConnected : hostsUnreachable).incrementAndGet();
+  }
+
+  /**
+   * Returns a description of the progress that can be serialized to JSON
+   *
+   * @param running Whether the service accepts requests, it is only reported ready once it does
+   */
+  public Map<String, Object> toMap(boolean running) {
+    Map<String, Object> progress = new LinkedHashMap<>();
+    progress.put("ready", running && phase == Phase.READY);
+    progress.put("phase", phase);
+    progress.put("services", services);
+    progress.put("servicesBuilt", servicesBuilt.get());
+    progress.put("processesBuilt", processesBuilt.get());
+    progress.put("hosts", hosts);
+    progress.put("hostsConnected", hostsConnected.get());
+    progress.put("hostsUnreachable", hostsUnreachable.get());
+    long finished = finishedAt;
+    progress.put("elapsedMillis", (finished == 0 ? System.currentTimeMillis() : finished) - startedAt);
+    return progress;
+  }
+}
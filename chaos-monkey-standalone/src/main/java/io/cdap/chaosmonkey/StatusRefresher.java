@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Scheduled service that keeps an immutable snapshot of the status of every node, so that status reads do not each
+ * probe the cluster. Reads of a snapshot older than the maximum staleness probe the cluster synchronously.
+ */
+public class StatusRefresher extends AbstractScheduledService {
+  private static final Logger LOG = LoggerFactory.getLogger(StatusRefresher.class);
+
+  private final Callable<Collection<NodeStatus>> prober;
+  private final long refreshIntervalMillis;
+  private final long maxStalenessMillis;
+  private final Object refreshLock;
+  private volatile Snapshot snapshot;
+  // Probe in progress, guarded by refreshLock
+  private Probe inFlight;
+  private volatile long invalidatedAt;
+
+  /**
+   * @param prober Callable that probes the status of every node
+   * @param refreshIntervalMillis Time between background refreshes, the service should not be started if this is not
+   *                              positive
+   * @param maxStalenessMillis Maximum age of a snapshot returned by {@link #get()}
+   */
+  public StatusRefresher(Callable<Collection<NodeStatus>> prober, long refreshIntervalMillis,
+                         long maxStalenessMillis) {
+    this.prober = prober;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.maxStalenessMillis = maxStalenessMillis;
+    this.refreshLock = new Object();
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    try {
+      refresh();
+    } catch (Exception e) {
+      // Keep the previous snapshot and try again on the next iteration
+      LOG.warn("Unable to refresh node statuses", e);
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the current snapshot, probing the cluster first if there is no snapshot younger than the maximum
+   * staleness.
+   */
+  public Snapshot get() throws Exception {
+    Snapshot current = snapshot;
+    if (current != null && current.getAsOf() > invalidatedAt &&
+      System.currentTimeMillis() - current.getAsOf() <= maxStalenessMillis) {
+      return current;
+    }
+    return refresh();
+  }
+
+  /**
+   * Probes the cluster and replaces the snapshot. Callers arriving while a probe is in progress wait for that probe
+   * instead of starting another one, unless it started before their request or before the last invalidation. Those
+   * callers wait for the probe in progress to finish, and then share a single follow-up probe.
+   */
+  public Snapshot refresh() throws Exception {
+    long requestTime = System.currentTimeMillis();
+    while (true) {
+      Probe probe;
+      boolean probing = false;
+      boolean current;
+      synchronized (refreshLock) {
+        long notBefore = Math.max(requestTime, invalidatedAt);
+        Snapshot latest = snapshot;
+        if (latest != null && latest.getAsOf() >= notBefore) {
+          return latest;
+        }
+        if (inFlight == null) {
+          inFlight = new Probe(System.currentTimeMillis());
+          probing = true;
+        }
+        probe = inFlight;
+        current = probe.startTime >= notBefore;
+      }
+
+      if (probing) {
+        probe.run();
+      }
+      if (current) {
+        try {
+          return Uninterruptibles.getUninterruptibly(probe.result);
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), Exception.class);
+          throw new RuntimeException(e.getCause());
+        }
+      }
+      // The probe in progress may have seen the cluster before the request, wait for it to probe again
+      try {
+        Uninterruptibles.getUninterruptibly(probe.result);
+      } catch (ExecutionException e) {
+        // Only the outcome of the follow-up probe matters
+      }
+    }
+  }
+
+  /**
+   * Marks every snapshot taken so far as stale, so that the next read probes the cluster. Used after the cluster was
+   * disrupted.
+   */
+  public void invalidate() {
+    invalidatedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * A probe of the cluster, shared by the callers waiting for it.
+   */
+  private final class Probe {
+    private final long startTime;
+    private final SettableFuture<Snapshot> result;
+
+    private Probe(long startTime) {
+      this.startTime = startTime;
+      this.result = SettableFuture.create();
+    }
+
+    private void run() {
+      try {
+        Snapshot refreshed = new Snapshot(startTime, prober.call());
+        synchronized (refreshLock) {
+          snapshot = refreshed;
+          inFlight = null;
+        }
+        result.set(refreshed);
+      } catch (Throwable t) {
+        synchronized (refreshLock) {
+          inFlight = null;
+        }
+        result.setException(t);
+      }
+    }
+  }
+
+  /**
+   * Status of every node at a point in time.
+   */
+  public static final class Snapshot {
+    private final long asOf;
+    private final ImmutableMap<String, NodeStatus> nodeStatuses;
+
+    Snapshot(long asOf, Collection<NodeStatus> nodeStatuses) {
+      this.asOf = asOf;
+      ImmutableMap.Builder<String, NodeStatus> builder = ImmutableMap.builder();
+      for (NodeStatus nodeStatus : nodeStatuses) {
+        builder.put(nodeStatus.getHostname(), nodeStatus);
+      }
+      this.nodeStatuses = builder.build();
+    }
+
+    /**
+     * Returns the time in milliseconds since epoch at which the probe of this snapshot started
+     */
+    public long getAsOf() {
+      return asOf;
+    }
+
+    public Collection<NodeStatus> getNodeStatuses() {
+      return nodeStatuses.values();
+    }
+
+    @Nullable
+    public NodeStatus getNodeStatus(String hostname) {
+      return nodeStatuses.get(hostname);
+    }
+  }
+}
@@ -16,7 +16,6 @@
 
 package io.cdap.chaosmonkey;
 
-import com.jcraft.jsch.JSchException;
 
 /**
  * A halting disruption that stops the process
@@ -29,7 +28,7 @@ public class Stop extends AbstractHaltingDisruption {
   }
 
   @Override
-  protected void action(RemoteProcess process) throws JSchException {
-    process.execAndGetReturnCode(String.format("sudo service %s %s", process.getName(), this.getName()));
+  protected String getActionCommand(RemoteProcess process) {
+    return String.format("sudo service %s %s", process.getName(), this.getName());
   }
 }
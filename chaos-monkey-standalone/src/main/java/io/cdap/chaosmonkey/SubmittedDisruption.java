@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * A disruption submitted to the {@link DisruptionService}, which can be cancelled until it completes.
+ */
+public class SubmittedDisruption {
+  private final String id;
+  private final String service;
+  private final String action;
+  private final long submitTime;
+  private final SettableFuture<DisruptionResult> future;
+  private Future<?> task;
+  private boolean cancelled;
+
+  SubmittedDisruption(String service, String action) {
+    this.id = UUID.randomUUID().toString();
+    this.service = service;
+    this.action = action;
+    this.submitTime = System.currentTimeMillis();
+    this.future = SettableFuture.create();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  /**
+   * Returns a future holding the {@link DisruptionResult} once the disruption completes, fails or is cancelled
+   */
+  public ListenableFuture<DisruptionResult> getFuture() {
+    return future;
+  }
+
+  /**
+   * Returns the result of the disruption if it is done, otherwise a result in the running state
+   */
+  public DisruptionResult getResult() {
+    if (future.isDone()) {
+      return Futures.getUnchecked(future);
+    }
+    return new DisruptionResult(id, service, action, DisruptionResult.RUNNING, Collections.<String, String>emptyMap(),
+                                submitTime, 0, null);
+  }
+
+  synchronized void setTask(Future<?> task) {
+    this.task = task;
+    if (cancelled) {
+      task.cancel(true);
+    }
+  }
+
+  /**
+   * Completes the disruption with the outcome on each node, or with the reason it failed
+   */
+  void complete(Map<String, ProcessOutcome> outcomes, @Nullable Throwable error) {
+    Map<String, String> nodeOutcomes = new HashMap<>();
+    for (Map.Entry<String, ProcessOutcome> outcome : outcomes.entrySet()) {
+      nodeOutcomes.put(outcome.getKey(), outcome.getValue().name().toLowerCase());
+    }
+    String state = error == null ? DisruptionResult.COMPLETED : DisruptionResult.FAILED;
+    future.set(new DisruptionResult(id, service, action, state, nodeOutcomes, submitTime, System.currentTimeMillis(),
+                                    error == null ? null : error.toString()));
+  }
+
+  /**
+   * Interrupts the thread running the disruption, or removes the disruption from the queue if it has not started.
+   */
+  synchronized void cancel() {
+    cancelled = true;
+    // Set before interrupting, so that the interrupted disruption does not complete it first
+    future.set(new DisruptionResult(id, service, action, DisruptionResult.CANCELLED,
+                                    Collections.<String, String>emptyMap(), submitTime, System.currentTimeMillis(),
+                                    null));
+    if (task != null) {
+      task.cancel(true);
+    }
+  }
+}
@@ -70,6 +70,11 @@ public class SysVRemoteProcess implements RemoteProcess {
     return this.pidFilePath;
   }
 
+  @Override
+  public String getStatusCommand() {
+    return String.format("sudo service %s status", this.name);
+  }
+
   /**
    * Returns whether the process is running.
    *
@@ -79,6 +84,6 @@ public class SysVRemoteProcess implements RemoteProcess {
   @Override
   public boolean isRunning() throws JSchException {
     LOG.debug("Checking the status of {} on {}@{}", getName(), sshShell.getUsername(), sshShell.getAddress());
-    return execAndReturnSucessful(String.format("sudo service %s status", this.name));
+    return execAndReturnSucessful(getStatusCommand());
   }
 }
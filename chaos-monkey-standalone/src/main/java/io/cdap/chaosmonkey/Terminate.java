@@ -16,7 +16,6 @@
 
 package io.cdap.chaosmonkey;
 
-import com.jcraft.jsch.JSchException;
 import io.cdap.chaosmonkey.common.Constants;
 
 /**
@@ -30,8 +29,7 @@ public class Terminate extends AbstractHaltingDisruption {
   }
 
   @Override
-  protected void action(RemoteProcess process) throws JSchException {
-    process.execAndGetReturnCode(String.format("sudo kill -%d $(< %s)", Constants.RemoteProcess.SIGTERM,
-                                               process.getPidFile()));
+  protected String getActionCommand(RemoteProcess process) {
+    return String.format("sudo kill -%d $(< %s)", Constants.RemoteProcess.SIGTERM, process.getPidFile());
   }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import io.cdap.chaosmonkey.proto.ClusterNode;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Difference between the services known to run on each host and the services reported by the
+ * {@link io.cdap.chaosmonkey.proto.ClusterInfoCollector}, by service.
+ */
+public class TopologyDiff {
+  private final SetMultimap<String, String> added;
+  private final SetMultimap<String, String> removed;
+
+  private TopologyDiff(SetMultimap<String, String> added, SetMultimap<String, String> removed) {
+    this.added = ImmutableSetMultimap.copyOf(added);
+    this.removed = ImmutableSetMultimap.copyOf(removed);
+  }
+
+  /**
+   * Returns a difference that changes nothing
+   */
+  public static TopologyDiff none() {
+    return new TopologyDiff(HashMultimap.<String, String>create(), HashMultimap.<String, String>create());
+  }
+
+  /**
+   * Computes the difference between the current topology and the nodes reported by the cluster
+   *
+   * @param current Table from address and service name to the process currently known
+   * @param nodes Nodes currently reported by the cluster
+   * @param ignoredServices Services that are left out of the difference
+   */
+  public static TopologyDiff compute(Table<String, String, ?> current, Collection<ClusterNode> nodes,
+                                     Set<String> ignoredServices) {
+    SetMultimap<String, String> reported = HashMultimap.create();
+    for (ClusterNode node : nodes) {
+      for (String service : node.getServices()) {
+        if (!ignoredServices.contains(service)) {
+          reported.put(service, node.getHost());
+        }
+      }
+    }
+
+    SetMultimap<String, String> added = HashMultimap.create();
+    SetMultimap<String, String> removed = HashMultimap.create();
+    for (String service : Sets.union(reported.keySet(), current.columnKeySet())) {
+      if (ignoredServices.contains(service)) {
+        continue;
+      }
+      Set<String> hosts = reported.get(service);
+      Set<String> known = current.column(service).keySet();
+      added.putAll(service, Sets.difference(hosts, known));
+      removed.putAll(service, Sets.difference(known, hosts));
+    }
+    return new TopologyDiff(added, removed);
+  }
+
+  /**
+   * Returns the hosts each service was added to
+   */
+  public SetMultimap<String, String> getAdded() {
+    return added;
+  }
+
+  /**
+   * Returns the hosts each service was removed from
+   */
+  public SetMultimap<String, String> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Returns the services that were added to or removed from any host
+   */
+  public Set<String> getServices() {
+    return Sets.union(added.keySet(), removed.keySet());
+  }
+
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "TopologyDiff{added=" + added + ", removed=" + removed + "}";
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduled service that periodically re-reads the nodes of the cluster and applies the difference to the known
+ * processes, so that nodes added or replaced after startup can be disrupted without a restart.
+ */
+public class TopologyRefresher extends AbstractScheduledService {
+  private static final Logger LOG = LoggerFactory.getLogger(TopologyRefresher.class);
+
+  private final Callable<TopologyDiff> refresher;
+  private final long refreshIntervalMillis;
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong processesAdded = new AtomicLong();
+  private final AtomicLong processesRemoved = new AtomicLong();
+
+  /**
+   * @param refresher Callable that re-reads the nodes of the cluster, applies the difference and returns it
+   * @param refreshIntervalMillis Time between refreshes, the service should not be started if this is not positive
+   */
+  public TopologyRefresher(Callable<TopologyDiff> refresher, long refreshIntervalMillis) {
+    this.refresher = refresher;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    try {
+      TopologyDiff diff = refresher.call();
+      refreshes.incrementAndGet();
+      if (!diff.isEmpty()) {
+        LOG.info("Applied topology change, added: {}, removed: {}", diff.getAdded(), diff.getRemoved());
+        processesAdded.addAndGet(diff.getAdded().size());
+        processesRemoved.addAndGet(diff.getRemoved().size());
+      }
+    } catch (Exception e) {
+      // Keep the current topology and try again on the next iteration
+      failures.incrementAndGet();
+      LOG.warn("Unable to refresh the topology of the cluster", e);
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the number of refreshes and of processes added and removed by them
+   */
+  public Map<String, Long> getMetrics() {
+    return ImmutableMap.of("refreshes", refreshes.get(), "failures", failures.get(),
+                           "processesAdded", processesAdded.get(), "processesRemoved", processesRemoved.get());
+  }
+}
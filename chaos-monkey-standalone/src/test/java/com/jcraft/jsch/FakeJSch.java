@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.jcraft.jsch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link JSch} whose sessions never open a connection, for tests of the SSH session pool and shell. It lives in the
+ * JSch package because sessions can only be constructed from there.
+ */
+public class FakeJSch extends JSch {
+  public final AtomicInteger connects = new AtomicInteger();
+  public final List<FakeSession> sessions = new CopyOnWriteArrayList<>();
+  public final List<FakeChannel> channels = new CopyOnWriteArrayList<>();
+  // Counted down by every connect, which then waits for connectLatch
+  public volatile CountDownLatch connecting = new CountDownLatch(0);
+  public volatile CountDownLatch connectLatch = new CountDownLatch(0);
+  public volatile JSchException connectFailure;
+
+  @Override
+  public Session getSession(String username, String host) throws JSchException {
+    FakeSession session = new FakeSession(this, username, host);
+    sessions.add(session);
+    return session;
+  }
+
+  /**
+   * A session that connects without a handshake and opens {@link FakeChannel}s.
+   */
+  public static final class FakeSession extends Session {
+    private final FakeJSch jsch;
+    private volatile boolean connected;
+
+    private FakeSession(FakeJSch jsch, String username, String host) throws JSchException {
+      super(jsch, username, host, 22);
+      this.jsch = jsch;
+    }
+
+    @Override
+    public void connect() throws JSchException {
+      jsch.connects.incrementAndGet();
+      jsch.connecting.countDown();
+      try {
+        jsch.connectLatch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JSchException("Interrupted while connecting");
+      }
+      if (jsch.connectFailure != null) {
+        throw jsch.connectFailure;
+      }
+      connected = true;
+    }
+
+    @Override
+    public boolean isConnected() {
+      return connected;
+    }
+
+    @Override
+    public void disconnect() {
+      connected = false;
+    }
+
+    @Override
+    public Channel openChannel(String type) throws JSchException {
+      if (!connected) {
+        throw new JSchException("session is down");
+      }
+      FakeChannel channel = new FakeChannel();
+      jsch.channels.add(channel);
+      return channel;
+    }
+  }
+
+  /**
+   * An exec channel that runs nothing. The test completes it with {@link #finish(int, String)}, which closes the
+   * streams the way JSch does when the remote side closes the channel.
+   */
+  public static final class FakeChannel extends ChannelExec {
+    private volatile String command;
+    private volatile OutputStream out;
+    private volatile OutputStream err;
+    private volatile int exitStatus = -1;
+
+    @Override
+    public void setCommand(String command) {
+      this.command = command;
+    }
+
+    public String getCommand() {
+      return command;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void setErrStream(OutputStream err) {
+      this.err = err;
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public int getExitStatus() {
+      return exitStatus;
+    }
+
+    /**
+     * Delivers the output and exit status of the command, then closes the channel
+     *
+     * @param exitStatus Exit status of the command, or -1 if the channel closed without one
+     */
+    public void finish(int exitStatus, String output) throws IOException {
+      this.exitStatus = exitStatus;
+      out.write(output.getBytes(StandardCharsets.UTF_8));
+      out.close();
+      err.close();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link AbstractHaltingDisruption}
+ */
+public class AbstractHaltingDisruptionTest {
+
+  @Test
+  public void testLegacyAction() throws Exception {
+    // The process runs before the action and no longer runs after it
+    final List<String> commands = new ArrayList<>();
+    RemoteProcess process = new SysVRemoteProcess("zookeeper", "/var/run/zookeeper.pid", null) {
+      @Override
+      public String getAddress() {
+        return "10.0.0.1";
+      }
+
+      @Override
+      public int execAndGetReturnCode(String command) {
+        commands.add(command);
+        return commands.size() == 1 ? 0 : 1;
+      }
+
+      @Override
+      public boolean isRunning() {
+        return execAndGetReturnCode(getStatusCommand()) == 0;
+      }
+    };
+    AbstractHaltingDisruption disruption = new AbstractHaltingDisruption() {
+      @Override
+      protected void action(RemoteProcess process) throws Exception {
+        process.execAndGetReturnCode("halt");
+      }
+
+      @Override
+      public String getName() {
+        return "halt";
+      }
+    };
+    Assert.assertEquals(ProcessOutcome.SUCCEEDED,
+                        disruption.disruptProcess(process, ImmutableMap.<String, String>of()));
+    Assert.assertEquals(3, commands.size());
+    Assert.assertEquals("halt", commands.get(1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNoActionRejectedOnLoad() {
+    new AbstractHaltingDisruption() {
+      @Override
+      public String getName() {
+        return "nothing";
+      }
+    };
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ActionScript}
+ */
+public class ActionScriptTest {
+
+  @Test
+  public void testBuild() throws Exception {
+    Assert.assertEquals("(sudo service hbase-master status) </dev/null >/dev/null 2>&1; pre=$?; " +
+                          "echo \"chaos-monkey-action pre $pre\"; if [ $pre -ne 0 ]; then exit 0; fi; " +
+                          "(sudo service hbase-master stop) </dev/null >/dev/null; " +
+                          "echo \"chaos-monkey-action act $?\"; i=0; while :; do " +
+                          "(sudo service hbase-master status) </dev/null >/dev/null 2>&1; post=$?; " +
+                          "if [ $post -ne 0 ] || [ $i -ge 5 ]; then break; fi; sleep 1; i=$((i + 1)); done; " +
+                          "echo \"chaos-monkey-action post $post\"",
+                        new ActionScript("sudo service hbase-master stop", false, true, 5)
+                          .build("sudo service hbase-master status"));
+
+    String restart = new ActionScript("sudo service hbase-master restart", true, false, 0)
+      .build("sudo service hbase-master status");
+    Assert.assertFalse(restart.contains("exit 0"));
+    Assert.assertTrue(restart.contains("if [ $post -eq 0 ] || [ $i -ge 0 ]"));
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    ActionScript stop = new ActionScript("stop", false, true, 0);
+    Assert.assertEquals(ProcessOutcome.SKIPPED,
+                        stop.run(process("chaos-monkey-action pre 3\n")).getOutcome());
+
+    ActionScript.Result result = stop.run(process(
+      "chaos-monkey-action pre 0\nchaos-monkey-action act 0\nchaos-monkey-action post 3\n"));
+    Assert.assertEquals(ProcessOutcome.SUCCEEDED, result.getOutcome());
+    Assert.assertTrue(result.wasRunning());
+    Assert.assertEquals(Integer.valueOf(0), result.getActionExitCode());
+    Assert.assertFalse(result.isRunning());
+
+    Assert.assertEquals(ProcessOutcome.FAILED, stop.run(process(
+      "chaos-monkey-action pre 0\nchaos-monkey-action act 1\nchaos-monkey-action post 0\n")).getOutcome());
+    Assert.assertEquals(ProcessOutcome.FAILED, stop.run(process("")).getOutcome());
+
+    ActionScript restart = new ActionScript("restart", true, false, 0);
+    Assert.assertEquals(ProcessOutcome.SUCCEEDED, restart.run(process(
+      "chaos-monkey-action pre 0\nchaos-monkey-action act 0\nchaos-monkey-action post 0\n")).getOutcome());
+  }
+
+  private static RemoteProcess process(String output) {
+    return TestProcesses.fixed("hbase-master", "10.0.0.1", output);
+  }
+}
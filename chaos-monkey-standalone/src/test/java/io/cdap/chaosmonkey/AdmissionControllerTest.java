@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests for {@link AdmissionController}
+ */
+public class AdmissionControllerTest {
+
+  @Test
+  public void testBudget() throws Exception {
+    AdmissionController controller = new AdmissionController(3, 1, ImmutableMap.of("zookeeper", 1), 0);
+    RemoteProcess zk1 = TestProcesses.fixed("zookeeper", "10.0.0.1");
+    RemoteProcess zk2 = TestProcesses.fixed("zookeeper", "10.0.0.2");
+    RemoteProcess hbase1 = TestProcesses.fixed("hbase-master", "10.0.0.1");
+    RemoteProcess hbase3 = TestProcesses.fixed("hbase-master", "10.0.0.3");
+
+    // Only one zookeeper may be down
+    AdmissionController.Lease lease = controller.tryAcquire("zookeeper", "kill", Arrays.asList(zk1));
+    assertRejected(controller, "zookeeper", "restart", zk2);
+    // Only one process may be down on 10.0.0.1
+    assertRejected(controller, "hbase-master", "stop", hbase1);
+    controller.tryAcquire("hbase-master", "restart", Arrays.asList(hbase3)).release();
+
+    // The killed zookeeper stays down after the kill is done
+    lease.release(succeeded(zk1));
+    Assert.assertEquals(1, controller.getUsage().get("down"));
+    assertRejected(controller, "zookeeper", "restart", zk2);
+    // Restarting a process that is already down does not use more of the budget
+    controller.tryAcquire("zookeeper", "restart", Arrays.asList(zk1)).release(succeeded(zk1));
+    Assert.assertEquals(0, controller.getUsage().get("down"));
+
+    // A stop that failed or was cancelled before it ran leaves the process up
+    controller.tryAcquire("zookeeper", "stop", Arrays.asList(zk2))
+      .release(ImmutableMap.of(zk2.getAddress(), ProcessOutcome.FAILED));
+    controller.tryAcquire("zookeeper", "stop", Arrays.asList(zk2)).release();
+    Assert.assertEquals(0, controller.getUsage().get("down"));
+
+    // Starts are always admitted, and a process seen running is no longer down
+    controller.tryAcquire("zookeeper", "stop", Arrays.asList(zk2)).release(succeeded(zk2));
+    controller.tryAcquire("zookeeper", "start", Arrays.asList(zk1, zk2));
+    controller.reconcile(Collections.singletonList(
+      new NodeStatus("10.0.0.2", ImmutableMap.of("zookeeper", HostStatusProbe.RUNNING))));
+    Assert.assertEquals(0, controller.getUsage().get("down"));
+  }
+
+  @Test
+  public void testQueuedNotCountedAsRejected() throws Exception {
+    AdmissionController controller = new AdmissionController(1, 1, ImmutableMap.<String, Integer>of(), 60000);
+    RemoteProcess zk1 = TestProcesses.fixed("zookeeper", "10.0.0.1");
+    RemoteProcess zk2 = TestProcesses.fixed("zookeeper", "10.0.0.2");
+
+    AdmissionController.Lease lease = controller.tryAcquireOrNull("zookeeper", "restart", Arrays.asList(zk1));
+    Assert.assertNotNull(lease);
+    Assert.assertNull(controller.tryAcquireOrNull("zookeeper", "stop", Arrays.asList(zk2)));
+    Assert.assertEquals(0L, controller.getUsage().get("rejected"));
+    lease.release();
+    controller.acquire("zookeeper", "stop", Arrays.asList(zk2)).release();
+    Assert.assertEquals(2L, controller.getUsage().get("admitted"));
+    Assert.assertEquals(0L, controller.getUsage().get("rejected"));
+  }
+
+  private static Map<String, ProcessOutcome> succeeded(RemoteProcess process) {
+    return ImmutableMap.of(process.getAddress(), ProcessOutcome.SUCCEEDED);
+  }
+
+  private void assertRejected(AdmissionController controller, String service, String action, RemoteProcess process) {
+    try {
+      controller.tryAcquire(service, action, Arrays.asList(process));
+      Assert.fail(action + " of " + service + " on " + process.getAddress() + " should be rejected");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link AliasSampler}
+ */
+public class AliasSamplerTest {
+
+  @Test
+  public void testSample() throws Exception {
+    AliasSampler<String> sampler = new AliasSampler<>(ImmutableMap.of("stop", 0.1, "kill", 0.2, "restart", 0.3));
+    Random random = new Random(0);
+    Map<String, Integer> counts = new HashMap<>();
+    int samples = 100000;
+    for (int i = 0; i < samples; i++) {
+      String outcome = String.valueOf(sampler.sample(random));
+      counts.put(outcome, counts.containsKey(outcome) ? counts.get(outcome) + 1 : 1);
+    }
+    Assert.assertEquals(0.1, (double) counts.get("stop") / samples, 0.01);
+    Assert.assertEquals(0.2, (double) counts.get("kill") / samples, 0.01);
+    Assert.assertEquals(0.3, (double) counts.get("restart") / samples, 0.01);
+    // No outcome is picked the rest of the time
+    Assert.assertEquals(0.4, (double) counts.get("null") / samples, 0.01);
+  }
+
+  @Test
+  public void testCertain() throws Exception {
+    AliasSampler<String> sampler = new AliasSampler<>(ImmutableMap.of("stop", 0.5, "kill", 0.5));
+    Random random = new Random(0);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertNotNull(sampler.sample(random));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOverOne() throws Exception {
+    new AliasSampler<>(ImmutableMap.of("stop", 0.6, "kill", 0.6));
+  }
+}
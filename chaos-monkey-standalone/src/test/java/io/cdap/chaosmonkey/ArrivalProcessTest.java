@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Tests for {@link ArrivalProcess} and {@link CronExpression}
+ */
+public class ArrivalProcessTest {
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  @Test
+  public void testFixedRate() throws Exception {
+    ArrivalProcess arrivals = ArrivalProcess.fixedRate(1000);
+    Assert.assertEquals(5000, arrivals.next(5000));
+    Assert.assertEquals(6000, arrivals.next(5000));
+    Assert.assertEquals(7000, arrivals.next(6000));
+  }
+
+  @Test
+  public void testPoisson() throws Exception {
+    ArrivalProcess arrivals = ArrivalProcess.poisson(1000, new Random(0));
+    long time = 0;
+    for (int i = 0; i < 10000; i++) {
+      long next = arrivals.next(time);
+      Assert.assertTrue(next >= time);
+      time = next;
+    }
+    Assert.assertEquals(1000, time / 10000, 50);
+  }
+
+  @Test
+  public void testOnOff() throws Exception {
+    // Every second, but only in the first 3 seconds of every 10
+    ArrivalProcess arrivals = ArrivalProcess.onOff(ArrivalProcess.fixedRate(1000), 3000, 7000);
+    long time = 0;
+    long[] expected = {0, 1000, 2000, 10000, 11000, 12000, 20000};
+    for (long expectedTime : expected) {
+      time = arrivals.next(time);
+      Assert.assertEquals(expectedTime, time);
+    }
+  }
+
+  @Test
+  public void testCron() throws Exception {
+    // Every 15 minutes from 9 to 17 on weekdays
+    CronExpression cron = CronExpression.parse("*/15 9-17 * * 1-5", UTC);
+    // Friday 2017-06-02 17:50 UTC
+    long friday = time(2017, Calendar.JUNE, 2, 17, 50);
+    Assert.assertEquals(time(2017, Calendar.JUNE, 5, 9, 0), cron.next(friday));
+    Assert.assertEquals(time(2017, Calendar.JUNE, 5, 9, 15), cron.next(time(2017, Calendar.JUNE, 5, 9, 0)));
+    Assert.assertEquals(time(2017, Calendar.JUNE, 5, 9, 15), cron.next(time(2017, Calendar.JUNE, 5, 9, 3)));
+
+    // Restricting both days of month and days of week matches either one
+    cron = CronExpression.parse("0 0 13 * 5", UTC);
+    Assert.assertEquals(time(2017, Calendar.JUNE, 9, 0, 0), cron.next(friday));
+    Assert.assertEquals(time(2017, Calendar.JUNE, 13, 0, 0), cron.next(time(2017, Calendar.JUNE, 9, 0, 0)));
+
+    ArrivalProcess arrivals = ArrivalProcess.cron(CronExpression.parse("30 2 * * *", UTC));
+    Assert.assertEquals(time(2017, Calendar.JUNE, 3, 2, 30), arrivals.next(friday));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCron() throws Exception {
+    CronExpression.parse("0 25 * * *");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNeverMatchingCron() throws Exception {
+    CronExpression.parse("0 0 30 2 *", UTC).next(0);
+  }
+
+  private static long time(int year, int month, int day, int hour, int minute) {
+    Calendar calendar = Calendar.getInstance(UTC);
+    calendar.clear();
+    calendar.set(year, month, day, hour, minute);
+    return calendar.getTimeInMillis();
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.jcraft.jsch.JSch;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import io.cdap.chaosmonkey.proto.BatchEntry;
+import io.cdap.chaosmonkey.proto.BatchStatus;
+import io.cdap.chaosmonkey.proto.ClusterInfoCollector;
+import io.cdap.chaosmonkey.proto.ClusterNode;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
+import io.cdap.chaosmonkey.proto.ServiceInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ChaosMonkeyService}
+ */
+public class ChaosMonkeyServiceTest {
+  private static final Queue<String> DISRUPTED = new ConcurrentLinkedQueue<>();
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private ChaosMonkeyService service;
+
+  @Before
+  public void setUp() {
+    DISRUPTED.clear();
+  }
+
+  @After
+  public void tearDown() {
+    if (service != null && service.isRunning()) {
+      service.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testServiceJoinsAfterStartup() throws Exception {
+    Nodes nodes = new Nodes(new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.1"));
+    service = new ChaosMonkeyService(createConf(), nodes, createSshShells());
+    service.startAsync().awaitRunning();
+    Assert.assertEquals(ImmutableSet.of("zookeeper"), getServiceNames());
+
+    nodes.add(new ClusterNode(ImmutableSet.of("hbase-master"), "10.0.0.2"));
+    service.refreshTopology();
+    Assert.assertEquals(ImmutableSet.of("zookeeper", "hbase-master"), getServiceNames());
+
+    DisruptionResult result = service.asyncDisrupt("hbase-master", RecordingDisruption.NAME, null)
+      .get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(DisruptionResult.COMPLETED, result.getState());
+    Assert.assertEquals(Collections.singletonList("hbase-master@10.0.0.2"), new ArrayList<>(DISRUPTED));
+
+    BatchStatus batch = service.executeBatch(Collections.singletonList(
+      new BatchEntry("hbase-master", RecordingDisruption.NAME)));
+    Assert.assertEquals(1, batch.getEntries().size());
+    Assert.assertNotNull(batch.getEntries().get(0).getId());
+  }
+
+  @Test
+  public void testIncompleteNodesIgnored() throws Exception {
+    ClusterNode zk1 = new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.1");
+    ClusterNode zk2 = new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.2");
+    ClusterNode zk3 = new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.3");
+    Nodes nodes = new Nodes(zk1, zk2, zk3);
+    service = new ChaosMonkeyService(createConf(), nodes, createSshShells());
+    service.startAsync().awaitRunning();
+
+    // An empty answer would remove every process
+    nodes.remove(zk1);
+    nodes.remove(zk2);
+    nodes.remove(zk3);
+    Assert.assertTrue(service.refreshTopology().isEmpty());
+    // Removing two of the three processes is more than half of them
+    nodes.add(zk1);
+    Assert.assertTrue(service.refreshTopology().isEmpty());
+    Assert.assertEquals(3, service.getProcessTable().size());
+
+    nodes.add(zk2);
+    Assert.assertEquals(ImmutableSet.of("10.0.0.3"), service.refreshTopology().getRemoved().get("zookeeper"));
+    Assert.assertEquals(2, service.getProcessTable().size());
+  }
+
+  @Test
+  public void testParallelStartup() throws Exception {
+    Configuration conf = createConf();
+    conf.setInt(Constants.Startup.THREADS, 4);
+    Set<String> services = new HashSet<>();
+    Nodes nodes = new Nodes();
+    for (int i = 0; i < 8; i++) {
+      String service = "service-" + i;
+      conf.set(service + ".disruptions", RecordingDisruption.class.getName());
+      services.add(service);
+    }
+    for (int i = 1; i <= 4; i++) {
+      nodes.add(new ClusterNode(services, "10.0.0." + i));
+    }
+    service = new ChaosMonkeyService(conf, nodes, createSshShells());
+    service.startAsync().awaitRunning();
+
+    Assert.assertEquals(services, getServiceNames());
+    Assert.assertEquals(32, service.getProcessTable().size());
+    Assert.assertTrue(service.getProcessTable() instanceof ImmutableTable);
+    Map<String, Object> readiness = service.getReadiness();
+    Assert.assertEquals(Boolean.TRUE, readiness.get("ready"));
+    Assert.assertEquals(8, readiness.get("servicesBuilt"));
+    Assert.assertEquals(32, readiness.get("processesBuilt"));
+
+    DisruptionResult result = service.asyncDisrupt("service-3", RecordingDisruption.NAME, null)
+      .get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(DisruptionResult.COMPLETED, result.getState());
+    Assert.assertEquals(4, DISRUPTED.size());
+  }
+
+  @Test
+  public void testRejectedWhileStarting() throws Exception {
+    Nodes nodes = new Nodes(new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.1"));
+    nodes.block();
+    service = new ChaosMonkeyService(createConf(), nodes, createSshShells());
+    service.startAsync();
+    try {
+      Assert.assertEquals(Boolean.FALSE, service.getReadiness().get("ready"));
+      try {
+        service.getMetrics();
+        Assert.fail("Expected requests to be rejected while starting");
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+    } finally {
+      nodes.unblock();
+    }
+
+    service.awaitRunning();
+    Assert.assertEquals(Boolean.TRUE, service.getReadiness().get("ready"));
+    Assert.assertNotNull(service.getMetrics());
+  }
+
+  @Test
+  public void testReplayJournal() throws Exception {
+    // Two runs appended to the same journal a day apart, the second replaying the first before its own action
+    long firstRun = 1000000L;
+    long secondRun = firstRun + TimeUnit.DAYS.toMillis(1);
+    File journalFile = tmpFolder.newFile("journal.json");
+    try (EventJournal journal = EventJournal.open(journalFile.getPath())) {
+      journal.record(new JournalEvent(firstRun, JournalEvent.RUN, null, null, null, 1L, null));
+      journal.record(new JournalEvent(firstRun + 100, JournalEvent.API, "zookeeper", RecordingDisruption.NAME,
+                                      Collections.singletonList("10.0.0.1"), null, "1"));
+      journal.record(new JournalEvent(secondRun, JournalEvent.RUN, null, null, null, 2L, null));
+      journal.record(new JournalEvent(secondRun + 100, JournalEvent.REPLAY, "zookeeper", RecordingDisruption.NAME,
+                                      Collections.singletonList("10.0.0.1"), null, "2"));
+      journal.record(new JournalEvent(secondRun + 200, JournalEvent.API, "hbase-master", RecordingDisruption.NAME,
+                                      Collections.singletonList("10.0.0.2"), null, "3"));
+    }
+
+    Configuration conf = createConf();
+    conf.set(Constants.Run.REPLAY_JOURNAL_PATH, journalFile.getPath());
+    Nodes nodes = new Nodes(new ClusterNode(ImmutableSet.of("zookeeper"), "10.0.0.1"),
+                            new ClusterNode(ImmutableSet.of("hbase-master"), "10.0.0.2"));
+    service = new ChaosMonkeyService(conf, nodes, createSshShells());
+    service.startAsync().awaitRunning();
+
+    // The day between the runs is not waited for, and the replayed action is not replayed again
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (DISRUPTED.size() < 2 && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(Arrays.asList("zookeeper@10.0.0.1", "hbase-master@10.0.0.2"), new ArrayList<>(DISRUPTED));
+  }
+
+  private Set<String> getServiceNames() throws Exception {
+    Set<String> names = new HashSet<>();
+    for (ServiceInfo serviceInfo : service.getServices()) {
+      names.add(serviceInfo.getName());
+    }
+    return names;
+  }
+
+  private static Configuration createConf() {
+    Configuration conf = new Configuration();
+    conf.setInt(Constants.StatusCache.REFRESH_INTERVAL_SECONDS, 0);
+    for (String service : new String[] { "zookeeper", "hbase-master" }) {
+      conf.set(service + ".disruptions", RecordingDisruption.class.getName());
+    }
+    return conf;
+  }
+
+  private static SshShellRegistry createSshShells() {
+    // Shells are created but never connect, since the disruptions do not run commands
+    return new SshShellRegistry("test", Suppliers.ofInstance(new JSch()), SshSessionPool.Settings.DEFAULT);
+  }
+
+  /**
+   * A disruption that only records the processes it was given.
+   */
+  public static final class RecordingDisruption implements Disruption {
+    static final String NAME = "record";
+
+    @Override
+    public void disrupt(Collection<RemoteProcess> processes, Map<String, String> serviceArguments) {
+      for (RemoteProcess process : processes) {
+        DISRUPTED.add(process.getName() + "@" + process.getAddress());
+      }
+    }
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+  }
+
+  /**
+   * A cluster whose nodes can be added and removed while the service is running, and whose reads can be held back.
+   */
+  private static final class Nodes implements ClusterInfoCollector {
+    private final List<ClusterNode> nodes = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch available = new CountDownLatch(0);
+
+    Nodes(ClusterNode... nodes) {
+      Collections.addAll(this.nodes, nodes);
+    }
+
+    void add(ClusterNode node) {
+      nodes.add(node);
+    }
+
+    void remove(ClusterNode node) {
+      nodes.remove(node);
+    }
+
+    /**
+     * Holds back reads of the nodes until {@link #unblock()} is called
+     */
+    void block() {
+      available = new CountDownLatch(1);
+    }
+
+    void unblock() {
+      available.countDown();
+    }
+
+    @Override
+    public void initialize(Map<String, String> properties) {
+      // NO-OP
+    }
+
+    @Override
+    public Collection<ClusterNode> getNodeProperties() throws InterruptedException {
+      available.await();
+      return new ArrayList<>(nodes);
+    }
+  }
+}
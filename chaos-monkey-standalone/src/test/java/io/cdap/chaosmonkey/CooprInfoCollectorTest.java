@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.proto.ClusterNode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link CooprInfoCollector}
+ */
+public class CooprInfoCollectorTest {
+  private static final String ETAG = "\"v1\"";
+  private static final String LAST_MODIFIED = "Wed, 01 Jan 2025 00:00:00 GMT";
+  private static final String NODES = "{\"node-1\":{\"services\":[\"hbase-master\",\"cdap\"]," +
+    "\"ipaddresses\":{\"access_v4\":\"10.0.0.1\"}},\"node-2\":{\"services\":[\"zookeeper\"]," +
+    "\"ipaddresses\":{\"access_v4\":\"10.0.0.2\"}}}";
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testConditionalFetchAndSnapshot() throws Exception {
+    CooprHandler handler = new CooprHandler();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/getNodeProperties", handler);
+    server.start();
+
+    File snapshot = new File(tmpFolder.getRoot(), "nodes.json");
+    Map<String, String> properties = createProperties(server, snapshot);
+    CooprInfoCollector collector = new CooprInfoCollector();
+    collector.initialize(properties);
+    try {
+      assertNodes(collector.getNodeProperties());
+      Assert.assertTrue(snapshot.isFile());
+      Assert.assertNull(handler.ifModifiedSince);
+      // Unchanged nodes are not downloaded again
+      assertNodes(collector.getNodeProperties());
+      Assert.assertEquals(2, handler.requests.get());
+      Assert.assertEquals(1, handler.downloads.get());
+      Assert.assertEquals(LAST_MODIFIED, handler.ifModifiedSince);
+    } finally {
+      server.stop(0);
+    }
+
+    // The last known nodes are kept while Coopr is down, and a new collector starts from the snapshot
+    assertNodes(collector.getNodeProperties());
+    CooprInfoCollector restarted = new CooprInfoCollector();
+    restarted.initialize(properties);
+    assertNodes(restarted.getNodeProperties());
+  }
+
+  @Test
+  public void testReconcileSnapshotInBackground() throws Exception {
+    File snapshot = new File(tmpFolder.getRoot(), "nodes.json");
+    List<ClusterNode> stale = ImmutableList.of(new ClusterNode(ImmutableList.of("zookeeper"), "10.0.0.9",
+                                                               ImmutableMap.<String, String>of()));
+    Files.write(new Gson().toJson(stale), snapshot, StandardCharsets.UTF_8);
+
+    CooprHandler handler = new CooprHandler();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/getNodeProperties", handler);
+    server.start();
+    try {
+      CooprInfoCollector collector = new CooprInfoCollector();
+      collector.initialize(createProperties(server, snapshot));
+      // The snapshot is returned right away, and Coopr is queried in the background
+      Collection<ClusterNode> nodes = collector.getNodeProperties();
+      Assert.assertEquals(1, nodes.size());
+      Assert.assertEquals("10.0.0.9", nodes.iterator().next().getHost());
+
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (handler.downloads.get() < 1 && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      Assert.assertEquals(1, handler.downloads.get());
+
+      // The nodes fetched in the background replaced the snapshot, so the next request is conditional
+      assertNodes(collector.getNodeProperties());
+      Assert.assertEquals(2, handler.requests.get());
+      Assert.assertEquals(1, handler.downloads.get());
+      Assert.assertEquals(LAST_MODIFIED, handler.ifModifiedSince);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnreachableWithoutSnapshot() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    int port = server.getAddress().getPort();
+    server.start();
+    server.stop(0);
+
+    CooprInfoCollector collector = new CooprInfoCollector();
+    collector.initialize(ImmutableMap.of(Constants.Coopr.SERVER_URI, "http://localhost:" + port,
+                                         Constants.Coopr.API_VERSION, "v1",
+                                         Constants.Coopr.CLUSTER_ID, "cluster",
+                                         Constants.Coopr.TIMEOUT_SECONDS, "1"));
+    collector.getNodeProperties();
+  }
+
+  private Map<String, String> createProperties(HttpServer server, File snapshot) {
+    return ImmutableMap.of(
+      Constants.Coopr.SERVER_URI, "http://localhost:" + server.getAddress().getPort(),
+      Constants.Coopr.API_VERSION, "v1",
+      Constants.Coopr.CLUSTER_ID, "cluster",
+      Constants.Coopr.SNAPSHOT_PATH, snapshot.getPath());
+  }
+
+  private void assertNodes(Collection<ClusterNode> nodes) {
+    Assert.assertEquals(2, nodes.size());
+    Set<String> services = new HashSet<>();
+    for (ClusterNode node : nodes) {
+      if (node.getHost().equals("10.0.0.1")) {
+        services.addAll(node.getServices());
+      }
+    }
+    Assert.assertEquals(ImmutableSet.of("hbase-master", "cdap-master", "cdap-router", "cdap-kafka-server",
+                                        "cdap-auth-server", "cdap-ui"), services);
+  }
+
+  /**
+   * Answers with {@link #NODES}, or with 304 if the request is conditional on the current version of the nodes.
+   */
+  private static final class CooprHandler implements HttpHandler {
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger downloads = new AtomicInteger();
+    private volatile String ifModifiedSince;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      ByteStreams.toByteArray(exchange.getRequestBody());
+      requests.incrementAndGet();
+      ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(304, -1);
+      } else {
+        downloads.incrementAndGet();
+        byte[] body = NODES.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+          output.write(body);
+        }
+      }
+      exchange.close();
+    }
+  }
+}
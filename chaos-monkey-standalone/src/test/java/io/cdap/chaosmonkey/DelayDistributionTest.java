@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link DelayDistribution}
+ */
+public class DelayDistributionTest {
+
+  @Test
+  public void testParse() throws Exception {
+    Random random = new Random(0);
+    Assert.assertEquals(60000, DelayDistribution.parse("60").sampleMillis(random));
+
+    DelayDistribution uniform = DelayDistribution.parse("30-120");
+    for (int i = 0; i < 1000; i++) {
+      long delay = uniform.sampleMillis(random);
+      Assert.assertTrue(delay >= 30000 && delay <= 120000);
+    }
+
+    DelayDistribution exponential = DelayDistribution.parse("exp:60");
+    long total = 0;
+    for (int i = 0; i < 10000; i++) {
+      long delay = exponential.sampleMillis(random);
+      Assert.assertTrue(delay >= 0);
+      total += delay;
+    }
+    Assert.assertEquals(60000, total / 10000, 3000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRange() throws Exception {
+    DelayDistribution.parse("120-30");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidValue() throws Exception {
+    DelayDistribution.parse("soon");
+  }
+}
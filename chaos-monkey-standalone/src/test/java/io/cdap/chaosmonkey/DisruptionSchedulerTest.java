@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link DisruptionScheduler}
+ */
+public class DisruptionSchedulerTest {
+  private static final long NOW = 1000000L;
+
+  @Test
+  public void testOverrunWhileRunning() throws Exception {
+    BlockingSubmitter submitter = new BlockingSubmitter();
+    // Due now, then twice more while the first iteration is still running
+    DisruptionScheduler scheduler = createScheduler(submitter, new FixedClock(NOW), NOW, NOW + 20, NOW + 40);
+    scheduler.startAsync().awaitRunning();
+    try {
+      awaitMetric(scheduler, "overruns", 2);
+      // The iteration is marked as running before it reaches the submitter
+      awaitSubmitted(submitter, 1);
+      Assert.assertTrue((Boolean) scheduler.getSchedules().get(0).get("running"));
+
+      submitter.release.countDown();
+      awaitMetric(scheduler, "iterations", 1);
+      Assert.assertEquals(1, submitter.submitted.get());
+      Assert.assertEquals(0L, (long) scheduler.getMetrics().get("failures"));
+    } finally {
+      submitter.release.countDown();
+      scheduler.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testSkipMissedIterations() throws Exception {
+    BlockingSubmitter submitter = new BlockingSubmitter();
+    submitter.release.countDown();
+    // Every listed time passed while the timer was held up
+    DisruptionScheduler scheduler = createScheduler(submitter, new FixedClock(NOW), NOW - 3000, NOW - 2000,
+                                                    NOW - 1000);
+    scheduler.startAsync().awaitRunning();
+    try {
+      awaitMetric(scheduler, "iterations", 1);
+      Assert.assertEquals(2L, (long) scheduler.getMetrics().get("overruns"));
+      // Iterations are counted before they reach the submitter
+      awaitSubmitted(submitter, 1);
+      for (Object time : (List<?>) scheduler.getSchedules().get(0).get("nextIterations")) {
+        Assert.assertTrue((Long) time >= NOW);
+      }
+    } finally {
+      scheduler.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testRecoveryQueuedWhileStopping() throws Exception {
+    BlockingSubmitter submitter = new BlockingSubmitter();
+    ScheduledDisruption disruption = createDisruption("stop", submitter, NOW);
+    // Long enough that the recovery is only run when the scheduler stops
+    disruption.setRecoveryDelay(DelayDistribution.parse("3600"));
+    DisruptionScheduler scheduler = new DisruptionScheduler(Collections.singletonList(disruption), 2, 0.0,
+                                                            new FixedClock(NOW));
+    scheduler.startAsync().awaitRunning();
+    while (submitter.submitted.get() == 0) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    // The stop finishes only once the scheduler is stopping, so its recovery is queued after the timer is shut down
+    scheduler.stopAsync();
+    TimeUnit.MILLISECONDS.sleep(100);
+    submitter.release.countDown();
+    scheduler.awaitTerminated();
+
+    Assert.assertEquals(1L, (long) scheduler.getMetrics().get("recoveries"));
+    Assert.assertEquals(0L, (long) scheduler.getMetrics().get("pendingRecoveries"));
+    // The recovery is submitted like the scheduled disruptions
+    Assert.assertEquals(Arrays.asList("stop", "start"), submitter.disruptionNames);
+  }
+
+  @Test
+  public void testNeverMatchingCronSkipped() throws Exception {
+    Configuration conf = new Configuration();
+    Table<String, String, RemoteProcess> processTable = HashBasedTable.create();
+    Table<String, String, Disruption> disruptionTable = HashBasedTable.create();
+    for (String service : new String[] { "zookeeper", "hbase-master" }) {
+      processTable.put("10.0.0.1", service, TestProcesses.fixed(service, "10.0.0.1"));
+      disruptionTable.put(service, "kill", new Kill());
+      conf.set(service + ".arrival", "cron");
+      conf.set(service + ".schedule.kill.probability", "1.0");
+    }
+    conf.set("zookeeper.cron", "0 0 30 2 *");
+    conf.set("hbase-master.cron", "0 0 * * *");
+
+    DisruptionScheduler scheduler = DisruptionScheduler.create(conf, processTable, disruptionTable,
+                                                               new BlockingSubmitter(), 0L);
+    List<Map<String, Object>> schedules = scheduler.getSchedules();
+    Assert.assertEquals(1, schedules.size());
+    Assert.assertEquals("hbase-master", schedules.get(0).get("service"));
+  }
+
+  static DisruptionScheduler createScheduler(DisruptionSubmitter submitter, Clock clock, long... arrivals) {
+    ScheduledDisruption disruption = createDisruption("restart", submitter, arrivals);
+    return new DisruptionScheduler(Collections.singletonList(disruption), 2, 0.0, clock);
+  }
+
+  static ScheduledDisruption createDisruption(String action, DisruptionSubmitter submitter, long... arrivals) {
+    // Starting the process succeeds right away
+    RemoteProcess process = TestProcesses.fixed("hbase-master", "10.0.0.1", "chaos-monkey-action pre 3\n" +
+      "chaos-monkey-action act 0\nchaos-monkey-action post 0\n");
+    ScheduledDisruption disruption = new ScheduledDisruption(Collections.singletonList(process),
+                                                             ImmutableMap.of(action, 1.0), 60, 1, 1, new Random(0),
+                                                             submitter);
+    disruption.setArrivalProcess(new ListedArrivals(arrivals));
+    return disruption;
+  }
+
+  static void awaitMetric(DisruptionScheduler scheduler, String metric, long value) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (scheduler.getMetrics().get(metric) != value) {
+      if (System.currentTimeMillis() > deadline) {
+        Assert.fail(String.format("Expected %s to be %d, but it is %d", metric, value,
+                                  scheduler.getMetrics().get(metric)));
+      }
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+  }
+
+  static void awaitSubmitted(BlockingSubmitter submitter, int submitted) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (submitter.submitted.get() < submitted) {
+      if (System.currentTimeMillis() > deadline) {
+        Assert.fail(String.format("Expected %d submitted disruptions, but there are %d", submitted,
+                                  submitter.submitted.get()));
+      }
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(submitted, submitter.submitted.get());
+  }
+
+  /**
+   * A clock stopped at a given time.
+   */
+  static final class FixedClock extends Clock {
+    private final long time;
+
+    FixedClock(long time) {
+      this.time = time;
+    }
+
+    @Override
+    long currentTimeMillis() {
+      return time;
+    }
+  }
+
+  /**
+   * Arrivals at the listed times, then once a day.
+   */
+  private static final class ListedArrivals extends ArrivalProcess {
+    private final Deque<Long> times = new ArrayDeque<>();
+
+    ListedArrivals(long... times) {
+      for (long time : times) {
+        this.times.add(time);
+      }
+    }
+
+    @Override
+    public long next(long previousMillis) {
+      return times.isEmpty() ? previousMillis + TimeUnit.DAYS.toMillis(1) : times.removeFirst();
+    }
+  }
+
+  /**
+   * Completes every disruption once it is released, succeeding on every process.
+   */
+  static final class BlockingSubmitter implements DisruptionSubmitter {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger submitted = new AtomicInteger();
+    final List<String> disruptionNames = new CopyOnWriteArrayList<>();
+
+    @Override
+    public SubmittedDisruption submit(String service, String disruptionName, Collection<RemoteProcess> processes) {
+      submitted.incrementAndGet();
+      disruptionNames.add(disruptionName);
+      SubmittedDisruption disruption = new SubmittedDisruption(service, disruptionName);
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      Map<String, ProcessOutcome> outcomes = new HashMap<>();
+      for (RemoteProcess process : processes) {
+        outcomes.put(process.getAddress(), ProcessOutcome.SUCCEEDED);
+      }
+      disruption.complete(outcomes, null);
+      return disruption;
+    }
+  }
+}
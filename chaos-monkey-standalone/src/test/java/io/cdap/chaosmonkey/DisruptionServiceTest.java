@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.proto.DisruptionResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DisruptionService}
+ */
+public class DisruptionServiceTest {
+  private static final RemoteProcess ZK1 = TestProcesses.fixed("zookeeper", "10.0.0.1");
+  private static final RemoteProcess ZK2 = TestProcesses.fixed("zookeeper", "10.0.0.2");
+
+  @Test
+  public void testCancelledStopCountsAsDown() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    AdmissionController controller = new AdmissionController(1, Integer.MAX_VALUE,
+                                                              ImmutableMap.<String, Integer>of(), 0);
+    DisruptionService service = createService(1, controller, new NamedDisruption(Constants.RemoteProcess.STOP,
+                                                                                 running, new CountDownLatch(1)));
+    try {
+      SubmittedDisruption stop = service.disrupt(Constants.RemoteProcess.STOP, "zookeeper",
+                                                 Collections.singletonList(ZK1), ImmutableMap.<String, String>of());
+      Assert.assertTrue(running.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(service.cancel("zookeeper", Constants.RemoteProcess.STOP, stop.getId()));
+      Assert.assertEquals(DisruptionResult.CANCELLED, stop.getResult().getState());
+
+      // The stop may have halted the process before it was cancelled, so the process stays down
+      awaitCompleted(service, 1);
+      Assert.assertEquals(1, controller.getUsage().get("down"));
+      try {
+        service.disrupt(Constants.RemoteProcess.STOP, "zookeeper", Collections.singletonList(ZK2),
+                        ImmutableMap.<String, String>of());
+        Assert.fail("Expected the stop to be over the budget");
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+    } finally {
+      service.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testQueuedDisruptionDoesNotHoldThread() throws Exception {
+    AdmissionController controller = new AdmissionController(1, Integer.MAX_VALUE,
+                                                              ImmutableMap.<String, Integer>of(), 30000);
+    DisruptionService service = createService(1, controller, new NamedDisruption(Constants.RemoteProcess.STOP),
+                                              new NamedDisruption(Constants.RemoteProcess.START));
+    try {
+      Map<String, String> arguments = ImmutableMap.of();
+      DisruptionResult result = service.disrupt(Constants.RemoteProcess.STOP, "zookeeper",
+                                                Collections.singletonList(ZK1), arguments)
+        .getFuture().get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(DisruptionResult.COMPLETED, result.getState());
+
+      // The second stop waits for the budget without taking the only thread, so the start that frees it can run
+      SubmittedDisruption stop = service.disrupt(Constants.RemoteProcess.STOP, "zookeeper",
+                                                 Collections.singletonList(ZK2), arguments);
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while ((long) controller.getUsage().get("queued") < 1 && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      Assert.assertFalse(stop.getFuture().isDone());
+      result = service.disrupt(Constants.RemoteProcess.START, "zookeeper", Collections.singletonList(ZK1), arguments)
+        .getFuture().get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(DisruptionResult.COMPLETED, result.getState());
+      Assert.assertEquals(DisruptionResult.COMPLETED, stop.getFuture().get(10, TimeUnit.SECONDS).getState());
+      Assert.assertEquals(1L, controller.getUsage().get("queued"));
+      Assert.assertEquals(0L, controller.getUsage().get("rejected"));
+    } finally {
+      service.stopAsync().awaitTerminated();
+    }
+  }
+
+  private DisruptionService createService(int threads, AdmissionController controller, Disruption... disruptions) {
+    Table<String, String, Disruption> disruptionTable = HashBasedTable.create();
+    for (Disruption disruption : disruptions) {
+      disruptionTable.put("zookeeper", disruption.getName(), disruption);
+    }
+    DisruptionService service = new DisruptionService(disruptionTable, threads, controller);
+    service.startAsync().awaitRunning();
+    return service;
+  }
+
+  private void awaitCompleted(DisruptionService service, long completed) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (service.getMetrics().get("completed") < completed && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(completed, (long) service.getMetrics().get("completed"));
+  }
+
+  /**
+   * A disruption with the given name that does not run any command, and optionally blocks until interrupted.
+   */
+  private static final class NamedDisruption implements Disruption {
+    private final String name;
+    private final CountDownLatch running;
+    private final CountDownLatch release;
+
+    NamedDisruption(String name) {
+      this(name, new CountDownLatch(1), new CountDownLatch(0));
+    }
+
+    NamedDisruption(String name, CountDownLatch running, CountDownLatch release) {
+      this.name = name;
+      this.running = running;
+      this.release = release;
+    }
+
+    @Override
+    public void disrupt(Collection<RemoteProcess> processes, Map<String, String> serviceArguments) throws Exception {
+      running.countDown();
+      release.await();
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link EventJournal}
+ */
+public class EventJournalTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testRecordAndRead() throws Exception {
+    File file = new File(tmpFolder.getRoot(), "journal");
+    try (EventJournal journal = EventJournal.open(file.getPath())) {
+      journal.record(JournalEvent.run(42L));
+      journal.record(JournalEvent.action(JournalEvent.SCHEDULE, "hbase-master", "kill",
+                                         Arrays.asList("10.0.0.1", "10.0.0.2"), null));
+    }
+    // Reopening appends to the journal
+    try (EventJournal journal = EventJournal.open(file.getPath())) {
+      journal.record(JournalEvent.action(JournalEvent.API, "hbase-master", "start", Arrays.asList("10.0.0.1"), "id"));
+    }
+
+    List<JournalEvent> events = EventJournal.read(file);
+    Assert.assertEquals(3, events.size());
+    Assert.assertEquals(JournalEvent.RUN, events.get(0).getSource());
+    Assert.assertEquals(Long.valueOf(42L), events.get(0).getSeed());
+    Assert.assertFalse(events.get(0).isAction());
+
+    Assert.assertEquals(JournalEvent.SCHEDULE, events.get(1).getSource());
+    Assert.assertEquals("kill", events.get(1).getAction());
+    Assert.assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), events.get(1).getNodes());
+    Assert.assertTrue(events.get(1).isAction());
+
+    Assert.assertEquals("start", events.get(2).getAction());
+    Assert.assertEquals("id", events.get(2).getId());
+    Assert.assertTrue(events.get(1).getTime() <= events.get(2).getTime());
+  }
+}
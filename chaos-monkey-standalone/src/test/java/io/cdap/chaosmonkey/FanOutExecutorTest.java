@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link FanOutExecutor}
+ */
+public class FanOutExecutorTest {
+
+  @Test
+  public void testPerHostLimit() throws Exception {
+    FanOutExecutor executor = new FanOutExecutor(Executors.newFixedThreadPool(8), FanOutExecutor.Type.BOUNDED, 2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    try {
+      List<ListenableFuture<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(executor.submit("10.0.0.1", new BlockingTask(release, running, maxRunning)));
+      }
+      // Another host is not held up by the first one
+      Assert.assertEquals(Integer.valueOf(0), executor.submit("10.0.0.2", new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return 0;
+        }
+      }).get(10, TimeUnit.SECONDS));
+
+      awaitMetric(executor, "active", 2);
+      Assert.assertEquals(3L, (long) executor.getMetrics().get("waitingForHost"));
+      release.countDown();
+      for (ListenableFuture<Integer> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      Assert.assertEquals(2, maxRunning.get());
+      // Tasks are counted as completed once they gave up their slot, which is after their future completed
+      awaitMetric(executor, "completed", 6);
+      Assert.assertEquals(0L, (long) executor.getMetrics().get("waitingForHost"));
+      Assert.assertEquals(0L, (long) executor.getMetrics().get("busyHosts"));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testQueuedTasksCancelledAfterShutdown() throws Exception {
+    ExecutorService delegate = Executors.newSingleThreadExecutor();
+    FanOutExecutor executor = new FanOutExecutor(delegate, FanOutExecutor.Type.BOUNDED, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    ListenableFuture<Integer> first = executor.submit("10.0.0.1", new BlockingTask(release, new AtomicInteger(),
+                                                                                   new AtomicInteger()));
+    // Enough tasks waiting for the host that cancelling them one stack frame each would overflow the stack
+    List<ListenableFuture<Integer>> queued = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      queued.add(executor.submit("10.0.0.1", new BlockingTask(release, new AtomicInteger(), new AtomicInteger())));
+    }
+    executor.shutdown();
+    release.countDown();
+
+    Assert.assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+    Assert.assertTrue(delegate.awaitTermination(10, TimeUnit.SECONDS));
+    for (ListenableFuture<Integer> future : queued) {
+      Assert.assertTrue(future.isCancelled());
+    }
+    Assert.assertEquals(100001L, (long) executor.getMetrics().get("completed"));
+    Assert.assertEquals(100000L, (long) executor.getMetrics().get("failed"));
+    Assert.assertEquals(0L, (long) executor.getMetrics().get("busyHosts"));
+  }
+
+  @Test
+  public void testVirtualThreadFallback() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set(Constants.Executor.TYPE, "virtual");
+    conf.setInt(Constants.Executor.THREADS, 2);
+    FanOutExecutor executor = FanOutExecutor.create(conf);
+    try {
+      // Virtual threads are only used on JVMs that support them, others get a bounded pool
+      Map<String, Long> metrics = executor.getMetrics();
+      Assert.assertEquals(supportsVirtualThreads() ? 1L : 0L, (long) metrics.get("virtualThreads"));
+      if (!supportsVirtualThreads()) {
+        Assert.assertEquals(2L, (long) metrics.get("maxPoolSize"));
+      }
+      Assert.assertEquals("done", executor.submit("10.0.0.1", new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return "done";
+        }
+      }).get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static boolean supportsVirtualThreads() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static void awaitMetric(FanOutExecutor executor, String metric, long value) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (executor.getMetrics().get(metric) != value) {
+      if (System.currentTimeMillis() > deadline) {
+        Assert.fail(String.format("Expected %s to be %d, but it is %d", metric, value,
+                                  executor.getMetrics().get(metric)));
+      }
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+  }
+
+  /**
+   * Waits to be released, keeping track of how many such tasks run at a time.
+   */
+  private static final class BlockingTask implements Callable<Integer> {
+    private final CountDownLatch release;
+    private final AtomicInteger running;
+    private final AtomicInteger maxRunning;
+
+    BlockingTask(CountDownLatch release, AtomicInteger running, AtomicInteger maxRunning) {
+      this.release = release;
+      this.running = running;
+      this.maxRunning = maxRunning;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      int current = running.incrementAndGet();
+      int max = maxRunning.get();
+      while (current > max && !maxRunning.compareAndSet(max, current)) {
+        max = maxRunning.get();
+      }
+      try {
+        release.await();
+        return 1;
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.chaosmonkey.common.Constants;
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link HostStatusProbe}
+ */
+public class HostStatusProbeTest {
+
+  @Test
+  public void testBuildScript() throws Exception {
+    List<RemoteProcess> processes = ImmutableList.<RemoteProcess>of(
+      new SysVRemoteProcess("hbase-master", "/var/run/master.pid", null),
+      new CustomRemoteProcess("cdap-router", "/var/run/router.pid", null,
+                              ImmutableMap.of(Constants.RemoteProcess.IS_RUNNING, "pgrep router")));
+
+    Assert.assertEquals("(sudo service hbase-master status) </dev/null >/dev/null 2>&1; " +
+                          "echo \"chaos-monkey-status 0 $?\"; " +
+                          "(pgrep router) </dev/null >/dev/null 2>&1; echo \"chaos-monkey-status 1 $?\"",
+                        HostStatusProbe.buildScript(processes));
+  }
+
+  @Test
+  public void testParseExitCodes() throws Exception {
+    Map<Integer, Integer> exitCodes = HostStatusProbe.parseExitCodes(
+      "motd noise\nchaos-monkey-status 0 0\nchaos-monkey-status 1 3\nchaos-monkey-status x 1\n" +
+        "chaos-monkey-status 2 127\n");
+
+    Assert.assertEquals(ImmutableMap.of(0, 0, 1, 3, 2, 127), exitCodes);
+  }
+
+  @Test
+  public void testCall() throws Exception {
+    final String output = "chaos-monkey-status 0 0\nchaos-monkey-status 1 3\n";
+    List<RemoteProcess> processes = ImmutableList.<RemoteProcess>of(
+      TestProcesses.fixed("hbase-master", "10.0.0.1", output),
+      TestProcesses.fixed("hbase-regionserver", "10.0.0.1", output),
+      TestProcesses.fixed("cdap-router", "10.0.0.1", output));
+
+    NodeStatus status = new HostStatusProbe("10.0.0.1", processes).call();
+
+    Assert.assertEquals("10.0.0.1", status.getHostname());
+    Assert.assertEquals(ImmutableMap.of("hbase-master", HostStatusProbe.RUNNING,
+                                        "hbase-regionserver", HostStatusProbe.STOPPED,
+                                        "cdap-router", HostStatusProbe.UNKNOWN),
+                        status.getServiceStatusMap());
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link LabelIndex}
+ */
+public class LabelIndexTest {
+
+  @Test
+  public void testSelectAndGroup() throws Exception {
+    Table<String, String, RemoteProcess> processTable = HashBasedTable.create();
+    Map<String, Map<String, String>> hostLabels = ImmutableMap.<String, Map<String, String>>of(
+      "10.0.0.1", ImmutableMap.of("rack", "r1", "zone", "a"),
+      "10.0.0.2", ImmutableMap.of("rack", "r2", "zone", "a"),
+      "10.0.0.3", ImmutableMap.of("rack", "r2", "zone", "b"),
+      "10.0.0.4", ImmutableMap.of("rack", "r3"));
+    for (String host : hostLabels.keySet()) {
+      processTable.put(host, "hbase-regionserver", TestProcesses.fixed("hbase-regionserver", host));
+    }
+    processTable.put("10.0.0.5", "hbase-regionserver", TestProcesses.fixed("hbase-regionserver", "10.0.0.5"));
+    processTable.put("10.0.0.1", "zookeeper", TestProcesses.fixed("zookeeper", "10.0.0.1"));
+
+    LabelIndex index = LabelIndex.build(processTable, hostLabels);
+    Assert.assertEquals(ImmutableList.of("10.0.0.2", "10.0.0.3"),
+                        addresses(index.select("hbase-regionserver", ImmutableMap.of("rack", "r2"))));
+    Assert.assertEquals(ImmutableList.of("10.0.0.2"),
+                        addresses(index.select("hbase-regionserver", ImmutableMap.of("rack", "r2", "zone", "a"))));
+    Assert.assertTrue(index.select("hbase-regionserver", ImmutableMap.of("rack", "r9")).isEmpty());
+    Assert.assertTrue(index.select("zookeeper", ImmutableMap.of("rack", "r2")).isEmpty());
+
+    // Nodes without the label are left out of the groups
+    Map<String, List<RemoteProcess>> zones = index.groupBy("hbase-regionserver", "zone", null);
+    Assert.assertEquals(ImmutableList.of("a", "b"), new ArrayList<>(zones.keySet()));
+    Assert.assertEquals(ImmutableList.of("10.0.0.1", "10.0.0.2"), addresses(zones.get("a")));
+
+    Map<String, List<RemoteProcess>> zonesOfRack = index.groupBy(
+      "hbase-regionserver", "zone", index.select("hbase-regionserver", ImmutableMap.of("rack", "r2")));
+    Assert.assertEquals(ImmutableList.of("10.0.0.2"), addresses(zonesOfRack.get("a")));
+    Assert.assertEquals(ImmutableList.of("10.0.0.3"), addresses(zonesOfRack.get("b")));
+  }
+
+  @Test
+  public void testParseLabels() throws Exception {
+    Assert.assertEquals(ImmutableMap.of("rack", "r2", "zone", "us-east-1a"),
+                        LabelIndex.parseLabels(" rack=r2, zone = us-east-1a ,"));
+    Assert.assertTrue(LabelIndex.parseLabels(null).isEmpty());
+    try {
+      LabelIndex.parseLabels("rack");
+      Assert.fail("Expected a label without a value to be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  private static List<String> addresses(List<RemoteProcess> processes) {
+    List<String> addresses = new ArrayList<>();
+    for (RemoteProcess process : processes) {
+      addresses.add(process.getAddress());
+    }
+    return addresses;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link ProcessSampler}
+ */
+public class ProcessSamplerTest {
+
+  @Test
+  public void testSample() throws Exception {
+    List<RemoteProcess> processes = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      processes.add(new SysVRemoteProcess("hbase-master", "/var/run/hbase-master.pid", null));
+    }
+    ProcessSampler sampler = new ProcessSampler(processes);
+    Random random = new Random(0);
+
+    for (int count = 0; count <= 20; count++) {
+      List<RemoteProcess> sample = sampler.sample(count, random);
+      Assert.assertEquals(count, sample.size());
+      Assert.assertEquals(count, new HashSet<>(sample).size());
+      Assert.assertTrue(processes.containsAll(sample));
+    }
+    Assert.assertEquals(20, sampler.sample(25, random).size());
+    Assert.assertTrue(sampler.sample(-1, random).isEmpty());
+  }
+
+  @Test
+  public void testUniform() throws Exception {
+    List<RemoteProcess> processes = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      processes.add(new SysVRemoteProcess("hbase-master", "/var/run/hbase-master.pid", null));
+    }
+    ProcessSampler sampler = new ProcessSampler(processes);
+    Random random = new Random(0);
+
+    int[] picks = new int[processes.size()];
+    for (int i = 0; i < 10000; i++) {
+      for (RemoteProcess process : sampler.sample(3, random)) {
+        picks[processes.indexOf(process)]++;
+      }
+    }
+    // Each process is expected to be picked 3000 times
+    for (int count : picks) {
+      Assert.assertTrue("Picked " + count + " times", count > 2700 && count < 3300);
+    }
+  }
+}
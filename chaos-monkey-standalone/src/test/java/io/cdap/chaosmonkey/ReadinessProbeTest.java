@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link ReadinessProbe}
+ */
+public class ReadinessProbeTest {
+
+  @Test
+  public void testHealthCommand() throws Exception {
+    List<String> events = new CopyOnWriteArrayList<>();
+    HealthCheckedProcess healthy = new HealthCheckedProcess("hbase-master", "10.0.0.1", events);
+    HealthCheckedProcess unhealthy = new HealthCheckedProcess("hbase-master", "10.0.0.2", events);
+    unhealthy.healthy = false;
+
+    ReadinessProbe probe = new ReadinessProbe("check-health", null, 0);
+    Assert.assertEquals(Collections.singletonList(unhealthy),
+                        probe.awaitReady(Arrays.<RemoteProcess>asList(healthy, unhealthy)));
+    Assert.assertEquals(Arrays.asList("health 10.0.0.1 check-health", "health 10.0.0.2 check-health"), events);
+  }
+
+  @Test
+  public void testHealthUrl() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/health", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        // Only the first node is healthy
+        exchange.sendResponseHeaders(exchange.getRequestURI().getQuery().equals("node=10.0.0.1") ? 200 : 503, -1);
+        exchange.close();
+      }
+    });
+    server.start();
+    try {
+      RemoteProcess healthy = new HealthCheckedProcess("hbase-master", "10.0.0.1", null);
+      RemoteProcess unhealthy = new HealthCheckedProcess("hbase-master", "10.0.0.2", null);
+      String url = String.format("http://localhost:%d/health?node={host}", server.getAddress().getPort());
+      ReadinessProbe probe = new ReadinessProbe(null, url, 0);
+      Assert.assertEquals(Collections.singletonList(unhealthy), probe.awaitReady(Arrays.asList(healthy, unhealthy)));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testNotRunningNotReady() throws Exception {
+    HealthCheckedProcess process = new HealthCheckedProcess("hbase-master", "10.0.0.1", null);
+    process.running = false;
+    ReadinessProbe probe = new ReadinessProbe(null, null, 0);
+    Assert.assertEquals(Collections.singletonList(process),
+                        probe.awaitReady(Collections.<RemoteProcess>singletonList(process)));
+  }
+
+  @Test
+  public void testProcessesCheckedConcurrently() throws Exception {
+    // Every health command waits for the other ones, so they only pass if they run at the same time
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    List<RemoteProcess> processes = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      HealthCheckedProcess process = new HealthCheckedProcess("hbase-master", "10.0.0." + i, null);
+      process.barrier = barrier;
+      processes.add(process);
+    }
+    FanOutExecutor executor = new FanOutExecutor(Executors.newCachedThreadPool(), FanOutExecutor.Type.BOUNDED, 1);
+    try {
+      ReadinessProbe probe = new ReadinessProbe("check-health", null, 0, executor);
+      Assert.assertEquals(Collections.emptyList(), probe.awaitReady(processes));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * A process that is running and records the commands run on it. Every other command is taken as a start or a stop,
+   * which succeeds, and health commands succeed if the process is healthy.
+   */
+  static final class HealthCheckedProcess extends SysVRemoteProcess {
+    private final String address;
+    private final List<String> events;
+    volatile boolean running = true;
+    volatile boolean healthy = true;
+    volatile CyclicBarrier barrier;
+
+    /**
+     * @param events Optional, list the actions and health commands run on the process are added to
+     */
+    HealthCheckedProcess(String name, String address, @Nullable List<String> events) {
+      super(name, "/var/run/" + name + ".pid", null);
+      this.address = address;
+      this.events = events;
+    }
+
+    @Override
+    public String getAddress() {
+      return address;
+    }
+
+    @Override
+    public boolean isRunning() {
+      return running;
+    }
+
+    @Override
+    public int execAndGetReturnCode(String command) {
+      return execAndGetOutput(command).returnCode;
+    }
+
+    @Override
+    public boolean execAndReturnSucessful(String command) {
+      record("health " + address + " " + command);
+      if (barrier != null) {
+        try {
+          barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          return false;
+        }
+      }
+      return healthy;
+    }
+
+    @Override
+    public ShellOutput execAndGetOutput(String command) {
+      // Stops take the process from running to stopped, and starts the other way around
+      boolean stop = command.contains(String.format("service %s stop", name));
+      record((stop ? "stop " : "start ") + address);
+      return new ShellOutput(0, String.format("chaos-monkey-action pre %d\nchaos-monkey-action act 0\n" +
+                                                "chaos-monkey-action post %d\n", stop ? 0 : 3, stop ? 3 : 0), "");
+    }
+
+    private void record(String event) {
+      if (events != null) {
+        events.add(event);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.chaosmonkey.common.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests for {@link RollingRestart}
+ */
+public class RollingRestartTest {
+
+  @Test
+  public void testBatches() throws Exception {
+    List<String> events = new CopyOnWriteArrayList<>();
+    List<RemoteProcess> processes = createProcesses(events, 3);
+    Configuration conf = new Configuration();
+    conf.set("hbase-master.healthCommand", "check-health");
+    RollingRestart rollingRestart = new RollingRestart();
+    rollingRestart.setConfiguration(conf);
+
+    // The health checks of a request are ignored, only the configured ones are run
+    rollingRestart.disrupt(processes, ImmutableMap.of("batchSize", "2", "healthCommand", "rm -rf /",
+                                                      "healthUrl", "http://169.254.169.254/"));
+    Assert.assertEquals(Arrays.asList("stop 10.0.0.1", "stop 10.0.0.2", "start 10.0.0.1", "start 10.0.0.2",
+                                      "health 10.0.0.1 check-health", "health 10.0.0.2 check-health",
+                                      "stop 10.0.0.3", "start 10.0.0.3", "health 10.0.0.3 check-health"), events);
+  }
+
+  @Test
+  public void testAbortWhenNotReady() throws Exception {
+    List<String> events = new CopyOnWriteArrayList<>();
+    List<RemoteProcess> processes = createProcesses(events, 3);
+    ((ReadinessProbeTest.HealthCheckedProcess) processes.get(0)).healthy = false;
+    Configuration conf = new Configuration();
+    conf.set("hbase-master.healthCommand", "check-health");
+    RollingRestart rollingRestart = new RollingRestart();
+    rollingRestart.setConfiguration(conf);
+
+    Map<String, String> serviceArguments = ImmutableMap.of("batchSize", "1", "maxUnavailable", "1",
+                                                           "readinessTimeout", "0");
+    try {
+      rollingRestart.disrupt(processes, serviceArguments);
+      Assert.fail("Expected the rolling restart to be aborted");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    // Only the first node was taken down, since it never became ready
+    Assert.assertEquals(Arrays.asList("stop 10.0.0.1", "start 10.0.0.1", "health 10.0.0.1 check-health"), events);
+  }
+
+  private static List<RemoteProcess> createProcesses(List<String> events, int count) {
+    List<RemoteProcess> processes = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      processes.add(new ReadinessProbeTest.HealthCheckedProcess("hbase-master", "10.0.0." + i, events));
+    }
+    return processes;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link ScheduledDisruption}
+ */
+public class ScheduledDisruptionTest {
+  private static final RemoteProcess ZK1 = TestProcesses.fixed("zookeeper", "10.0.0.1");
+  private static final RemoteProcess ZK2 = TestProcesses.fixed("zookeeper", "10.0.0.2");
+  private static final RemoteProcess ZK3 = TestProcesses.fixed("zookeeper", "10.0.0.3");
+
+  @Test
+  public void testOnlyHaltedProcessesReturned() throws Exception {
+    // The first process is halted, the second one was already down and the third one could not be halted
+    Map<String, ProcessOutcome> outcomes = ImmutableMap.of(ZK1.getAddress(), ProcessOutcome.SUCCEEDED,
+                                                           ZK2.getAddress(), ProcessOutcome.SKIPPED,
+                                                           ZK3.getAddress(), ProcessOutcome.FAILED);
+    ScheduledDisruption disruption = new ScheduledDisruption(Arrays.asList(ZK1, ZK2, ZK3),
+                                                             ImmutableMap.of("kill", 1.0), 60, 3, 3, new Random(0),
+                                                             new CompletingSubmitter(outcomes));
+    Assert.assertEquals(Collections.singletonList(ZK1), disruption.runOneIteration());
+  }
+
+  @Test
+  public void testNoNodesNotSubmitted() throws Exception {
+    CompletingSubmitter submitter = new CompletingSubmitter(ImmutableMap.<String, ProcessOutcome>of());
+    ScheduledDisruption disruption = new ScheduledDisruption(Arrays.asList(ZK1, ZK2, ZK3),
+                                                             ImmutableMap.of("kill", 1.0), 60, 0, 0, new Random(0),
+                                                             submitter);
+    Assert.assertEquals(Collections.emptyList(), disruption.runOneIteration());
+    Assert.assertEquals(0, submitter.submitted);
+  }
+
+  @Test
+  public void testJitterFollowsSeed() throws Exception {
+    Map<String, ProcessOutcome> outcomes = ImmutableMap.of(ZK1.getAddress(), ProcessOutcome.SUCCEEDED);
+    ScheduledDisruption first = new ScheduledDisruption(Arrays.asList(ZK1, ZK2, ZK3), ImmutableMap.of("kill", 1.0),
+                                                        60, 1, 1, new Random(42), new CompletingSubmitter(outcomes));
+    ScheduledDisruption second = new ScheduledDisruption(Arrays.asList(ZK1, ZK2, ZK3), ImmutableMap.of("kill", 1.0),
+                                                         60, 1, 1, new Random(42), new CompletingSubmitter(outcomes));
+    // Iterations running between the jitter draws do not change them
+    first.runOneIteration();
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(first.nextJitter(), second.nextJitter(), 0.0);
+      first.runOneIteration();
+    }
+  }
+
+  /**
+   * Completes every disruption right away with the given outcomes.
+   */
+  private static final class CompletingSubmitter implements DisruptionSubmitter {
+    private final Map<String, ProcessOutcome> outcomes;
+    private int submitted;
+
+    CompletingSubmitter(Map<String, ProcessOutcome> outcomes) {
+      this.outcomes = outcomes;
+    }
+
+    @Override
+    public SubmittedDisruption submit(String service, String disruptionName, Collection<RemoteProcess> processes) {
+      submitted++;
+      SubmittedDisruption disruption = new SubmittedDisruption(service, disruptionName);
+      disruption.complete(outcomes, null);
+      return disruption;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.jcraft.jsch.FakeJSch;
+import com.jcraft.jsch.JSchException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SshSessionPool}
+ */
+public class SshSessionPoolTest {
+  private final FakeJSch jsch = new FakeJSch();
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testSessionReused() throws Exception {
+    SshSessionPool pool = createPool(2, TimeUnit.HOURS.toMillis(1));
+    try {
+      SshSessionPool.PooledSession first = pool.acquire();
+      SshSessionPool.PooledSession second = pool.acquire();
+      Assert.assertSame(first, second);
+      // The session is full, so another one is opened
+      SshSessionPool.PooledSession third = pool.acquire();
+      Assert.assertNotSame(first, third);
+      Assert.assertEquals(2, jsch.connects.get());
+
+      pool.release(first, true);
+      Assert.assertSame(first, pool.acquire());
+      Assert.assertEquals(2, jsch.connects.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentAcquireConnectsOnce() throws Exception {
+    SshSessionPool pool = createPool(4, TimeUnit.HOURS.toMillis(1));
+    jsch.connecting = new CountDownLatch(1);
+    jsch.connectLatch = new CountDownLatch(1);
+    try {
+      List<Future<SshSessionPool.PooledSession>> futures = new ArrayList<>();
+      futures.add(executor.submit(acquire(pool)));
+      Assert.assertTrue(jsch.connecting.await(10, TimeUnit.SECONDS));
+      // Arrive while the first caller is still connecting
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(acquire(pool)));
+      }
+      TimeUnit.MILLISECONDS.sleep(50);
+      jsch.connectLatch.countDown();
+
+      for (Future<SshSessionPool.PooledSession> future : futures) {
+        Assert.assertSame(futures.get(0).get(10, TimeUnit.SECONDS), future.get(10, TimeUnit.SECONDS));
+      }
+      Assert.assertEquals(1, jsch.connects.get());
+      Assert.assertEquals(1, jsch.sessions.size());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testConnectFailureShared() throws Exception {
+    SshSessionPool pool = createPool(4, TimeUnit.HOURS.toMillis(1));
+    jsch.connecting = new CountDownLatch(1);
+    jsch.connectLatch = new CountDownLatch(1);
+    jsch.connectFailure = new JSchException("Auth fail");
+    try {
+      Future<SshSessionPool.PooledSession> first = executor.submit(acquire(pool));
+      Assert.assertTrue(jsch.connecting.await(10, TimeUnit.SECONDS));
+      Future<SshSessionPool.PooledSession> second = executor.submit(acquire(pool));
+      TimeUnit.MILLISECONDS.sleep(50);
+      jsch.connectLatch.countDown();
+
+      for (Future<SshSessionPool.PooledSession> future : Arrays.asList(first, second)) {
+        try {
+          future.get(10, TimeUnit.SECONDS);
+          Assert.fail("Expected the connection to fail");
+        } catch (ExecutionException e) {
+          Assert.assertSame(jsch.connectFailure, e.getCause());
+        }
+      }
+      Assert.assertEquals(1, jsch.connects.get());
+
+      // The next caller tries again
+      jsch.connectFailure = null;
+      pool.acquire();
+      Assert.assertEquals(2, jsch.connects.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testIdleSessionEvicted() throws Exception {
+    SshSessionPool pool = createPool(2, 0);
+    try {
+      SshSessionPool.PooledSession pooledSession = pool.acquire();
+      pool.evictIdle();
+      // Sessions with open channels are kept
+      Assert.assertTrue(pooledSession.getSession().isConnected());
+
+      pool.release(pooledSession, true);
+      TimeUnit.MILLISECONDS.sleep(5);
+      pool.evictIdle();
+      Assert.assertFalse(pooledSession.getSession().isConnected());
+      Assert.assertNotSame(pooledSession, pool.acquire());
+      Assert.assertEquals(2, jsch.connects.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testBrokenSessionDiscarded() throws Exception {
+    SshSessionPool pool = createPool(2, TimeUnit.HOURS.toMillis(1));
+    try {
+      SshSessionPool.PooledSession pooledSession = pool.acquire();
+      pool.release(pooledSession, false);
+      Assert.assertFalse(pooledSession.getSession().isConnected());
+      Assert.assertNotSame(pooledSession, pool.acquire());
+    } finally {
+      pool.close();
+    }
+    for (FakeJSch.FakeSession session : jsch.sessions) {
+      Assert.assertFalse(session.isConnected());
+    }
+  }
+
+  private SshSessionPool createPool(int maxChannelsPerSession, long idleTimeoutMillis) {
+    return new SshSessionPool(jsch, "cdap", "10.0.0.1",
+                              new SshSessionPool.Settings(maxChannelsPerSession, idleTimeoutMillis, 0));
+  }
+
+  private static Callable<SshSessionPool.PooledSession> acquire(final SshSessionPool pool) {
+    return new Callable<SshSessionPool.PooledSession>() {
+      @Override
+      public SshSessionPool.PooledSession call() throws Exception {
+        return pool.acquire();
+      }
+    };
+  }
+}
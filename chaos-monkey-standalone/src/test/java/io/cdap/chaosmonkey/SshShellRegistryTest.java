@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.base.Supplier;
+import com.jcraft.jsch.JSch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SshShellRegistry}
+ */
+public class SshShellRegistryTest {
+
+  @Test
+  public void testOneShellPerHost() throws Exception {
+    final AtomicInteger created = new AtomicInteger();
+    SshShellRegistry registry = new SshShellRegistry("cdap", new Supplier<JSch>() {
+      @Override
+      public JSch get() {
+        created.incrementAndGet();
+        return new JSch();
+      }
+    }, SshSessionPool.Settings.DEFAULT);
+
+    try {
+      SshShell first = registry.get("10.0.0.1");
+      Assert.assertSame(first, registry.get("10.0.0.1"));
+      Assert.assertNotSame(first, registry.get("10.0.0.2"));
+      Assert.assertEquals("10.0.0.2", registry.get("10.0.0.2").getAddress());
+      Assert.assertEquals(2, registry.size());
+      Assert.assertEquals(1, created.get());
+    } finally {
+      registry.close();
+    }
+    Assert.assertEquals(0, registry.size());
+  }
+}
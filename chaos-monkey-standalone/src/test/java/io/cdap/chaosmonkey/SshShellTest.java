@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.jcraft.jsch.FakeJSch;
+import com.jcraft.jsch.JSchException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SshShell}
+ */
+public class SshShellTest {
+  private final FakeJSch jsch = new FakeJSch();
+  private SshShell shell;
+
+  @Before
+  public void setUp() {
+    shell = new SshShell("cdap", "10.0.0.1", jsch, new SshSessionPool.Settings(2, TimeUnit.HOURS.toMillis(1), 0));
+  }
+
+  @After
+  public void tearDown() {
+    shell.close();
+  }
+
+  @Test
+  public void testCompletesWhenChannelCloses() throws Exception {
+    ListenableFuture<ShellOutput> future = shell.execAsync("hostname");
+    FakeJSch.FakeChannel channel = jsch.channels.get(0);
+    Assert.assertEquals("bash -lc 'hostname'", channel.getCommand());
+    TimeUnit.MILLISECONDS.sleep(50);
+    Assert.assertFalse(future.isDone());
+
+    channel.finish(0, "node1\n");
+    ShellOutput output = future.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(0, output.returnCode);
+    Assert.assertEquals("node1\n", output.standardOutput);
+
+    // The next command runs on a new channel of the same session
+    ListenableFuture<ShellOutput> next = shell.execAsync("uptime");
+    jsch.channels.get(1).finish(3, "");
+    Assert.assertEquals(3, next.get(10, TimeUnit.SECONDS).returnCode);
+    Assert.assertEquals(1, jsch.connects.get());
+  }
+
+  @Test
+  public void testNoExitStatusDiscardsSession() throws Exception {
+    ListenableFuture<ShellOutput> future = shell.execAsync("hostname");
+    // Closed without an exit status, as when the session is torn down
+    jsch.channels.get(0).finish(-1, "");
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected the command to fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof JSchException);
+    }
+    Assert.assertFalse(jsch.sessions.get(0).isConnected());
+
+    ListenableFuture<ShellOutput> next = shell.execAsync("hostname");
+    jsch.channels.get(1).finish(0, "node1\n");
+    Assert.assertEquals("node1\n", next.get(10, TimeUnit.SECONDS).standardOutput);
+    Assert.assertEquals(2, jsch.connects.get());
+  }
+
+  @Test
+  public void testReconnectWhenSessionDropped() throws Exception {
+    ListenableFuture<ShellOutput> first = shell.execAsync("hostname");
+    jsch.channels.get(0).finish(0, "");
+    first.get(10, TimeUnit.SECONDS);
+    // The pooled session dropped while idle, so a new session is opened
+    jsch.sessions.get(0).disconnect();
+
+    ListenableFuture<ShellOutput> second = shell.execAsync("hostname");
+    jsch.channels.get(1).finish(0, "node1\n");
+    Assert.assertEquals("node1\n", second.get(10, TimeUnit.SECONDS).standardOutput);
+    Assert.assertEquals(2, jsch.connects.get());
+  }
+}
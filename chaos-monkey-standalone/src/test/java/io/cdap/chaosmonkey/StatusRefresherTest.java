@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.chaosmonkey.proto.NodeStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link StatusRefresher}
+ */
+public class StatusRefresherTest {
+  private final AtomicInteger probes = new AtomicInteger();
+  // Released once for every probe that starts
+  private final Semaphore probing = new Semaphore(0);
+  // Acquired by every probe before it finishes
+  private final Semaphore finish = new Semaphore(0);
+  private StatusRefresher refresher;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    refresher = new StatusRefresher(new Callable<Collection<NodeStatus>>() {
+      @Override
+      public Collection<NodeStatus> call() throws Exception {
+        probes.incrementAndGet();
+        probing.release();
+        finish.acquire();
+        return ImmutableList.of();
+      }
+    }, 0, TimeUnit.HOURS.toMillis(1));
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testRefreshDuringProbeSharesFollowUp() throws Exception {
+    Future<StatusRefresher.Snapshot> first = executor.submit(refresh());
+    Assert.assertTrue(probing.tryAcquire(10, TimeUnit.SECONDS));
+
+    // Both arrive after the probe started, so they wait for it and then share one more probe
+    TimeUnit.MILLISECONDS.sleep(10);
+    Future<StatusRefresher.Snapshot> second = executor.submit(refresh());
+    Future<StatusRefresher.Snapshot> third = executor.submit(refresh());
+    TimeUnit.MILLISECONDS.sleep(50);
+    finish.release();
+    Assert.assertTrue(probing.tryAcquire(10, TimeUnit.SECONDS));
+    finish.release();
+
+    StatusRefresher.Snapshot followUp = second.get(10, TimeUnit.SECONDS);
+    Assert.assertSame(followUp, third.get(10, TimeUnit.SECONDS));
+    Assert.assertTrue(followUp.getAsOf() > first.get(10, TimeUnit.SECONDS).getAsOf());
+    Assert.assertEquals(2, probes.get());
+  }
+
+  @Test
+  public void testInvalidateDuringProbe() throws Exception {
+    finish.release();
+    StatusRefresher.Snapshot initial = refresher.get();
+    Assert.assertTrue(probing.tryAcquire());
+    // Fresh enough, so it is returned without probing
+    Assert.assertSame(initial, refresher.get());
+
+    // A refresh in the same millisecond as the initial probe would be answered by its snapshot
+    TimeUnit.MILLISECONDS.sleep(10);
+    Future<StatusRefresher.Snapshot> fresh = executor.submit(refresh());
+    Assert.assertTrue(probing.tryAcquire(10, TimeUnit.SECONDS));
+    TimeUnit.MILLISECONDS.sleep(10);
+    long invalidatedAt = System.currentTimeMillis();
+    refresher.invalidate();
+
+    // The probe in progress may have seen the cluster before the invalidation, so it is not shared
+    Future<StatusRefresher.Snapshot> afterInvalidate = executor.submit(new Callable<StatusRefresher.Snapshot>() {
+      @Override
+      public StatusRefresher.Snapshot call() throws Exception {
+        return refresher.get();
+      }
+    });
+    TimeUnit.MILLISECONDS.sleep(50);
+    finish.release();
+    Assert.assertTrue(fresh.get(10, TimeUnit.SECONDS).getAsOf() < invalidatedAt);
+    Assert.assertTrue(probing.tryAcquire(10, TimeUnit.SECONDS));
+    finish.release();
+    Assert.assertTrue(afterInvalidate.get(10, TimeUnit.SECONDS).getAsOf() >= invalidatedAt);
+    Assert.assertEquals(3, probes.get());
+  }
+
+  private Callable<StatusRefresher.Snapshot> refresh() {
+    return new Callable<StatusRefresher.Snapshot>() {
+      @Override
+      public StatusRefresher.Snapshot call() throws Exception {
+        return refresher.refresh();
+      }
+    };
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import javax.annotation.Nullable;
+
+/**
+ * Processes with a fixed address for tests, which never open an SSH session.
+ */
+final class TestProcesses {
+
+  private TestProcesses() {
+  }
+
+  /**
+   * Returns a process that fails every command
+   */
+  static RemoteProcess fixed(String name, String address) {
+    return new FixedProcess(name, address, null);
+  }
+
+  /**
+   * Returns a process that answers every command with the given output and a return code of {@code 0}
+   */
+  static RemoteProcess fixed(String name, String address, String output) {
+    return new FixedProcess(name, address, output);
+  }
+
+  private static final class FixedProcess extends SysVRemoteProcess {
+    private final String address;
+    private final String output;
+
+    FixedProcess(String name, String address, @Nullable String output) {
+      super(name, "/var/run/" + name + ".pid", null);
+      this.address = address;
+      this.output = output;
+    }
+
+    @Override
+    public String getAddress() {
+      return address;
+    }
+
+    @Override
+    public int execAndGetReturnCode(String command) {
+      return execAndGetOutput(command).returnCode;
+    }
+
+    @Override
+    public ShellOutput execAndGetOutput(String command) {
+      if (output == null) {
+        throw new UnsupportedOperationException(String.format("%s on %s cannot run commands", name, address));
+      }
+      return new ShellOutput(0, output, "");
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.chaosmonkey;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import io.cdap.chaosmonkey.proto.ClusterNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TopologyDiff}
+ */
+public class TopologyDiffTest {
+
+  @Test
+  public void testCompute() throws Exception {
+    Table<String, String, String> current = HashBasedTable.create();
+    current.put("10.0.0.1", "hbase-master", "");
+    current.put("10.0.0.1", "zookeeper", "");
+    current.put("10.0.0.2", "zookeeper", "");
+
+    // 10.0.0.2 was replaced by 10.0.0.3, and 10.0.0.1 also runs a new service
+    TopologyDiff diff = TopologyDiff.compute(current, ImmutableList.of(
+      new ClusterNode(ImmutableList.of("hbase-master", "zookeeper", "hive-server2"), "10.0.0.1"),
+      new ClusterNode(ImmutableList.of("zookeeper"), "10.0.0.3")), ImmutableSet.<String>of());
+
+    Assert.assertEquals(ImmutableSet.of("10.0.0.3"), diff.getAdded().get("zookeeper"));
+    Assert.assertEquals(ImmutableSet.of("10.0.0.2"), diff.getRemoved().get("zookeeper"));
+    Assert.assertEquals(ImmutableSet.of("10.0.0.1"), diff.getAdded().get("hive-server2"));
+    Assert.assertEquals(ImmutableSet.of("zookeeper", "hive-server2"), diff.getServices());
+    Assert.assertFalse(diff.isEmpty());
+  }
+
+  @Test
+  public void testIgnoredServices() throws Exception {
+    Table<String, String, String> current = HashBasedTable.create();
+    current.put("10.0.0.1", "zookeeper", "");
+
+    TopologyDiff diff = TopologyDiff.compute(current, ImmutableList.of(
+      new ClusterNode(ImmutableList.of("zookeeper", "hive-server2"), "10.0.0.1")), ImmutableSet.of("hive-server2"));
+    Assert.assertTrue(diff.isEmpty());
+  }
+}